@@ -0,0 +1,16 @@
+@echo off
+:: Copyright (c) 2026 Vegard IT GmbH and others.
+::
+:: This program and the accompanying materials are made
+:: available under the terms of the Eclipse Public License 2.0
+:: which is available at https://www.eclipse.org/legal/epl-2.0/
+::
+:: SPDX-License-Identifier: EPL-2.0
+
+setlocal
+
+cd /D "%~dp0"
+
+call mvn --quiet -e clean package || exit /b 1
+
+java -jar target\benchmarks.jar -prof gc -rf json -rff target\jmh-result.json %*
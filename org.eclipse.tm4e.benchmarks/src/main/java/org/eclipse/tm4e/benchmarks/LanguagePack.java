@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.grammar.IGrammar;
+import org.eclipse.tm4e.core.registry.IGrammarSource;
+import org.eclipse.tm4e.core.registry.IRegistryOptions;
+import org.eclipse.tm4e.core.registry.Registry;
+import org.w3c.dom.Element;
+
+/**
+ * Provides access to the grammars and example files of the org.eclipse.tm4e.language_pack bundle.
+ * <p>
+ * The grammars and injections are registered as declared in the plugin.xml of the language pack. The location of the
+ * language pack can be configured with the system property <code>tm4e.languagePackDir</code>.
+ */
+final class LanguagePack {
+
+	static final Path DIR = Path.of(System.getProperty("tm4e.languagePackDir", "../org.eclipse.tm4e.language_pack"))
+			.toAbsolutePath().normalize();
+
+	/**
+	 * Directory of the test resources of org.eclipse.tm4e.core.tests, used to load themes.
+	 */
+	static final Path TEST_RESOURCES_DIR = DIR.resolveSibling("org.eclipse.tm4e.core.tests/src/main/resources");
+
+	private static final String EXAMPLE_FILE_MARKER = ".example.";
+
+	private final Map<String, Path> grammarFilesByScopeName = new HashMap<>();
+	private final Map<String, List<String>> injectionsByScopeName = new HashMap<>();
+	private final Registry registry;
+
+	LanguagePack() throws Exception {
+		final var pluginXml = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(DIR.resolve("plugin.xml").toFile());
+		final var grammarElems = pluginXml.getElementsByTagName("grammar");
+		for (int i = 0; i < grammarElems.getLength(); i++) {
+			final var elem = (Element) grammarElems.item(i);
+			grammarFilesByScopeName.put(elem.getAttribute("scopeName"), DIR.resolve(elem.getAttribute("path")).normalize());
+		}
+		final var injectionElems = pluginXml.getElementsByTagName("injection");
+		for (int i = 0; i < injectionElems.getLength(); i++) {
+			final var elem = (Element) injectionElems.item(i);
+			injectionsByScopeName.computeIfAbsent(elem.getAttribute("injectTo"), unused -> new ArrayList<>())
+					.add(elem.getAttribute("scopeName"));
+		}
+
+		registry = new Registry(new IRegistryOptions() {
+			@Override
+			public @Nullable IGrammarSource getGrammarSource(final String scopeName) {
+				final var grammarFile = grammarFilesByScopeName.get(scopeName);
+				return grammarFile == null ? null : IGrammarSource.fromFile(grammarFile);
+			}
+
+			@Override
+			public @Nullable Collection<String> getInjections(final String scopeName) {
+				return injectionsByScopeName.get(scopeName);
+			}
+		});
+	}
+
+	/**
+	 * @param exampleFile path of the example file relative to the syntaxes directory, e.g. <code>java/java.example.java</code>
+	 */
+	String readExample(final String exampleFile) throws IOException {
+		return Files.readString(DIR.resolve("syntaxes").resolve(exampleFile));
+	}
+
+	/**
+	 * Loads the grammar of the given example file, which is located in the same directory and named after the example,
+	 * e.g. <code>java/java.tmLanguage.json</code> for <code>java/java.example.java</code>.
+	 */
+	IGrammar loadGrammarOfExample(final String exampleFile) {
+		final var example = DIR.resolve("syntaxes").resolve(exampleFile);
+		final var fileName = example.getFileName().toString();
+		final var grammarFile = example.resolveSibling(fileName.substring(0, fileName.indexOf(EXAMPLE_FILE_MARKER)) + ".tmLanguage.json");
+		for (final var entry : grammarFilesByScopeName.entrySet()) {
+			if (entry.getValue().equals(grammarFile)) {
+				final var grammar = registry.loadGrammar(entry.getKey());
+				if (grammar != null)
+					return grammar;
+			}
+		}
+		throw new IllegalArgumentException("No grammar registered for example file " + exampleFile);
+	}
+
+	static String[] toLines(final String text) {
+		return text.split("\\r?\\n|\\r", -1);
+	}
+}
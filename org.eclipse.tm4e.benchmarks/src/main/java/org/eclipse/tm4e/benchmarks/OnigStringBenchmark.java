@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tm4e.core.internal.oniguruma.OnigScanner;
+import org.eclipse.tm4e.core.internal.oniguruma.OnigString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link OnigString#of(String)}, which is called for every tokenized line, and the conversions between char
+ * and byte offsets done when searching in the string.
+ * <p>
+ * The lines are taken from the Java example file of the language pack. For multi-byte input some characters of each
+ * line are replaced by characters that require two, three or four bytes in UTF-8. One operation converts all lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OnigStringBenchmark {
+
+	@Param({ "ascii", "multibyte" })
+	public String input = "";
+
+	private String[] lines = new String[0];
+
+	/** matches the last word of a line, starting the search in the middle of the line */
+	private final OnigScanner scanner = new OnigScanner(List.of("\\w+\\W*$"));
+
+	@Setup
+	public void setup() throws Exception {
+		lines = LanguagePack.toLines(new LanguagePack().readExample("java/java.example.java"));
+		if ("multibyte".equals(input)) {
+			for (int i = 0; i < lines.length; i++) {
+				lines[i] = lines[i].replace('e', 'é').replace('=', '≠').replace(";", "😀");
+			}
+		}
+	}
+
+	@Benchmark
+	public void of(final Blackhole blackhole) {
+		for (final String line : lines) {
+			blackhole.consume(OnigString.of(line));
+		}
+	}
+
+	@Benchmark
+	public void ofAndSearch(final Blackhole blackhole) {
+		for (final String line : lines) {
+			blackhole.consume(scanner.findNextMatch(OnigString.of(line), line.length() / 2));
+		}
+	}
+}
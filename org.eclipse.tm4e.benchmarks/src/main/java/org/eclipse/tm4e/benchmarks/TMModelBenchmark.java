@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.benchmarks;
+
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.lateNonNull;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tm4e.core.model.ModelTokensChangedEvent;
+import org.eclipse.tm4e.core.model.TMModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency from a single-line edit reported via {@link TMModel#onLinesReplaced(int, int, int)} until the
+ * {@link ModelTokensChangedEvent} for the revalidated line is received, i.e. the time until the editor could repaint
+ * the edited line.
+ * <p>
+ * Each operation edits the next line of the example file, so that all kinds of lines are revalidated.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TMModelBenchmark {
+
+	private static final long MAX_WAIT_SECONDS = 10;
+
+	@Param({ "java/java.example.java", "typescript/typescript.example.ts" })
+	public String example = "";
+
+	private final Semaphore tokensChanged = new Semaphore(0);
+	private TMModel model = lateNonNull();
+	private int lineCount;
+	private int nextLineIndex;
+
+	@Setup
+	public void setup() throws Exception {
+		final var languagePack = new LanguagePack();
+		final String[] lines = LanguagePack.toLines(languagePack.readExample(example));
+		lineCount = lines.length;
+		model = new TMModel(lines.length) {
+			@Override
+			public String getLineText(final int lineIndex) {
+				return lines[lineIndex];
+			}
+		};
+		model.addModelTokensChangedListener(event -> tokensChanged.release());
+		model.setGrammar(languagePack.loadGrammarOfExample(example));
+
+		// wait for the initial tokenization of the whole document
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(MAX_WAIT_SECONDS);
+		while (model.getLineTokens(lineCount - 1) == null) {
+			if (System.nanoTime() > deadline)
+				throw new IllegalStateException("Initial tokenization did not finish within " + MAX_WAIT_SECONDS + " seconds");
+			tokensChanged.tryAcquire(10, TimeUnit.MILLISECONDS);
+		}
+		tokensChanged.drainPermits();
+	}
+
+	@TearDown
+	public void tearDown() {
+		model.dispose();
+	}
+
+	@Benchmark
+	public void editSingleLine() throws InterruptedException {
+		final int lineIndex = nextLineIndex;
+		nextLineIndex = (lineIndex + 1) % lineCount;
+
+		model.onLinesReplaced(lineIndex, 1, 1);
+		if (!tokensChanged.tryAcquire(MAX_WAIT_SECONDS, TimeUnit.SECONDS))
+			throw new IllegalStateException("Line " + (lineIndex + 1) + " was not revalidated within " + MAX_WAIT_SECONDS + " seconds");
+	}
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.benchmarks;
+
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.grammar.IStateStack;
+import org.eclipse.tm4e.core.internal.grammar.ScopeStack;
+import org.eclipse.tm4e.core.internal.theme.Theme;
+import org.eclipse.tm4e.core.internal.theme.raw.RawThemeReader;
+import org.eclipse.tm4e.core.registry.IThemeSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link Theme#match(ScopeStack)}, which is used by the TMThemeTokenProvider of the UI to compute the style of
+ * tokens.
+ * <p>
+ * The matched scope stacks are the distinct scope stacks of the tokens of several example files of the language pack.
+ * One operation matches all of them once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThemeMatchBenchmark {
+
+	private static final String[] EXAMPLES = {
+			"css/css.example.css",
+			"html/html.example.html",
+			"java/java.example.java",
+			"typescript/typescript.example.ts"
+	};
+
+	/**
+	 * Theme files relative to the test resources of org.eclipse.tm4e.core.tests.
+	 */
+	@Param({ "test-cases/themes/Monokai.tmTheme", "test-cases/themes/Solarized-dark.tmTheme" })
+	public String theme = "";
+
+	private Theme tmTheme = lateNonNull();
+	private List<ScopeStack> scopeStacks = List.of();
+
+	@Setup
+	public void setup() throws Exception {
+		final var rawTheme = RawThemeReader.readTheme(IThemeSource.fromFile(LanguagePack.TEST_RESOURCES_DIR.resolve(theme)));
+		tmTheme = Theme.createFromRawTheme(rawTheme, null);
+
+		final var languagePack = new LanguagePack();
+		final var distinctScopes = new LinkedHashSet<List<String>>();
+		for (final var example : EXAMPLES) {
+			final var grammar = languagePack.loadGrammarOfExample(example);
+			@Nullable
+			IStateStack state = null;
+			for (final var line : LanguagePack.toLines(languagePack.readExample(example))) {
+				final var result = grammar.tokenizeLine(line, state, null);
+				for (final var token : result.getTokens()) {
+					distinctScopes.add(token.getScopes());
+				}
+				state = result.getRuleStack();
+			}
+		}
+
+		final var scopeStacks = new ArrayList<ScopeStack>(distinctScopes.size());
+		for (final var scopes : distinctScopes) {
+			scopeStacks.add(castNonNull(ScopeStack.from(scopes.toArray(String[]::new))));
+		}
+		this.scopeStacks = scopeStacks;
+	}
+
+	@Benchmark
+	public void match(final Blackhole blackhole) {
+		for (final var scopeStack : scopeStacks) {
+			blackhole.consume(tmTheme.match(scopeStack));
+		}
+	}
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.benchmarks;
+
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.lateNonNull;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.grammar.IGrammar;
+import org.eclipse.tm4e.core.grammar.IStateStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Tokenizes the example files of all languages of the language pack line by line, the same way the TMModel does.
+ * <p>
+ * One operation tokenizes the complete example file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenizeBenchmark {
+
+	/**
+	 * Example files relative to the syntaxes directory of the language pack.
+	 * <p>
+	 * The markdown and search-result examples are not included, since the markdown grammar contains a regular
+	 * expression with a look-behind that is not supported by Joni.
+	 */
+	@Param({
+			"bat/bat.example.bat",
+			"clojure/clojure.example.clj",
+			"coffeescript/coffeescript.example.coffee",
+			"cpp/c.example.c",
+			"cpp/cpp.example.cpp",
+			"cpp/cuda-cpp.example.cu",
+			"csharp/csharp.example.cs",
+			"css/css.example.css",
+			"dart/dart.example.dart",
+			"diff/diff.example.diff",
+			"docker/dockerfile.example.dockerfile",
+			"fsharp/fsharp.example.fs",
+			"git-base/git-commit.example.txt",
+			"git-base/git-rebase.example.git-rebase-todo",
+			"git-base/ignore.example.gitignore",
+			"go/go.example.go",
+			"groovy/groovy.example.groovy",
+			"handlebars/handlebars.example.hbs",
+			"hlsl/hlsl.example.hlsl",
+			"html/html.example.html",
+			"ini/ini.example.ini",
+			"java/java.example.java",
+			"javascript/javascript.example.js",
+			"javascript/javascriptreact.example.jsx",
+			"json/json.example.json",
+			"json/jsonc.example.jsonc",
+			"json/jsonl.example.jsonl",
+			"julia/julia.example.julia",
+			"latex/bibtex.example.bib",
+			"latex/latex.example.ltx",
+			"latex/tex.example.tex",
+			"less/less.example.less",
+			"lua/lua.example.lua",
+			"make/makefile.example.makefile",
+			"markdown-math/markdown-math.example.md",
+			"objective-c/objective-c.example.m",
+			"objective-c/objective-cpp.example.mm",
+			"perl/perl.example.pl",
+			"perl/raku.example.pl6",
+			"php/php.example.php",
+			"powershell/powershell.example.ps1",
+			"pug/jade.example.pug",
+			"python/python.example.py",
+			"r/r.example.r",
+			"razor/razor.example.razor",
+			"restructuredtext/restructuredtext.example.rst",
+			"ruby/ruby.example.rb",
+			"rust/rust.example.rs",
+			"scss/scss.example.scss",
+			"shaderlab/shaderlab.example.shader",
+			"shellscript/shellscript.example.sh",
+			"sql/sql.example.sql",
+			"swift/swift.example.swift",
+			"typescript/typescript.example.ts",
+			"typescript/typescriptreact.example.tsx",
+			"vb/vb.example.vb",
+			"xml/xml.example.xml",
+			"xml/xsl.example.xsl",
+			"yaml/yaml.example.yaml"
+	})
+	public String example = "";
+
+	private IGrammar grammar = lateNonNull();
+	private String[] lines = new String[0];
+
+	@Setup
+	public void setup() throws Exception {
+		final var languagePack = new LanguagePack();
+		grammar = languagePack.loadGrammarOfExample(example);
+		lines = LanguagePack.toLines(languagePack.readExample(example));
+	}
+
+	@Benchmark
+	public void tokenizeLine(final Blackhole blackhole) {
+		@Nullable
+		IStateStack state = null;
+		for (final String line : lines) {
+			final var result = grammar.tokenizeLine(line, state, null);
+			blackhole.consume(result.getTokens());
+			state = result.getRuleStack();
+		}
+	}
+
+	@Benchmark
+	public void tokenizeLine2(final Blackhole blackhole) {
+		@Nullable
+		IStateStack state = null;
+		for (final String line : lines) {
+			final var result = grammar.tokenizeLine2(line, state, null);
+			blackhole.consume(result.getTokens());
+			state = result.getRuleStack();
+		}
+	}
+}
@@ -12,10 +12,13 @@
 
 setlocal
 
+set BENCHMARK_CLASS=%~1
+if "%BENCHMARK_CLASS%"=="" set BENCHMARK_CLASS=org.eclipse.tm4e.core.benchmark.GrammarBenchmark
+
 cd /D "%~dp0..\..\.."
 
 mvn clean verify ^
   -pl target-platform,org.eclipse.tm4e.core ^
   -Djgit.dirtyWorkingTree=warning ^
   -DskipTests ^
-  -DbenchmarkClass=org.eclipse.tm4e.core.benchmark.GrammarBenchmark
+  -DbenchmarkClass=%BENCHMARK_CLASS%
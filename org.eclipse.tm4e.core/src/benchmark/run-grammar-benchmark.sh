@@ -16,4 +16,4 @@ mvn clean verify \
   -pl target-platform,org.eclipse.tm4e.core \
   -Djgit.dirtyWorkingTree=warning \
   -DskipTests \
-  -DbenchmarkClass=org.eclipse.tm4e.core.benchmark.GrammarBenchmark
+  -DbenchmarkClass=${1:-org.eclipse.tm4e.core.benchmark.GrammarBenchmark}
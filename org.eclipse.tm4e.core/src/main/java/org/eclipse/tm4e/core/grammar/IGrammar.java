@@ -17,7 +17,10 @@
 package org.eclipse.tm4e.core.grammar;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.eclipse.jdt.annotation.Nullable;
 
@@ -128,4 +131,61 @@ public interface IGrammar {
 	 *            {@link ITokenizeLineResult#isStoppedEarly()} set to <code>true</code>
 	 */
 	ITokenizeLineResult<int[]> tokenizeLine2(String lineText, @Nullable IStateStack prevState, @Nullable Duration timeLimit);
+
+	/**
+	 * Tokenizes all lines of `text`, using up to `parallelism` threads.
+	 * <p>
+	 * Large documents are split into chunks which are tokenized concurrently, each speculatively starting from the
+	 * initial grammar state. Once the real end state of the preceding chunk is known, the lines of a chunk are
+	 * re-tokenized only until the resulting state matches the speculated one again. The results are therefore identical
+	 * to tokenizing the document line by line via {@link #tokenizeLine2(String, IStateStack, Duration)}.
+	 * <p>
+	 * The text is split at <code>\r\n</code>, <code>\r</code> and <code>\n</code>, i.e. a text ending with a line
+	 * delimiter results in a trailing empty line.
+	 * <p>
+	 * The default implementation ignores <code>parallelism</code> and tokenizes the lines sequentially on the calling
+	 * thread.
+	 *
+	 * @param text the text to tokenize
+	 * @param parallelism the maximum number of threads to use, a value of <code>1</code> tokenizes sequentially on the
+	 *            calling thread
+	 *
+	 * @return one result per line with the tokens in the binary format described in {@link #tokenizeLine2(String)}
+	 *
+	 * @throws IllegalArgumentException if <code>parallelism</code> is less than <code>1</code>
+	 */
+	default List<ITokenizeLineResult<int[]>> tokenizeDocument(final CharSequence text,
+			final int parallelism) { // custom tm4e code - not in upstream
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be greater than 0 but was " + parallelism);
+
+		final var results = new ArrayList<ITokenizeLineResult<int[]>>();
+		IStateStack state = null;
+		for (final String line : text.toString().split("\r\n|\r|\n", -1)) {
+			final var result = tokenizeLine2(line, state, null);
+			results.add(result);
+			state = result.getRuleStack();
+		}
+		return results;
+	}
+
+	/**
+	 * Resolves the rules of this grammar and compiles the regular expressions of all rules the tokenizer scans with,
+	 * including the variants used at the beginning of a line or at the end of the previous match, so that the
+	 * tokenizer does not have to compile them on demand.
+	 * <p>
+	 * The rules are compiled concurrently by the given executor, the method returns once all of them are compiled.
+	 * Rules that are already compiled are skipped, i.e. warming up a grammar again is cheap. Tokenization running
+	 * concurrently to the warm-up waits for the regular expressions currently compiled by it instead of compiling them
+	 * again.
+	 * <p>
+	 * The default implementation does nothing, i.e. regular expressions are compiled on demand.
+	 *
+	 * @param executor the executor to compile the rules with, e.g. {@link java.util.concurrent.ForkJoinPool#commonPool()}
+	 *
+	 * @return the time it took to warm up the grammar
+	 */
+	default Duration warmUp(@SuppressWarnings("unused") final Executor executor) { // custom tm4e code - not in upstream
+		return Duration.ZERO;
+	}
 }
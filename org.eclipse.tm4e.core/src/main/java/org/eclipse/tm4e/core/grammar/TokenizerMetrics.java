@@ -0,0 +1,269 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.grammar;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.internal.utils.TokenizerMetricsCollector;
+
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * An immutable snapshot of the metrics collected by the tokenizer, to find out which grammars, rules and regular
+ * expressions tokenization time is spent in.
+ * <p>
+ * Collecting metrics is opt-in, see {@link #setEnabled(boolean)}. While disabled the instrumentation of the tokenizer
+ * has negligible overhead. While enabled every scanner and regex search is timed, which slows down tokenization
+ * noticeably.
+ * <p>
+ * The snapshot can be exported as JSON via {@link #writeJson(Writer, int)}, other exporters can be built on top of the
+ * records returned by the getters.
+ */
+public final class TokenizerMetrics { // custom tm4e code - not in upstream
+
+	/**
+	 * @param lineTimeHistogram number of lines per tokenization time, where bucket 0 counts lines tokenized in less
+	 *            than 1µs, bucket i &gt; 0 lines tokenized in [2^(i-1), 2^i) µs and the last bucket all slower lines
+	 */
+	public record GrammarStats(String scopeName, long lines, long nanos, long scannerSearches, long stoppedEarly,
+			long[] lineTimeHistogram) {
+
+		/**
+		 * @return the average number of rule scanner searches per line
+		 */
+		public double scannerSearchesPerLine() {
+			return lines == 0 ? 0 : (double) scannerSearches / lines;
+		}
+	}
+
+	/**
+	 * @param ruleId the ID of the rule, unique within the grammar with the given scope name
+	 * @param nanos the time spent searching with the scanner of the rule, i.e. all its regular expressions
+	 */
+	public record RuleStats(String grammarScope, int ruleId, @Nullable String ruleName, long searches, long nanos) {
+	}
+
+	public record PatternStats(String pattern, long searches, long nanos) {
+	}
+
+	public record CacheStats(long hits, long misses) {
+
+		/**
+		 * @return the ratio of lookups that were hits, or 0 if there were no lookups
+		 */
+		public double hitRate() {
+			final long lookups = hits + misses;
+			return lookups == 0 ? 0 : (double) hits / lookups;
+		}
+	}
+
+	/**
+	 * Enables or disables collecting metrics. Metrics collected so far are retained, see {@link #reset()}.
+	 */
+	public static void setEnabled(final boolean enabled) {
+		TokenizerMetricsCollector.setEnabled(enabled);
+	}
+
+	public static boolean isEnabled() {
+		return TokenizerMetricsCollector.getActive() != null;
+	}
+
+	/**
+	 * Discards all metrics collected so far.
+	 */
+	public static void reset() {
+		TokenizerMetricsCollector.getInstance().clear();
+	}
+
+	/**
+	 * @return the metrics collected since the last {@link #reset()}
+	 */
+	public static TokenizerMetrics snapshot() {
+		final var collector = TokenizerMetricsCollector.getInstance();
+
+		final var grammars = new ArrayList<GrammarStats>();
+		collector.grammars.forEach((scopeName, counters) -> {
+			final var histogram = new long[counters.lineTimeHistogram.length];
+			for (int i = 0; i < histogram.length; i++) {
+				histogram[i] = counters.lineTimeHistogram[i].sum();
+			}
+			grammars.add(new GrammarStats(scopeName, counters.lines.sum(), counters.nanos.sum(),
+					counters.scannerSearches.sum(), counters.stoppedEarly.sum(), histogram));
+		});
+		grammars.sort(Comparator.comparingLong(GrammarStats::nanos).reversed());
+
+		final var rules = new ArrayList<RuleStats>();
+		collector.rules.values().forEach(counters -> rules.add(new RuleStats(counters.grammarScope, counters.ruleId,
+				counters.ruleName, counters.searches.sum(), counters.nanos.sum())));
+		rules.sort(Comparator.comparingLong(RuleStats::nanos).reversed());
+
+		final var patterns = new ArrayList<PatternStats>();
+		collector.patterns.forEach((pattern, counters) -> patterns
+				.add(new PatternStats(pattern, counters.searches.sum(), counters.nanos.sum())));
+		patterns.sort(Comparator.comparingLong(PatternStats::nanos).reversed());
+
+		return new TokenizerMetrics(grammars, rules, patterns,
+				new CacheStats(collector.regExpSearchCache.hits.sum(), collector.regExpSearchCache.misses.sum()),
+				new CacheStats(collector.anchorCache.hits.sum(), collector.anchorCache.misses.sum()),
+				new CacheStats(collector.themeCache.hits.sum(), collector.themeCache.misses.sum()));
+	}
+
+	private final List<GrammarStats> grammars;
+	private final List<RuleStats> rules;
+	private final List<PatternStats> patterns;
+	private final CacheStats regExpSearchCache;
+	private final CacheStats anchorCache;
+	private final CacheStats themeCache;
+
+	private TokenizerMetrics(final List<GrammarStats> grammars, final List<RuleStats> rules,
+			final List<PatternStats> patterns, final CacheStats regExpSearchCache, final CacheStats anchorCache,
+			final CacheStats themeCache) {
+		this.grammars = List.copyOf(grammars);
+		this.rules = List.copyOf(rules);
+		this.patterns = List.copyOf(patterns);
+		this.regExpSearchCache = regExpSearchCache;
+		this.anchorCache = anchorCache;
+		this.themeCache = themeCache;
+	}
+
+	/**
+	 * @return the metrics per grammar, the grammar with the most tokenization time first
+	 */
+	public List<GrammarStats> getGrammars() {
+		return grammars;
+	}
+
+	/**
+	 * @return the <code>n</code> rules with the most search time, slowest first
+	 */
+	public List<RuleStats> getSlowestRules(final int n) {
+		return rules.subList(0, Math.min(n, rules.size()));
+	}
+
+	/**
+	 * @return the <code>n</code> regex patterns with the most search time, slowest first
+	 */
+	public List<PatternStats> getSlowestPatterns(final int n) {
+		return patterns.subList(0, Math.min(n, patterns.size()));
+	}
+
+	/**
+	 * @return the hits of the cache of the last search result of a regex per searched line
+	 */
+	public CacheStats getRegExpSearchCache() {
+		return regExpSearchCache;
+	}
+
+	/**
+	 * @return the hits of the cache of the scanners compiled per <code>\A</code>/<code>\G</code> anchor variant of a
+	 *         rule
+	 */
+	public CacheStats getAnchorCache() {
+		return anchorCache;
+	}
+
+	/**
+	 * @return the hits of the cache of the theme rules matching a scope name
+	 */
+	public CacheStats getThemeCache() {
+		return themeCache;
+	}
+
+	/**
+	 * Writes these metrics as JSON, including the given number of slowest rules and patterns.
+	 * <p>
+	 * The given writer is flushed but not closed, it remains owned by the caller.
+	 */
+	@SuppressWarnings("resource") // closing the JsonWriter would close the caller's writer
+	public void writeJson(final Writer out, final int topN) throws IOException {
+		final var json = new JsonWriter(out);
+		json.setIndent("  ");
+		json.beginObject();
+
+		json.name("grammars").beginArray();
+		for (final var grammar : grammars) {
+			json.beginObject();
+			json.name("scopeName").value(grammar.scopeName);
+			json.name("lines").value(grammar.lines);
+			json.name("nanos").value(grammar.nanos);
+			json.name("scannerSearches").value(grammar.scannerSearches);
+			json.name("stoppedEarly").value(grammar.stoppedEarly);
+			json.name("lineTimeHistogram").beginArray();
+			for (final long count : grammar.lineTimeHistogram) {
+				json.value(count);
+			}
+			json.endArray();
+			json.endObject();
+		}
+		json.endArray();
+
+		json.name("slowestRules").beginArray();
+		for (final var rule : getSlowestRules(topN)) {
+			json.beginObject();
+			json.name("grammarScope").value(rule.grammarScope);
+			json.name("ruleId").value(rule.ruleId);
+			json.name("ruleName").value(rule.ruleName);
+			json.name("searches").value(rule.searches);
+			json.name("nanos").value(rule.nanos);
+			json.endObject();
+		}
+		json.endArray();
+
+		json.name("slowestPatterns").beginArray();
+		for (final var pattern : getSlowestPatterns(topN)) {
+			json.beginObject();
+			json.name("pattern").value(pattern.pattern);
+			json.name("searches").value(pattern.searches);
+			json.name("nanos").value(pattern.nanos);
+			json.endObject();
+		}
+		json.endArray();
+
+		writeJson(json, "regExpSearchCache", regExpSearchCache);
+		writeJson(json, "anchorCache", anchorCache);
+		writeJson(json, "themeCache", themeCache);
+
+		json.endObject();
+		json.flush();
+	}
+
+	@SuppressWarnings("resource") // the chained calls return the given JsonWriter
+	private static void writeJson(final JsonWriter json, final String name, final CacheStats cache) throws IOException {
+		json.name(name).beginObject();
+		json.name("hits").value(cache.hits);
+		json.name("misses").value(cache.misses);
+		json.endObject();
+	}
+
+	/**
+	 * @return these metrics as JSON, including the 20 slowest rules and patterns
+	 */
+	public String toJson() {
+		final var out = new StringWriter();
+		try {
+			writeJson(out, 20);
+		} catch (final IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return out.toString();
+	}
+
+	@Override
+	public String toString() {
+		return toJson();
+	}
+}
@@ -17,6 +17,7 @@
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.internal.grammar.tokenattrs.EncodedTokenAttributes;
@@ -69,10 +70,44 @@ String scopeName() {
 		return this.scopePath.scopeName;
 	}
 
+	/**
+	 * Max number of children memoized per node. Limits the memory used for scope names that are computed from captures,
+	 * e.g. <code>entity.name.tag.$1</code>.
+	 */
+	private static final int MAX_MEMOIZED_CHILDREN = 256;
+
+	/**
+	 * The nodes pushed onto a node by a grammar with a given theme.
+	 * <p>
+	 * Nodes are immutable and a child only depends on its parent, the pushed scope name, the grammar and the theme. So
+	 * repeated pushes of the same scope name return the same canonical child instead of allocating a new node and
+	 * matching the theme again.
+	 */
+	private record Transitions(Grammar grammar, StyleAttributes themeDefaults,
+			ConcurrentHashMap<String, AttributedScopeStack> children) {
+	}
+
 	private final @Nullable AttributedScopeStack parent;
 	private final ScopeStack scopePath;
 	final int tokenAttributes;
 
+	/** precomputed, since nodes are immutable and compared for every tokenized line */
+	private final int hashCode;
+
+	private volatile @Nullable Transitions transitions;
+
+	/**
+	 * The injections of a grammar whose selectors match the scope names of this node.
+	 */
+	private record MatchingInjections(List<Injection> injections, List<Injection> matching) {
+	}
+
+	/**
+	 * Selectors only depend on the scope names, so they are evaluated once per node and grammar instead of once per
+	 * scanned position.
+	 */
+	private volatile @Nullable MatchingInjections matchingInjections;
+
 	private AttributedScopeStack(
 			final @Nullable AttributedScopeStack parent,
 			final ScopeStack scopePath,
@@ -80,6 +115,17 @@ private AttributedScopeStack(
 		this.parent = parent;
 		this.scopePath = scopePath;
 		this.tokenAttributes = tokenAttributes;
+		hashCode = 31 * (31 * (parent == null ? 1 : parent.hashCode) + tokenAttributes) + scopePath.scopeName.hashCode();
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(final @Nullable Object other) {
+		return other instanceof final AttributedScopeStack otherStack && equals(this, otherStack);
 	}
 
 	@Override
@@ -109,7 +155,8 @@ static boolean equals(
 				return false;
 			}
 
-			if (a.tokenAttributes != b.tokenAttributes
+			if (a.hashCode != b.hashCode // custom tm4e code - not from upstream
+					|| a.tokenAttributes != b.tokenAttributes
 					|| !Objects.equals(a.scopeName(), b.scopeName())) {
 				return false;
 			}
@@ -166,6 +213,30 @@ private AttributedScopeStack _pushAttributed(
 			final AttributedScopeStack target,
 			final String scopeName,
 			final Grammar grammar) {
+		// custom tm4e code - not from upstream: memoize the pushed nodes
+		final var themeDefaults = grammar.themeProvider.getDefaults();
+		var transitions = target.transitions;
+		if (transitions == null || transitions.grammar != grammar || transitions.themeDefaults != themeDefaults) {
+			transitions = new Transitions(grammar, themeDefaults, new ConcurrentHashMap<>());
+			target.transitions = transitions;
+		}
+
+		final var children = transitions.children;
+		final var child = children.get(scopeName);
+		if (child != null)
+			return child;
+
+		final var newChild = createChild(target, scopeName, grammar);
+		if (children.size() >= MAX_MEMOIZED_CHILDREN)
+			return newChild;
+		final var existingChild = children.putIfAbsent(scopeName, newChild);
+		return existingChild == null ? newChild : existingChild;
+	}
+
+	private static AttributedScopeStack createChild(
+			final AttributedScopeStack target,
+			final String scopeName,
+			final Grammar grammar) {
 		final var rawMetadata = grammar.getMetadataForScope(scopeName);
 
 		final var newPath = target.scopePath.push(scopeName);
@@ -181,6 +252,32 @@ List<String> getScopeNames() {
 		return this.scopePath.getSegments();
 	}
 
+	/**
+	 * @param injections the injections of a grammar, sorted by priority
+	 *
+	 * @return the given injections whose selectors match the scope names of this node, in the same order
+	 */
+	List<Injection> getMatchingInjections(final List<Injection> injections) {
+		// custom tm4e code - not from upstream
+		final var cached = this.matchingInjections;
+		if (cached != null && cached.injections == injections)
+			return cached.matching;
+
+		final var matching = filterMatchingInjections(injections, getScopeNames());
+		this.matchingInjections = new MatchingInjections(injections, matching);
+		return matching;
+	}
+
+	static List<Injection> filterMatchingInjections(final List<Injection> injections, final List<String> scopeNames) {
+		final var matching = new ArrayList<Injection>(injections.size());
+		for (final var injection : injections) {
+			if (injection.matches(scopeNames)) {
+				matching.add(injection);
+			}
+		}
+		return matching.isEmpty() ? Collections.emptyList() : matching;
+	}
+
 	List<AttributedScopeStack.Frame> getExtensionIfDefined(final @Nullable AttributedScopeStack base) {
 		final var result = new ArrayList<AttributedScopeStack.Frame>();
 		var self = this;
@@ -55,9 +55,15 @@ BasicScopeAttributes getBasicScopeAttributes(final @Nullable String scopeName) {
 			return BasicScopeAttributesProvider._NULL_SCOPE_METADATA;
 		}
 
+		// look up first to avoid allocating the capturing lambda for every call
+		final var cachedAttributes = cache.get(scopeName);
+		if (cachedAttributes != null) {
+			return cachedAttributes;
+		}
+
 		return cache.computeIfAbsent(scopeName, scopeName2 -> {
-			final var languageId = this._scopeToLanguage(scopeName);
-			final var standardTokenType = _toStandardTokenType(scopeName);
+			final var languageId = this._scopeToLanguage(scopeName2);
+			final var standardTokenType = _toStandardTokenType(scopeName2);
 			return new BasicScopeAttributes(languageId, standardTokenType);
 		});
 	}
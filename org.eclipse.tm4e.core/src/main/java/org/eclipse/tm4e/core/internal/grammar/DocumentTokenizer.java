@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.grammar;
+
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.grammar.ITokenizeLineResult;
+
+/**
+ * Tokenizes a whole document by splitting it into chunks that are tokenized speculatively in parallel and afterwards
+ * stitched together in document order.
+ * <p>
+ * All chunks except the first one are tokenized starting from the root state of the grammar. When the real end state
+ * of the preceding chunk is known, the lines of the chunk are re-tokenized with the correct state until the state
+ * before a line equals the speculated one - from there on the speculative results are valid. For most grammars the
+ * state re-synchronizes within a few lines so that the stitching is cheap compared to the parallel tokenization.
+ *
+ * @see Grammar#tokenizeDocument(CharSequence, int)
+ */
+final class DocumentTokenizer {
+
+	/**
+	 * Minimum number of lines per chunk. Smaller chunks mostly add stitching overhead.
+	 */
+	static final int MIN_LINES_PER_CHUNK = 128;
+
+	/**
+	 * Number of chunks per thread. Using more chunks than threads allows to stitch chunks while others are still
+	 * being tokenized speculatively.
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	static List<String> splitLines(final CharSequence text) {
+		final var lines = new ArrayList<String>();
+		final int len = text.length();
+		int lineStart = 0;
+		for (int i = 0; i < len; i++) {
+			final char ch = text.charAt(i);
+			if (ch == '\n' || ch == '\r') {
+				lines.add(text.subSequence(lineStart, i).toString());
+				if (ch == '\r' && i + 1 < len && text.charAt(i + 1) == '\n') {
+					i++;
+				}
+				lineStart = i + 1;
+			}
+		}
+		lines.add(text.subSequence(lineStart, len).toString());
+		return lines;
+	}
+
+	private final Grammar grammar;
+	private final List<String> lines;
+	private final @Nullable ITokenizeLineResult<int[]>[] results;
+
+	@SuppressWarnings("unchecked")
+	DocumentTokenizer(final Grammar grammar, final CharSequence text) {
+		this.grammar = grammar;
+		lines = splitLines(text);
+		results = new @Nullable ITokenizeLineResult[lines.size()];
+	}
+
+	List<ITokenizeLineResult<int[]>> tokenize(final int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be greater than 0 but was " + parallelism);
+
+		final int lineCount = lines.size();
+		final int chunkCount = Math.max(1, Math.min(lineCount / MIN_LINES_PER_CHUNK, parallelism * CHUNKS_PER_THREAD));
+		if (parallelism == 1 || chunkCount == 1) {
+			tokenizeLines(0, lineCount, null);
+			return getResults();
+		}
+
+		final int linesPerChunk = (lineCount + chunkCount - 1) / chunkCount;
+		try (var pool = new ForkJoinPool(parallelism)) {
+			CompletableFuture<?> stitched = CompletableFuture.runAsync(() -> tokenizeLines(0, linesPerChunk, null), pool);
+			for (int chunkStart = linesPerChunk; chunkStart < lineCount; chunkStart += linesPerChunk) {
+				final int start = chunkStart;
+				final int end = Math.min(chunkStart + linesPerChunk, lineCount);
+				final var speculativeStartState = grammar.createRootState();
+				final var speculated = CompletableFuture.runAsync(() -> tokenizeLines(start, end, speculativeStartState), pool);
+				stitched = stitched.runAfterBoth(speculated, () -> stitch(start, end, speculativeStartState));
+			}
+			stitched.join();
+		} catch (final CompletionException ex) {
+			if (ex.getCause() instanceof final RuntimeException cause)
+				throw cause;
+			throw ex;
+		}
+		return getResults();
+	}
+
+	@SuppressWarnings("null")
+	private List<ITokenizeLineResult<int[]>> getResults() {
+		return Arrays.asList(results);
+	}
+
+	private StateStack getEndState(final int lineIndex) {
+		return (StateStack) castNonNull(results[lineIndex]).getRuleStack();
+	}
+
+	/**
+	 * @param startState the state before the first line or null if the first line is the first line of the document
+	 */
+	private void tokenizeLines(final int start, final int end, @Nullable StateStack startState) {
+		var state = startState;
+		for (int i = start; i < end; i++) {
+			final var result = grammar.tokenizeLine2(lines.get(i), state, null);
+			results[i] = result;
+			state = (StateStack) result.getRuleStack();
+		}
+	}
+
+	/**
+	 * Re-tokenizes the speculatively tokenized lines of a chunk based on the real end state of the preceding chunk
+	 * until the state before a line matches the speculated state.
+	 */
+	private void stitch(final int start, final int end, final StateStack speculativeStartState) {
+		var state = getEndState(start - 1);
+		StateStack speculatedState = speculativeStartState;
+		for (int i = start; i < end; i++) {
+			if (speculatedState.equals(state))
+				return;
+			speculatedState = getEndState(i);
+			final var result = grammar.tokenizeLine2(lines.get(i), state, null);
+			results[i] = result;
+			state = (StateStack) result.getRuleStack();
+		}
+	}
+}
@@ -24,9 +24,15 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -40,15 +46,22 @@
 import org.eclipse.tm4e.core.internal.grammar.raw.RawRule;
 import org.eclipse.tm4e.core.internal.grammar.tokenattrs.EncodedTokenAttributes;
 import org.eclipse.tm4e.core.internal.matcher.Matcher;
+import org.eclipse.tm4e.core.internal.oniguruma.OnigRegExp;
+import org.eclipse.tm4e.core.internal.oniguruma.OnigSearchTimeoutException;
 import org.eclipse.tm4e.core.internal.oniguruma.OnigString;
 import org.eclipse.tm4e.core.internal.registry.IGrammarRepository;
 import org.eclipse.tm4e.core.internal.registry.IThemeProvider;
+import org.eclipse.tm4e.core.internal.rule.BeginEndRule;
+import org.eclipse.tm4e.core.internal.rule.BeginWhileRule;
+import org.eclipse.tm4e.core.internal.rule.CaptureRule;
 import org.eclipse.tm4e.core.internal.rule.IRuleFactoryHelper;
 import org.eclipse.tm4e.core.internal.rule.Rule;
 import org.eclipse.tm4e.core.internal.rule.RuleFactory;
 import org.eclipse.tm4e.core.internal.rule.RuleId;
+import org.eclipse.tm4e.core.internal.theme.StyleAttributes;
 import org.eclipse.tm4e.core.internal.utils.ObjectCloner;
 import org.eclipse.tm4e.core.internal.utils.StringUtils;
+import org.eclipse.tm4e.core.internal.utils.TokenizerMetricsCollector;
 
 /**
  * TextMate grammar implementation.
@@ -63,9 +76,49 @@ public final class Grammar implements IGrammar, IRuleFactoryHelper {
 
 	private final String rootScopeName;
 
-	private @Nullable RuleId _rootId;
+	/**
+	 * Lazily initialized by {@link #getRootId()}. The rule graph ({@link #_ruleId2desc}, {@link #includedGrammars},
+	 * {@link #_injections}) is only mutated before this volatile field is written, which safely publishes it to all
+	 * tokenizing threads. Afterwards the rule graph is treated as immutable.
+	 */
+	private volatile @Nullable RuleId _rootId;
 	private int _lastRuleId = 0;
 	private final Map<RuleId, @Nullable Rule> _ruleId2desc = new HashMap<>();
+
+	/**
+	 * A regular expression compiled on first access. Threads requesting the same pattern concurrently, e.g. the
+	 * tokenizer and {@link Grammar#warmUp(Executor)}, wait for the compilation in progress instead of compiling it
+	 * again. It is compiled outside of {@link ConcurrentHashMap#computeIfAbsent}, which would block other patterns
+	 * hashed to the same bin.
+	 */
+	private static final class LazyRegExp {
+		private final String pattern;
+		private volatile @Nullable OnigRegExp regExp;
+
+		LazyRegExp(final String pattern) {
+			this.pattern = pattern;
+		}
+
+		OnigRegExp get() {
+			var regExp = this.regExp;
+			if (regExp == null) {
+				synchronized (this) {
+					regExp = this.regExp;
+					if (regExp == null) {
+						regExp = this.regExp = new OnigRegExp(pattern);
+					}
+				}
+			}
+			return regExp;
+		}
+	}
+
+	/** compiled regular expressions shared by all rules, see {@link #getRegExp(String)} */
+	private final Map<String, LazyRegExp> regExps = new ConcurrentHashMap<>();
+
+	/** number of regex searches per pattern that were aborted because they exceeded the time limit of the line */
+	private final Map<String, LongAdder> searchTimeouts = new ConcurrentHashMap<>();
+
 	private final Map<String /*scopeName*/, IRawGrammar> includedGrammars = new HashMap<>();
 	private final IGrammarRepository _grammarRepository;
 	private final IRawGrammar _grammar;
@@ -77,6 +130,15 @@ public final class Grammar implements IGrammar, IRuleFactoryHelper {
 
 	private final @Nullable BalancedBracketSelectors balancedBracketSelectors;
 
+	/**
+	 * The scope list of the root state, shared by all documents so that they also share the scope lists memoized by
+	 * {@link AttributedScopeStack#pushAttributed(String, Grammar)}. Recreated when the theme changes.
+	 */
+	private volatile @Nullable RootScopeList cachedRootScopeList;
+
+	private record RootScopeList(StyleAttributes themeDefaults, AttributedScopeStack scopeList) {
+	}
+
 	public Grammar(
 			final String rootScopeName,
 			final IRawGrammar grammar,
@@ -206,6 +268,35 @@ public <T extends Rule> T registerRule(final Function<RuleId, T> factory) {
 		return result;
 	}
 
+	@Override
+	public OnigRegExp getRegExp(final String pattern) {
+		var regExp = regExps.get(pattern);
+		if (regExp == null) {
+			regExp = regExps.computeIfAbsent(pattern, LazyRegExp::new);
+		}
+		return regExp.get();
+	}
+
+	/**
+	 * @return the patterns of this grammar's regular expressions with searches aborted due to the time limit of the
+	 *         tokenized line, mapped to the number of aborted searches
+	 */
+	public Map<String, Long> getSearchTimeouts() {
+		final var result = new TreeMap<String, Long>();
+		searchTimeouts.forEach((pattern, count) -> result.put(pattern, count.sum()));
+		return result;
+	}
+
+	void onSearchTimeout(final OnigSearchTimeoutException ex) {
+		final var pattern = ex.getPattern();
+		final var count = searchTimeouts.computeIfAbsent(pattern, unused -> {
+			LOGGER.log(Level.WARNING, () -> "Search of regex pattern \"" + pattern + "\" of grammar " + rootScopeName
+					+ " exceeded the time limit, possibly due to catastrophic backtracking");
+			return new LongAdder();
+		});
+		count.increment();
+	}
+
 	@Override
 	public Rule getRule(final RuleId ruleId) {
 		final var rule = this._ruleId2desc.get(ruleId);
@@ -266,60 +357,158 @@ public ITokenizeLineResult<int[]> tokenizeLine2(final String lineText, final @Nu
 		return _tokenize(lineText, (StateStack) prevState, true, timeLimit);
 	}
 
+	@Override
+	public List<ITokenizeLineResult<int[]>> tokenizeDocument(final CharSequence text, final int parallelism) {
+		return new DocumentTokenizer(this, text).tokenize(parallelism);
+	}
+
+	@Override
+	public Duration warmUp(final Executor executor) {
+		final long start = System.nanoTime();
+		final var rootId = getRootId();
+
+		// the rules the tokenizer scans with, i.e. the rules that can be on the stack and the injected rules
+		final var ruleIds = new LinkedHashSet<RuleId>();
+		ruleIds.add(rootId);
+		for (final var injection : getInjections()) {
+			ruleIds.add(injection.ruleId);
+		}
+		for (final var entry : _ruleId2desc.entrySet()) {
+			final var rule = entry.getValue();
+			if (rule instanceof BeginEndRule || rule instanceof BeginWhileRule) {
+				ruleIds.add(entry.getKey());
+			} else if (rule instanceof final CaptureRule captureRule
+					&& captureRule.retokenizeCapturedWithRuleId.notEquals(RuleId.NO_RULE)) {
+				ruleIds.add(captureRule.retokenizeCapturedWithRuleId);
+			}
+		}
+
+		final var tasks = new ArrayList<CompletableFuture<Void>>(ruleIds.size());
+		for (final var ruleId : ruleIds) {
+			tasks.add(CompletableFuture.runAsync(() -> warmUp(getRule(ruleId)), executor));
+		}
+		CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+
+		final var duration = Duration.ofNanos(System.nanoTime() - start);
+		LOGGER.log(Level.DEBUG, () -> "Warmed up grammar " + rootScopeName + " with " + ruleIds.size() + " rules in "
+				+ duration.toMillis() + "ms");
+		return duration;
+	}
+
+	private void warmUp(final Rule rule) {
+		try {
+			// rules with back-references in their end/while pattern are only compiled with the resolved patterns
+			if (!(rule instanceof final BeginEndRule beginEndRule && beginEndRule.endHasBackReferences)) {
+				for (final boolean allowA : new boolean[] { true, false }) {
+					for (final boolean allowG : new boolean[] { true, false }) {
+						rule.compileAG(this, null, allowA, allowG);
+					}
+				}
+			}
+			if (rule instanceof final BeginWhileRule beginWhileRule && !beginWhileRule.whileHasBackReferences) {
+				for (final boolean allowA : new boolean[] { true, false }) {
+					for (final boolean allowG : new boolean[] { true, false }) {
+						beginWhileRule.compileWhileAG(this, null, allowA, allowG);
+					}
+				}
+			}
+		} catch (final RuntimeException ex) {
+			// the tokenizer reports the error once the rule is actually used
+			LOGGER.log(Level.DEBUG, "Warming up rule " + rule + " of grammar " + rootScopeName + " failed", ex);
+		}
+	}
+
+	/**
+	 * Compiles the rule graph on first access. Only this phase mutates the grammar, all subsequent tokenizations
+	 * only read the rule graph and can run concurrently without locking.
+	 */
+	private RuleId getRootId() {
+		var rootId = this._rootId;
+		if (rootId == null) {
+			synchronized (this) {
+				rootId = this._rootId;
+				if (rootId == null) {
+					rootId = RuleFactory.getCompiledRuleId(
+							this._grammar.getRepository().getSelf(),
+							this,
+							this._grammar.getRepository());
+					// This ensures ids are deterministic, and thus equal in renderer and webworker.
+					this.getInjections();
+					this._rootId = rootId;
+				}
+			}
+		}
+		return rootId;
+	}
+
+	/**
+	 * Creates the state that is active at the beginning of a document, i.e. before the first line.
+	 */
+	StateStack createRootState() {
+		return createRootState(getRootId());
+	}
+
+	private StateStack createRootState(final RuleId rootId) {
+		final var scopeList = getRootScopeList(rootId);
+		return new StateStack(
+				null,
+				rootId,
+				-1,
+				-1,
+				false,
+				null,
+				scopeList,
+				scopeList,
+				null);
+	}
+
+	private AttributedScopeStack getRootScopeList(final RuleId rootId) {
+		final var defaultStyle = this.themeProvider.getDefaults();
+		final var cached = this.cachedRootScopeList;
+		if (cached != null && cached.themeDefaults == defaultStyle)
+			return cached.scopeList;
+
+		final var rawDefaultMetadata = this._basicScopeAttributesProvider.getDefaultAttributes();
+		final int defaultMetadata = EncodedTokenAttributes.set(
+				0,
+				rawDefaultMetadata.languageId,
+				rawDefaultMetadata.tokenType,
+				null,
+				defaultStyle.fontStyle,
+				defaultStyle.foregroundId,
+				defaultStyle.backgroundId);
+
+		final var rootScopeName = this.getRule(rootId).getName(null, null);
+
+		final AttributedScopeStack scopeList;
+		if (rootScopeName != null) {
+			scopeList = AttributedScopeStack.createRootAndLookUpScopeName(
+					rootScopeName,
+					defaultMetadata,
+					this);
+		} else {
+			scopeList = AttributedScopeStack.createRoot(
+					"unknown",
+					defaultMetadata);
+		}
+		this.cachedRootScopeList = new RootScopeList(defaultStyle, scopeList);
+		return scopeList;
+	}
+
 	@SuppressWarnings("unchecked")
-	private synchronized <T> TokenizeLineResult<T> _tokenize(
+	private <T> TokenizeLineResult<T> _tokenize(
 			String lineText,
 			@Nullable StateStack prevState,
 			final boolean emitBinaryTokens,
 			final @Nullable Duration timeLimit) {
-		var rootId = this._rootId;
-		if (rootId == null) {
-			rootId = this._rootId = RuleFactory.getCompiledRuleId(
-					this._grammar.getRepository().getSelf(),
-					this,
-					this._grammar.getRepository());
-			// This ensures ids are deterministic, and thus equal in renderer and webworker.
-			this.getInjections();
-		}
+		final var rootId = getRootId();
+		final var metrics = TokenizerMetricsCollector.getActive();
+		final long start = metrics == null ? 0 : System.nanoTime();
 
 		final boolean isFirstLine;
 		if (prevState == null || prevState == StateStack.NULL) {
 			isFirstLine = true;
-			final var rawDefaultMetadata = this._basicScopeAttributesProvider.getDefaultAttributes();
-			final var defaultStyle = this.themeProvider.getDefaults();
-			final int defaultMetadata = EncodedTokenAttributes.set(
-					0,
-					rawDefaultMetadata.languageId,
-					rawDefaultMetadata.tokenType,
-					null,
-					defaultStyle.fontStyle,
-					defaultStyle.foregroundId,
-					defaultStyle.backgroundId);
-
-			final var rootScopeName = this.getRule(rootId).getName(null, null);
-
-			final AttributedScopeStack scopeList;
-			if (rootScopeName != null) {
-				scopeList = AttributedScopeStack.createRootAndLookUpScopeName(
-						rootScopeName,
-						defaultMetadata,
-						this);
-			} else {
-				scopeList = AttributedScopeStack.createRoot(
-						"unknown",
-						defaultMetadata);
-			}
-
-			prevState = new StateStack(
-					null,
-					rootId,
-					-1,
-					-1,
-					false,
-					null,
-					scopeList,
-					scopeList,
-					null);
+			prevState = createRootState(rootId);
 		} else {
 			isFirstLine = false;
 			prevState.reset();
@@ -329,7 +518,9 @@ private synchronized <T> TokenizeLineResult<T> _tokenize(
 			// Only add \n if the passed lineText didn't have it.
 			lineText += '\n';
 		}
-		final var onigLineText = OnigString.of(lineText);
+		// the time limit of the line also bounds the regex searches on the line, e.g. to abort catastrophic backtracking
+		final var onigLineText = OnigString.of(lineText,
+				timeLimit == null || timeLimit.toMillis() <= 0 ? OnigString.NO_SEARCH_TIMEOUT : timeLimit.toNanos());
 		final int lineLength = onigLineText.content.length();
 		final var lineTokens = new LineTokens(
 				emitBinaryTokens,
@@ -346,6 +537,14 @@ private synchronized <T> TokenizeLineResult<T> _tokenize(
 				true,
 				timeLimit == null ? Duration.ZERO : timeLimit);
 
+		if (metrics != null) {
+			metrics.onLineTokenized(rootScopeName, System.nanoTime() - start, r.stoppedEarly);
+		}
+
+		// custom tm4e code - not from upstream: the positions of the end state are meaningless for the next line, resetting
+		// them now instead of when tokenizing the next line means the returned state is never written to again
+		r.stack.reset();
+
 		return (TokenizeLineResult<T>) new TokenizeLineResult<>(
 				emitBinaryTokens
 						? lineTokens.getBinaryResult(r.stack, lineLength)
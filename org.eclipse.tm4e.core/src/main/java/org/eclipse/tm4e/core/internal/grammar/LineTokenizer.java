@@ -30,6 +30,7 @@
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.internal.oniguruma.OnigCaptureIndex;
 import org.eclipse.tm4e.core.internal.oniguruma.OnigScannerMatch;
+import org.eclipse.tm4e.core.internal.oniguruma.OnigSearchTimeoutException;
 import org.eclipse.tm4e.core.internal.oniguruma.OnigString;
 import org.eclipse.tm4e.core.internal.rule.BeginEndRule;
 import org.eclipse.tm4e.core.internal.rule.BeginWhileRule;
@@ -38,6 +39,7 @@
 import org.eclipse.tm4e.core.internal.rule.MatchRule;
 import org.eclipse.tm4e.core.internal.rule.Rule;
 import org.eclipse.tm4e.core.internal.rule.RuleId;
+import org.eclipse.tm4e.core.internal.utils.TokenizerMetricsCollector;
 
 /**
  * @see <a href=
@@ -92,6 +94,8 @@ private TokenizeStringResult(final StateStack stack, final boolean stoppedEarly)
 	private boolean isFirstLine;
 	private int linePos;
 	private StateStack stack;
+	/** the stack before the current {@link #scanNext()}, which may push frames whose back-references are not resolved yet */
+	private StateStack scannedStack;
 	private final LineTokens lineTokens;
 	private int anchorPosition = -1;
 	private boolean stop;
@@ -104,6 +108,7 @@ private LineTokenizer(final Grammar grammar, final OnigString lineText, final bo
 		this.isFirstLine = isFirstLine;
 		this.linePos = linePos;
 		this.stack = stack;
+		scannedStack = stack;
 		this.lineTokens = lineTokens;
 		this.lineLength = lineText.content.length();
 	}
@@ -127,7 +132,12 @@ private TokenizeStringResult scan(final boolean checkWhileConditions, final long
 					return new TokenizeStringResult(stack, true);
 				}
 			}
+			scannedStack = stack;
 			scanNext(); // potentially modifies linePos && anchorPosition
+
+			// custom tm4e code - not from upstream: once the line made progress, the regex searches may only take the
+			// time that is left of the time limit, e.g. to abort catastrophic backtracking
+			lineText.activateSearchDeadline();
 		}
 
 		return new TokenizeStringResult(stack, false);
@@ -358,7 +368,7 @@ private void scanNext() {
 		final var rule = stack.getRule(grammar);
 		final var ruleScanner = rule.compileAG(grammar, stack.endRule, isFirstLine, linePos == anchorPosition);
 
-		final OnigScannerMatch r = ruleScanner.scanner.findNextMatch(lineText, linePos);
+		final OnigScannerMatch r = findNextMatch(rule, ruleScanner, lineText, linePos);
 
 		if (r != null) {
 			return new MatchResult(ruleScanner.rules[r.index], r.getCaptureIndices());
@@ -410,18 +420,16 @@ private void scanNext() {
 		var bestMatchRuleId = RuleId.END_RULE;
 		var bestMatchResultPriority = 0;
 
-		final List<String> scopes = stack.contentNameScopesList != null ? stack.contentNameScopesList.getScopeNames()
-				: Collections.emptyList();
+		final var contentNameScopesList = stack.contentNameScopesList;
+		final List<Injection> matchingInjections = contentNameScopesList != null
+				? contentNameScopesList.getMatchingInjections(injections)
+				: AttributedScopeStack.filterMatchingInjections(injections, Collections.emptyList());
 
-		for (final Injection injection : injections) {
-			if (!injection.matches(scopes)) {
-				// injection selector doesn't match stack
-				continue;
-			}
+		for (final Injection injection : matchingInjections) {
 
 			final var rule = grammar.getRule(injection.ruleId);
 			final var ruleScanner = rule.compileAG(grammar, null, isFirstLine, linePos == anchorPosition);
-			final var matchResult = ruleScanner.scanner.findNextMatch(lineText, linePos);
+			final var matchResult = findNextMatch(rule, ruleScanner, lineText, linePos);
 			if (matchResult == null) {
 				continue;
 			}
@@ -522,9 +530,10 @@ private void handleCaptures(final Grammar grammar, final OnigString lineText, fi
 				// the capture requires additional matching
 				final var stackClone = stack.push(retokenizeCapturedWithRuleId, captureIndex.start, -1, false, null, nameScopesList,
 						contentNameScopesList, frameGrammarScope);
-				final var onigSubStr = OnigString.of(lineTextContent.substring(0, captureIndex.end));
-				tokenizeString(grammar, onigSubStr, isFirstLine && captureIndex.start == 0, captureIndex.start, stackClone, lineTokens,
-						false, Duration.ZERO /* no time limit */);
+				final var onigSubStr = lineText.prefix(captureIndex.end);
+				// custom tm4e code - not from upstream: an OnigSearchTimeoutException must abort the tokenization of the whole line
+				new LineTokenizer(grammar, onigSubStr, isFirstLine && captureIndex.start == 0, captureIndex.start, stackClone,
+						lineTokens).scan(false, 0 /* no time limit */);
 				continue;
 			}
 
@@ -563,10 +572,13 @@ final class WhileStack {
 			}
 		}
 
-		final var whileRules = new ArrayList<WhileStack>();
+		List<WhileStack> whileRules = Collections.emptyList(); // most grammars have no while rules, so allocate lazily
 		for (StateStack node = stack; node != null; node = node.pop()) {
 			final Rule nodeRule = node.getRule(grammar);
 			if (nodeRule instanceof final BeginWhileRule beginWhileRule) {
+				if (whileRules.isEmpty()) {
+					whileRules = new ArrayList<>();
+				}
 				whileRules.add(new WhileStack(node, beginWhileRule));
 			}
 		}
@@ -574,8 +586,8 @@ final class WhileStack {
 		for (int i = whileRules.size() - 1; i >= 0; i--) {
 			final var whileRule = whileRules.get(i);
 
-			final var ruleScanner = whileRule.rule.compileWhileAG(whileRule.stack.endRule, isFirstLine, anchorPosition == linePos);
-			final var r = ruleScanner.scanner.findNextMatch(lineText, linePos);
+			final var ruleScanner = whileRule.rule.compileWhileAG(grammar, whileRule.stack.endRule, isFirstLine, anchorPosition == linePos);
+			final var r = findNextMatch(whileRule.rule, ruleScanner, lineText, linePos);
 			if (LOGGER.isLoggable(TRACE)) {
 				LOGGER.log(TRACE, "  scanning for while rule");
 				LOGGER.log(TRACE, debugCompiledRuleToString(ruleScanner));
@@ -608,11 +620,37 @@ final class WhileStack {
 		return new WhileCheckResult(stack, linePos, anchorPosition, isFirstLine);
 	}
 
+	/**
+	 * Searches with the scanner of the given rule and records the search time if metrics are enabled.
+	 */
+	private @Nullable OnigScannerMatch findNextMatch(final Rule rule, final CompiledRule ruleScanner, final OnigString lineText,
+			final int linePos) {
+		final var metrics = TokenizerMetricsCollector.getActive();
+		if (metrics == null)
+			return ruleScanner.scanner.findNextMatch(lineText, linePos);
+
+		final long start = System.nanoTime();
+		try {
+			return ruleScanner.scanner.findNextMatch(lineText, linePos);
+		} finally {
+			metrics.onRuleSearched(grammar.getScopeName(), rule.getId().id, rule.getName(null, null), System.nanoTime() - start);
+		}
+	}
+
 	static TokenizeStringResult tokenizeString(final Grammar grammar, final OnigString lineText, final boolean isFirstLine,
 			final int linePos, final StateStack stack, final LineTokens lineTokens, final boolean checkWhileConditions,
 			final Duration timeLimit) {
-		return new LineTokenizer(grammar, lineText, isFirstLine, linePos, stack, lineTokens)
-				.scan(checkWhileConditions, timeLimit.toMillis());
+		final var tokenizer = new LineTokenizer(grammar, lineText, isFirstLine, linePos, stack, lineTokens);
+		try {
+			return tokenizer.scan(checkWhileConditions, timeLimit.toMillis());
+		} catch (final OnigSearchTimeoutException ex) {
+			// custom tm4e code - not from upstream: a regex search exceeded the time limit of the line
+			LOGGER.log(DEBUG, ex.getMessage());
+			grammar.onSearchTimeout(ex);
+			// the search may have timed out in the middle of a scan step, e.g. in the captures of a begin rule whose frame
+			// was already pushed but not completed, so the stack of the last completed step is returned
+			return new TokenizeStringResult(tokenizer.scannedStack, true);
+		}
 	}
 
 	static String debugCompiledRuleToString(final CompiledRule ruleScanner) {
@@ -17,11 +17,10 @@
 package org.eclipse.tm4e.core.internal.grammar;
 
 import static java.lang.System.Logger.Level.TRACE;
-import static org.eclipse.tm4e.core.internal.utils.MoreCollections.*;
 
 import java.lang.System.Logger;
 import java.util.ArrayDeque;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.List;
@@ -113,6 +112,7 @@ public String toString() {
 	private static final Logger LOGGER = System.getLogger(LineTokens.class.getName());
 
 	private static final Deque<Token> EMPTY_DEQUE = new ArrayDeque<>(0);
+	private static final int[] EMPTY_INT_ARRAY = new int[0];
 
 	private final boolean _emitBinaryTokens;
 
@@ -127,9 +127,11 @@ public String toString() {
 	private final Deque<Token> _tokens;
 
 	/**
-	 * used only if `emitBinaryTokens` is true.
+	 * used only if `emitBinaryTokens` is true. Pairs of startIndex and metadata, stored unboxed to avoid allocating an
+	 * Integer per value.
 	 */
-	private final List<Integer> _binaryTokens;
+	private int[] _binaryTokens;
+	private int _binaryTokensCount;
 
 	private int _lastTokenEndIndex = 0;
 	private @Nullable String _currentGrammarScope; // custom tm4e code - not from upstream (for TMPartitioner)
@@ -151,10 +153,10 @@ public String toString() {
 		this._mergeConsecutiveTokensWithEqualMetadata = this._emitBinaryTokens && !StringUtils.containsRTL(lineText);
 		if (this._emitBinaryTokens) {
 			this._tokens = EMPTY_DEQUE;
-			this._binaryTokens = new ArrayList<>();
+			this._binaryTokens = new int[16];
 		} else {
 			this._tokens = new ArrayDeque<>();
-			this._binaryTokens = Collections.emptyList();
+			this._binaryTokens = EMPTY_INT_ARRAY;
 		}
 		this.balancedBracketSelectors = balancedBracketSelectors;
 	}
@@ -210,8 +212,8 @@ void produceFromScopes(final @Nullable AttributedScopeStack scopesList, final in
 						0);
 			}
 
-			if (this._mergeConsecutiveTokensWithEqualMetadata && !this._binaryTokens.isEmpty()
-					&& getLastElement(this._binaryTokens) == metadata) {
+			if (this._mergeConsecutiveTokensWithEqualMetadata && this._binaryTokensCount > 0
+					&& this._binaryTokens[this._binaryTokensCount - 1] == metadata) {
 				// no need to push a token with the same metadata
 				this._lastTokenEndIndex = endIndex;
 				return;
@@ -228,8 +230,11 @@ && getLastElement(this._binaryTokens) == metadata) {
 				}
 			}
 
-			this._binaryTokens.add(this._lastTokenEndIndex);
-			this._binaryTokens.add(metadata);
+			if (this._binaryTokensCount + 2 > this._binaryTokens.length) {
+				this._binaryTokens = Arrays.copyOf(this._binaryTokens, this._binaryTokens.length * 2);
+			}
+			this._binaryTokens[this._binaryTokensCount++] = this._lastTokenEndIndex;
+			this._binaryTokens[this._binaryTokensCount++] = metadata;
 
 			this._lastTokenEndIndex = endIndex;
 			return;
@@ -268,18 +273,17 @@ IToken[] getResult(final StateStack stack, final int lineLength) {
 	}
 
 	int[] getBinaryResult(final StateStack stack, final int lineLength) {
-		if (!this._binaryTokens.isEmpty() && getElementAt(this._binaryTokens, -2) == lineLength - 1) {
+		if (this._binaryTokensCount > 0 && this._binaryTokens[this._binaryTokensCount - 2] == lineLength - 1) {
 			// pop produced token for newline
-			removeLastElement(this._binaryTokens);
-			removeLastElement(this._binaryTokens);
+			this._binaryTokensCount -= 2;
 		}
 
-		if (this._binaryTokens.isEmpty()) {
+		if (this._binaryTokensCount == 0) {
 			this._lastTokenEndIndex = -1;
 			this.produce(stack, lineLength);
-			this._binaryTokens.set(_binaryTokens.size() - 2, 0);
+			this._binaryTokens[this._binaryTokensCount - 2] = 0;
 		}
 
-		return _binaryTokens.stream().mapToInt(Integer::intValue).toArray();
+		return Arrays.copyOf(this._binaryTokens, this._binaryTokensCount);
 	}
 }
@@ -51,6 +51,12 @@ public static ScopeStack from(final String first) {
 	public final @Nullable ScopeStack parent;
 	public final String scopeName;
 
+	/**
+	 * Lazily computed, immutable result of {@link #getSegments()}. Tokens produced for the same scope stack share the
+	 * list instance instead of each allocating a new one.
+	 */
+	private @Nullable List<String> segments;
+
 	ScopeStack(final @Nullable ScopeStack parent, final String scopeName) {
 		this.parent = parent;
 		this.scopeName = scopeName;
@@ -60,16 +66,25 @@ ScopeStack push(final String scopeName) {
 		return new ScopeStack(this, scopeName);
 	}
 
+	/**
+	 * @return an unmodifiable list of the scope names from the root to this scope
+	 */
 	public List<String> getSegments() {
-		@Nullable
-		ScopeStack item = this;
-		final var result = new ArrayList<String>();
-		while (item != null) {
-			result.add(item.scopeName);
-			item = item.parent;
+		final var segments = this.segments;
+		if (segments != null)
+			return segments;
+
+		int depth = 0;
+		for (ScopeStack item = this; item != null; item = item.parent) {
+			depth++;
 		}
-		Collections.reverse(result);
-		return result;
+		final var names = new String[depth];
+		for (ScopeStack item = this; item != null; item = item.parent) {
+			names[--depth] = item.scopeName;
+		}
+		final var newSegments = List.of(names);
+		this.segments = newSegments;
+		return newSegments;
 	}
 
 	@Override
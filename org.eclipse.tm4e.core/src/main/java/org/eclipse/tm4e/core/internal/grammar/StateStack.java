@@ -117,6 +117,15 @@ record Frame(
 	 */
 	final @Nullable String grammarScope; // custom tm4e code - not from upstream (for TMPartitioner)
 
+	/**
+	 * Precomputed hash of the fields compared by {@link #_structuralEquals(StateStack, StateStack)}, i.e. of this and
+	 * all parent states.
+	 */
+	private final int structuralHashCode;
+
+	/** precomputed, since states are compared for every tokenized line */
+	private final int hashCode;
+
 	StateStack(
 			final @Nullable StateStack parent,
 			final RuleId ruleId,
@@ -138,6 +147,12 @@ record Frame(
 		this.nameScopesList = nameScopesList;
 		this.contentNameScopesList = contentNameScopesList;
 		this.grammarScope = grammarScope; // custom tm4e code - not from upstream
+
+		int structuralHash = parent == null ? 1 : parent.structuralHashCode;
+		structuralHash = 31 * structuralHash + ruleId.hashCode();
+		structuralHash = 31 * structuralHash + Objects.hashCode(endRule);
+		structuralHashCode = 31 * structuralHash + depth;
+		hashCode = 31 * structuralHashCode + Objects.hashCode(contentNameScopesList);
 	}
 
 	@Override
@@ -152,6 +167,9 @@ private static boolean _equals(final StateStack a, final StateStack b) {
 		if (a == b) {
 			return true;
 		}
+		if (a.hashCode != b.hashCode) { // custom tm4e code - not from upstream
+			return false;
+		}
 		if (!_structuralEquals(a, b)) {
 			return false;
 		}
@@ -179,7 +197,8 @@ private static boolean _structuralEquals(
 				return false;
 			}
 
-			if (a.depth != b.depth
+			if (a.structuralHashCode != b.structuralHashCode // custom tm4e code - not from upstream
+					|| a.depth != b.depth
 					|| !Objects.equals(a.ruleId, b.ruleId)
 					|| !Objects.equals(a.endRule, b.endRule)) {
 				return false;
@@ -198,18 +217,23 @@ public int getDepth() {
 
 	@Override
 	public int hashCode() {
-		int result = 31 + Objects.hashCode(contentNameScopesList);
-		result = 31 * result + Objects.hashCode(endRule);
-		result = 31 * result + Objects.hashCode(parent);
-		result = 31 * result + Objects.hashCode(ruleId);
-		return 31 * result + depth;
+		return hashCode;
 	}
 
+	/**
+	 * Resets the positions of this state and its parents, which are only relevant while tokenizing a line.
+	 * <p>
+	 * custom tm4e code - not from upstream: the grammar resets the end state of a line before returning it and resetting
+	 * a state that is already reset does not write to it. So states are read-only once returned by the grammar and can be
+	 * shared between documents and threads, e.g. by a TokenizationCache.
+	 */
 	void reset() {
 		StateStack el = this;
 		while (el != null) {
-			el._enterPos = -1;
-			el._anchorPos = -1;
+			if (el._enterPos != -1 || el._anchorPos != -1) {
+				el._enterPos = -1;
+				el._anchorPos = -1;
+			}
 			el = el.parent;
 		}
 	}
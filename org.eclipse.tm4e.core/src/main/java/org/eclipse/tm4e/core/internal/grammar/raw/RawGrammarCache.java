@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.grammar.raw;
+
+import static java.lang.System.Logger.Level.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.System.Logger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.registry.IGrammarSource;
+
+/**
+ * Persistent on-disk cache of parsed TextMate grammars.
+ * <p>
+ * For each grammar source a versioned binary snapshot of the parsed {@link RawGrammar} is stored in the cache
+ * directory. A snapshot is used as long as the last-modified timestamp of the source is unchanged. If the timestamp
+ * changed or is not available, the content hash of the source decides whether the snapshot can still be used, so
+ * only grammars whose content actually changed are parsed again.
+ * <p>
+ * Only the raw grammar is cached. The rule graph and the compiled regular expressions depend on the registry the
+ * grammar is added to and are still built lazily on first tokenization.
+ * <p>
+ * Snapshot files are only ever read from the configured cache directory and deserialization is restricted to the
+ * raw grammar classes. Unreadable or outdated snapshots are silently replaced.
+ */
+public final class RawGrammarCache {
+
+	private static final Logger LOGGER = System.getLogger(RawGrammarCache.class.getName());
+
+	/**
+	 * Must be increased whenever the serialized form of the raw grammar classes or the snapshot layout changes.
+	 */
+	private static final int FORMAT_VERSION = 1;
+	private static final int MAGIC = 0x544D4743; // "TMGC"
+	private static final String SNAPSHOT_FILE_EXTENSION = ".tmgrammar";
+
+	private static final ObjectInputFilter SNAPSHOT_FILTER = ObjectInputFilter.Config.createFilter(
+			RawGrammar.class.getPackageName() + ".*;"
+					+ "org.eclipse.tm4e.core.internal.parser.*;"
+					+ "java.lang.*;java.util.*;!*");
+
+	/**
+	 * @param grammarData the snapshot file content, the serialized grammar starts at <code>grammarDataOffset</code>
+	 */
+	private record Snapshot(long lastModified, byte[] contentHash, byte[] grammarData, int grammarDataOffset) {
+	}
+
+	private static byte[] hash(final String content) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+		} catch (final NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private final Path cacheDir;
+
+	public RawGrammarCache(final Path cacheDir) {
+		this.cacheDir = cacheDir;
+	}
+
+	/**
+	 * Returns the raw grammar of the given source, either from a valid snapshot or by parsing the source, in which case
+	 * a new snapshot is written.
+	 */
+	public RawGrammar readGrammar(final IGrammarSource source) throws Exception {
+		final Path snapshotFile = getSnapshotFile(source);
+		final long lastModified = source.getLastModified();
+		final var snapshot = loadSnapshot(snapshotFile);
+
+		if (snapshot != null && lastModified > 0 && snapshot.lastModified == lastModified) {
+			final var grammar = deserialize(snapshotFile, snapshot);
+			if (grammar != null)
+				return grammar;
+		}
+
+		final String content;
+		try (var reader = source.getReader()) {
+			final var writer = new StringWriter();
+			reader.transferTo(writer);
+			content = writer.toString();
+		}
+		final byte[] contentHash = hash(content);
+
+		if (snapshot != null && Arrays.equals(snapshot.contentHash, contentHash)) {
+			final var grammar = deserialize(snapshotFile, snapshot);
+			if (grammar != null) {
+				if (snapshot.lastModified != lastModified) {
+					saveSnapshot(snapshotFile, lastModified, contentHash, grammar);
+				}
+				return grammar;
+			}
+		}
+
+		final var grammar = RawGrammarReader.readGrammar(new StringReader(content), source.getContentType());
+		// the snapshot must be written before the grammar is handed out, since registering a grammar modifies it
+		saveSnapshot(snapshotFile, lastModified, contentHash, grammar);
+		return grammar;
+	}
+
+	private Path getSnapshotFile(final IGrammarSource source) {
+		final byte[] uriHash = hash(source.getURI().toString());
+		return cacheDir.resolve(HexFormat.of().formatHex(uriHash) + SNAPSHOT_FILE_EXTENSION);
+	}
+
+	private @Nullable Snapshot loadSnapshot(final Path snapshotFile) {
+		if (!Files.isRegularFile(snapshotFile))
+			return null;
+
+		// the file is read into the heap instead of being memory-mapped, since a mapped file cannot be replaced on
+		// Windows until the mapping is garbage collected, i.e. an outdated snapshot could not be overwritten
+		try {
+			final byte[] bytes = Files.readAllBytes(snapshotFile);
+			final var buffer = ByteBuffer.wrap(bytes);
+			if (buffer.remaining() < 20 || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION)
+				return null;
+			final long lastModified = buffer.getLong();
+			final var contentHash = new byte[buffer.getInt()];
+			buffer.get(contentHash);
+			return new Snapshot(lastModified, contentHash, bytes, buffer.position());
+		} catch (final IOException | RuntimeException ex) {
+			LOGGER.log(DEBUG, "Cannot read grammar snapshot [{0}]: {1}", snapshotFile, ex);
+			return null;
+		}
+	}
+
+	private @Nullable RawGrammar deserialize(final Path snapshotFile, final Snapshot snapshot) {
+		try (var in = new ObjectInputStream(new ByteArrayInputStream(snapshot.grammarData,
+				snapshot.grammarDataOffset, snapshot.grammarData.length - snapshot.grammarDataOffset))) {
+			in.setObjectInputFilter(SNAPSHOT_FILTER);
+			return (RawGrammar) in.readObject();
+		} catch (final Exception ex) {
+			LOGGER.log(DEBUG, "Cannot deserialize grammar snapshot [{0}]: {1}", snapshotFile, ex);
+			return null;
+		}
+	}
+
+	private void saveSnapshot(final Path snapshotFile, final long lastModified, final byte[] contentHash, final RawGrammar grammar) {
+		try {
+			final var bytes = new ByteArrayOutputStream();
+			try (var out = new DataOutputStream(bytes)) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeLong(lastModified);
+				out.writeInt(contentHash.length);
+				out.write(contentHash);
+				try (var objOut = new ObjectOutputStream(out)) {
+					objOut.writeObject(grammar);
+				}
+			}
+
+			Files.createDirectories(cacheDir);
+			final Path tmpFile = Files.createTempFile(cacheDir, snapshotFile.getFileName().toString(), ".tmp");
+			try {
+				Files.write(tmpFile, bytes.toByteArray());
+				Files.move(tmpFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tmpFile);
+			}
+		} catch (final IOException ex) {
+			LOGGER.log(WARNING, "Cannot write grammar snapshot [{0}]: {1}", snapshotFile, ex);
+		}
+	}
+}
@@ -16,6 +16,7 @@
  */
 package org.eclipse.tm4e.core.internal.grammar.raw;
 
+import java.io.Reader;
 import java.util.List;
 
 import org.eclipse.tm4e.core.internal.parser.PropertySettable;
@@ -25,6 +26,7 @@
 import org.eclipse.tm4e.core.internal.parser.TMParserPList;
 import org.eclipse.tm4e.core.internal.parser.TMParserYAML;
 import org.eclipse.tm4e.core.registry.IGrammarSource;
+import org.eclipse.tm4e.core.registry.IGrammarSource.ContentType;
 
 /**
  * TextMate Grammar reader utilities.
@@ -51,14 +53,18 @@ public PropertySettable<?> createChild(final TMParser.PropertyPath path, final C
 
 	public static RawGrammar readGrammar(final IGrammarSource source) throws Exception {
 		try (var reader = source.getReader()) {
-			return switch (source.getContentType()) {
-				case JSON -> TMParserJSON.INSTANCE.parse(reader, OBJECT_FACTORY);
-				case YAML -> TMParserYAML.INSTANCE.parse(reader, OBJECT_FACTORY);
-				default -> TMParserPList.INSTANCE.parse(reader, OBJECT_FACTORY);
-			};
+			return readGrammar(reader, source.getContentType());
 		}
 	}
 
+	public static RawGrammar readGrammar(final Reader reader, final ContentType contentType) throws Exception {
+		return switch (contentType) {
+			case JSON -> TMParserJSON.INSTANCE.parse(reader, OBJECT_FACTORY);
+			case YAML -> TMParserYAML.INSTANCE.parse(reader, OBJECT_FACTORY);
+			default -> TMParserPList.INSTANCE.parse(reader, OBJECT_FACTORY);
+		};
+	}
+
 	/**
 	 * methods should be accessed statically
 	 */
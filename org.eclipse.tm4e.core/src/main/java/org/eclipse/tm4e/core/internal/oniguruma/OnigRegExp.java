@@ -25,11 +25,11 @@
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.TMException;
 import org.eclipse.tm4e.core.internal.utils.StringUtils;
+import org.eclipse.tm4e.core.internal.utils.TokenizerMetricsCollector;
 import org.jcodings.specific.NonStrictUTF8Encoding;
 import org.joni.Matcher;
 import org.joni.Option;
 import org.joni.Regex;
-import org.joni.Region;
 import org.joni.Syntax;
 import org.joni.WarnCallback;
 import org.joni.exception.SyntaxException;
@@ -46,15 +46,14 @@ public final class OnigRegExp {
 	 */
 	private static final WarnCallback LOGGER_WARN_CALLBACK = message -> LOGGER.log(Level.WARNING, message);
 
-	private @Nullable OnigString lastSearchString;
-	private int lastSearchPosition = -1;
-	private @Nullable OnigResult lastSearchResult;
-
 	private final String pattern;
 	private final Regex regex;
 
 	private final boolean hasGAnchor;
 
+	/** the identity hash code of this object, cached as key of {@link OnigString.SearchCache} */
+	final int identityHash = System.identityHashCode(this);
+
 	/**
 	 * @throws TMException if parsing fails
 	 */
@@ -237,34 +236,100 @@ private boolean isFixedLength(final String body) {
 	}
 
 	/**
+	 * This method is thread-safe. The result of the last search is cached in the given {@link OnigString}
+	 * (and not in this instance) so that compiled regular expressions can be shared by concurrently tokenizing threads.
+	 *
 	 * @return null if not found
+	 *
+	 * @throws OnigSearchTimeoutException if the search exceeds the time limit of the string
 	 */
 	public @Nullable OnigResult search(final OnigString str, final int startPosition) {
+		return search(str, startPosition, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Searches for the left-most match starting at a byte position in the range [startPosition, searchLimit).
+	 * <p>
+	 * A bounded search lets Joni skip start positions which cannot produce a better match than one already found by
+	 * another regular expression. The match found at a position is the same as with an unbounded search.
+	 *
+	 * @param searchLimit exclusive upper bound of the match start position, values greater than or equal to the length
+	 *            of the string result in an unbounded search
+	 *
+	 * @return null if not found
+	 *
+	 * @throws OnigSearchTimeoutException if the search exceeds the time limit of the string
+	 */
+	@Nullable
+	OnigResult search(final OnigString str, final int startPosition, final int searchLimit) {
+		final int limit = searchLimit >= str.bytesCount ? Integer.MAX_VALUE : searchLimit;
+
+		final var searchCache = str.getSearchCache(1);
+		final int index = searchCache.indexOf(this);
 		if (hasGAnchor)
 			// Should not use caching, because the regular expression
 			// targets the current search position (\G)
-			return search(str.bytesUTF8, startPosition, str.bytesCount);
+			return search(searchCache, index, str, startPosition, limit);
 
-		final var lastSearchResult0 = lastSearchResult;
-		if (lastSearchString == str
-				&& lastSearchPosition <= startPosition
-				&& (lastSearchResult0 == null || lastSearchResult0.locationAt(0) >= startPosition))
-			return lastSearchResult0;
+		final var metrics = TokenizerMetricsCollector.getActive();
+		final int lastSearchPosition = searchCache.positions[index];
+		if (lastSearchPosition > -1 && lastSearchPosition <= startPosition) {
+			final var lastSearchResult = searchCache.results[index];
+			if (lastSearchResult == null) {
+				// no match starts in [lastSearchPosition, lastSearchLimit)
+				if (limit <= searchCache.limits[index]) {
+					if (metrics != null) {
+						metrics.regExpSearchCache.record(true);
+					}
+					return null;
+				}
+			} else {
+				// the cached result is the left-most match at or after lastSearchPosition
+				final int location = lastSearchResult.locationAt(0);
+				if (location >= startPosition) {
+					if (metrics != null) {
+						metrics.regExpSearchCache.record(true);
+					}
+					return location < limit ? lastSearchResult : null;
+				}
+			}
+		}
+		if (metrics != null) {
+			metrics.regExpSearchCache.record(false);
+		}
 
-		lastSearchString = str;
-		lastSearchPosition = startPosition;
-		lastSearchResult = search(str.bytesUTF8, startPosition, str.bytesCount);
-		return lastSearchResult;
+		final var result = search(searchCache, index, str, startPosition, limit);
+		searchCache.positions[index] = startPosition;
+		searchCache.limits[index] = limit;
+		searchCache.results[index] = result;
+		return result;
 	}
 
-	private @Nullable OnigResult search(final byte[] data, final int startPosition, final int end) {
-		final Matcher matcher = regex.matcher(data);
-		final int status = matcher.search(startPosition, end, Option.DEFAULT);
-		if (status != Matcher.FAILED) {
-			final Region region = matcher.getEagerRegion();
-			return new OnigResult(region, -1);
+	private @Nullable OnigResult search(final OnigString.SearchCache searchCache, final int index, final OnigString str,
+			final int startPosition, final int searchLimit) {
+		// each search may only take the time that is left of the time limit of the whole string
+		final long timeoutNanos = str.getRemainingSearchNanos();
+		if (timeoutNanos == 0)
+			throw new OnigSearchTimeoutException(pattern);
+
+		// a Joni matcher is bound to the searched bytes, so it is reused for all searches of this regex on the same string
+		final var cachedMatcher = searchCache.matchers[index];
+		final Matcher matcher;
+		if (cachedMatcher == null) {
+			matcher = regex.matcher(str.bytesUTF8, 0, str.bytesCount, timeoutNanos);
+			searchCache.matchers[index] = matcher;
+		} else {
+			matcher = cachedMatcher;
+			matcher.setTimeout(timeoutNanos);
 		}
-		return null;
+		// the search range of Joni is exclusive, except when it equals the end of the string
+		final int status = matcher.search(startPosition, Math.min(str.bytesCount, searchLimit), Option.DEFAULT);
+		if (status == Matcher.FAILED)
+			return null;
+		if (status == Matcher.INTERRUPTED)
+			throw new OnigSearchTimeoutException(pattern);
+		// the region of the matcher is overwritten by the next search, hence the offsets are copied
+		return OnigResult.of(matcher);
 	}
 
 	public String pattern() {
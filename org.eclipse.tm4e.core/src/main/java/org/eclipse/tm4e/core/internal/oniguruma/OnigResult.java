@@ -16,6 +16,9 @@
  */
 package org.eclipse.tm4e.core.internal.oniguruma;
 
+import java.util.Arrays;
+
+import org.joni.Matcher;
 import org.joni.Region;
 
 /**
@@ -24,11 +27,34 @@
  */
 public final class OnigResult {
 
+	/**
+	 * Creates a result from the last successful search of the given matcher.
+	 * <p>
+	 * The byte offsets are copied since Joni reuses the region of a matcher for subsequent searches.
+	 */
+	static OnigResult of(final Matcher matcher) {
+		final Region region = matcher.getRegion();
+		if (region == null)
+			return new OnigResult(new int[] { matcher.getBegin(), matcher.getEnd() }, -1);
+
+		final int count = region.getNumRegs();
+		final var offsets = new int[count * 2];
+		for (int i = 0; i < count; i++) {
+			offsets[i * 2] = region.getBeg(i);
+			offsets[i * 2 + 1] = region.getEnd(i);
+		}
+		return new OnigResult(offsets, -1);
+	}
+
 	private int indexInScanner;
-	private final Region region;
 
-	OnigResult(final Region region, final int indexInScanner) {
-		this.region = region;
+	/**
+	 * Start and end byte offsets of the captures, i.e. [beg0, end0, beg1, end1, ...]
+	 */
+	private final int[] offsets;
+
+	private OnigResult(final int[] offsets, final int indexInScanner) {
+		this.offsets = offsets;
 		this.indexInScanner = indexInScanner;
 	}
 
@@ -41,21 +67,21 @@ void setIndex(final int index) {
 	}
 
 	public int locationAt(final int index) {
-		final int bytes = region.getBeg(index);
+		final int bytes = offsets[index * 2];
 		return bytes > 0 ? bytes : 0;
 	}
 
 	public int count() {
-		return region.getNumRegs();
+		return offsets.length / 2;
 	}
 
 	public int lengthAt(final int index) {
-		final int bytes = region.getEnd(index) - region.getBeg(index);
+		final int bytes = offsets[index * 2 + 1] - offsets[index * 2];
 		return bytes > 0 ? bytes : 0;
 	}
 
 	@Override
 	public String toString() {
-		return "OnigResult [indexInScanner=" + indexInScanner + ", region=" + region + "]";
+		return "OnigResult [indexInScanner=" + indexInScanner + ", offsets=" + Arrays.toString(offsets) + "]";
 	}
 }
@@ -29,7 +29,18 @@ public final class OnigScanner {
 	private final OnigSearcher searcher;
 
 	public OnigScanner(final List<String> regexps) {
-		searcher = new OnigSearcher(regexps);
+		this(new OnigSearcher(regexps.stream().map(OnigRegExp::new).toList()));
+	}
+
+	/**
+	 * @param regExps already compiled regular expressions, which may be shared with other scanners
+	 */
+	public static OnigScanner of(final List<OnigRegExp> regExps) {
+		return new OnigScanner(new OnigSearcher(regExps));
+	}
+
+	private OnigScanner(final OnigSearcher searcher) {
+		this.searcher = searcher;
 	}
 
 	public @Nullable OnigScannerMatch findNextMatch(final OnigString source, final int startPosition) {
@@ -0,0 +1,36 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.oniguruma;
+
+import org.eclipse.tm4e.core.TMException;
+
+/**
+ * Thrown if a regex search exceeds the time limit of the searched string, e.g. due to catastrophic backtracking.
+ *
+ * @see OnigString#getRemainingSearchNanos()
+ */
+public final class OnigSearchTimeoutException extends TMException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String pattern;
+
+	public OnigSearchTimeoutException(final String pattern) {
+		super("Search of regex pattern \"" + pattern + "\" exceeded the time limit");
+		this.pattern = pattern;
+	}
+
+	/**
+	 * @return the pattern of the regular expression whose search was aborted
+	 */
+	public String getPattern() {
+		return pattern;
+	}
+}
@@ -19,6 +19,7 @@
 import java.util.List;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.internal.utils.TokenizerMetricsCollector;
 
 /**
  * @see <a href="https://github.com/atom/node-oniguruma/blob/master/src/onig-searcher.cc">
@@ -28,20 +29,32 @@ final class OnigSearcher {
 
 	private final List<OnigRegExp> regExps;
 
-	OnigSearcher(final List<String> regExps) {
-		this.regExps = regExps.stream().map(OnigRegExp::new).toList();
+	OnigSearcher(final List<OnigRegExp> regExps) {
+		this.regExps = regExps;
 	}
 
 	@Nullable
 	OnigResult search(final OnigString source, final int charOffset) {
 		final int byteOffset = source.getByteIndexOfChar(charOffset);
+		// sizes the search cache of the string for the regular expressions of the first searcher searching it
+		source.getSearchCache(regExps.size());
 
 		int bestLocation = 0;
 		OnigResult bestResult = null;
 		int index = 0;
 
+		final var metrics = TokenizerMetricsCollector.getActive();
 		for (final OnigRegExp regExp : regExps) {
-			final OnigResult result = regExp.search(source, byteOffset);
+			// only a match starting before the best location found so far can replace the best result
+			final int searchLimit = bestResult == null ? Integer.MAX_VALUE : bestLocation;
+			final OnigResult result;
+			if (metrics == null) {
+				result = regExp.search(source, byteOffset, searchLimit);
+			} else {
+				final long start = System.nanoTime();
+				result = regExp.search(source, byteOffset, searchLimit);
+				metrics.onRegExpSearched(regExp.pattern(), System.nanoTime() - start);
+			}
 			if (result != null && result.count() > 0) {
 				final int location = result.locationAt(0);
 
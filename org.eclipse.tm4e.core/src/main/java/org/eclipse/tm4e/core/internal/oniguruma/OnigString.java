@@ -18,11 +18,12 @@
  */
 package org.eclipse.tm4e.core.internal.oniguruma;
 
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNonNull;
+
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
 
 import org.eclipse.jdt.annotation.Nullable;
-import org.jcodings.specific.UTF8Encoding;
+import org.joni.Matcher;
 
 /**
  * Oniguruma string.
@@ -39,18 +40,40 @@ public abstract class OnigString {
 	static final class MultiByteString extends OnigString {
 
 		/**
-		 * For each byte holds the index of the char to which the byte belongs.
-		 * E.g. in case of <code>byteToCharOffsets[100] == 60 && byteToCharOffsets[101] == 60</code>,
-		 * the bytes at indexes 100 and 101 both belong to the same multi-byte character at index 60.
+		 * Number of leading chars that are encoded as single bytes, i.e. for which the char index and the byte index
+		 * are equal. Only the offsets of the following chars and bytes need to be indexed. Computed on first use.
 		 */
-		private int @Nullable [] byteToCharOffsets;
+		private int singleBytePrefixLength = -1;
 		private final int lastCharIndex;
 
-		private MultiByteString(final String str, final byte[] bytesUTF8) {
-			super(str, bytesUTF8);
+		/**
+		 * For each char starting at {@link #singleBytePrefixLength} holds the index of its first byte, plus one entry
+		 * for the end of the string. The low surrogate of a supplementary character maps to the first byte of the
+		 * character.
+		 */
+		private int @Nullable [] charToByteOffsets;
+
+		/**
+		 * For each byte starting at {@link #singleBytePrefixLength} holds the index of the char to which the byte
+		 * belongs, i.e. all bytes of a multi-byte character hold the index of its first char.
+		 */
+		private int @Nullable [] byteToCharOffsets;
+
+		private MultiByteString(final String str, final byte[] bytesUTF8, final int bytesCount, final @Nullable SearchBudget searchBudget) {
+			super(str, bytesUTF8, bytesCount, searchBudget);
 			lastCharIndex = str.length() - 1;
 		}
 
+		/**
+		 * Creates a prefix of the given string that shares the UTF-8 bytes and the offset index of the given string.
+		 */
+		private MultiByteString(final MultiByteString str, final int charsCount, final int bytesCount) {
+			this(str.content.substring(0, charsCount), str.bytesUTF8, bytesCount, str.searchBudget);
+			singleBytePrefixLength = str.singleBytePrefixLength;
+			charToByteOffsets = str.charToByteOffsets;
+			byteToCharOffsets = str.byteToCharOffsets;
+		}
+
 		@Override
 		int getByteIndexOfChar(final int charIndex) {
 			if (charIndex == lastCharIndex + 1) {
@@ -61,36 +84,17 @@ int getByteIndexOfChar(final int charIndex) {
 			if (charIndex < 0 || charIndex > lastCharIndex) {
 				throwOutOfBoundsException("Char", charIndex, 0, lastCharIndex);
 			}
-			if (charIndex == 0) {
-				return 0;
-			}
-
-			final int[] byteToCharOffsets = getByteToCharOffsets();
-			int byteIndex = Arrays.binarySearch(byteToCharOffsets, charIndex);
-			while (byteIndex > 0 && byteToCharOffsets[byteIndex - 1] == charIndex) {
-				byteIndex--;
+			final int prefixLength = getSingleBytePrefixLength();
+			if (charIndex < prefixLength) {
+				return charIndex;
 			}
-			return byteIndex;
-		}
 
-		private int[] getByteToCharOffsets() {
-			int[] offsets = byteToCharOffsets;
+			var offsets = charToByteOffsets;
 			if (offsets == null) {
-				offsets = new int[bytesCount];
-				int charIndex = 0;
-				int byteIndex = 0;
-				final int maxByteIndex = bytesCount - 1;
-				while (byteIndex <= maxByteIndex) {
-					final int charLenInBytes = UTF8Encoding.INSTANCE.length(bytesUTF8, byteIndex, bytesCount);
-					// same as "Arrays.fill(offsets, byteIndex, byteIndex + charLenInBytes, charIndex)" but faster
-					for (final int l = byteIndex + charLenInBytes; byteIndex < l; byteIndex++) {
-						offsets[byteIndex] = charIndex;
-					}
-					charIndex++;
-				}
-				byteToCharOffsets = offsets;
+				computeOffsets();
+				offsets = castNonNull(charToByteOffsets);
 			}
-			return offsets;
+			return offsets[charIndex - prefixLength];
 		}
 
 		@Override
@@ -103,11 +107,86 @@ int getCharIndexOfByte(final int byteIndex) {
 			if (byteIndex < 0 || byteIndex >= bytesCount) {
 				throwOutOfBoundsException("Byte", byteIndex, 0, bytesCount - 1);
 			}
-			if (byteIndex == 0) {
-				return 0;
+			final int prefixLength = getSingleBytePrefixLength();
+			if (byteIndex < prefixLength) {
+				return byteIndex;
+			}
+
+			var offsets = byteToCharOffsets;
+			if (offsets == null) {
+				computeOffsets();
+				offsets = castNonNull(byteToCharOffsets);
+			}
+			return offsets[byteIndex - prefixLength];
+		}
+
+		private int getSingleBytePrefixLength() {
+			int prefixLength = singleBytePrefixLength;
+			if (prefixLength < 0) {
+				prefixLength = 0;
+				while (prefixLength < bytesCount && bytesUTF8[prefixLength] >= 0) {
+					prefixLength++;
+				}
+				singleBytePrefixLength = prefixLength;
+			}
+			return prefixLength;
+		}
+
+		/**
+		 * Computes both offset arrays in one pass over the chars following the single-byte prefix, using the same
+		 * encoding rules as {@link String#getBytes(java.nio.charset.Charset)} with UTF-8.
+		 */
+		private void computeOffsets() {
+			final String str = content;
+			final int charsCount = str.length();
+			final int prefixLength = getSingleBytePrefixLength();
+			final var charToByte = new int[charsCount - prefixLength + 1];
+			final var byteToChar = new int[bytesCount - prefixLength];
+
+			int byteIndex = prefixLength;
+			int charIndex = prefixLength;
+			while (charIndex < charsCount) {
+				final char ch = str.charAt(charIndex);
+				int charLenInChars = 1;
+				final int charLenInBytes;
+				if (ch < 0x80) {
+					charLenInBytes = 1;
+				} else if (ch < 0x800) {
+					charLenInBytes = 2;
+				} else if (Character.isHighSurrogate(ch) && charIndex + 1 < charsCount
+						&& Character.isLowSurrogate(str.charAt(charIndex + 1))) {
+					// supplementary character, i.e. two chars encoded as four bytes
+					charLenInChars = 2;
+					charLenInBytes = 4;
+				} else if (Character.isSurrogate(ch)) {
+					// unpaired surrogates are encoded as '?'
+					charLenInBytes = 1;
+				} else {
+					charLenInBytes = 3;
+				}
+
+				for (final int l = charIndex + charLenInChars; charIndex < l; charIndex++) {
+					charToByte[charIndex - prefixLength] = byteIndex;
+				}
+				final int charStart = charIndex - charLenInChars;
+				// same as "Arrays.fill(byteToChar, byteIndex - prefixLength, ..., charStart)" but faster
+				for (final int l = byteIndex + charLenInBytes; byteIndex < l; byteIndex++) {
+					byteToChar[byteIndex - prefixLength] = charStart;
+				}
 			}
+			charToByte[charsCount - prefixLength] = byteIndex;
+
+			byteToCharOffsets = byteToChar;
+			charToByteOffsets = charToByte;
+		}
 
-			return getByteToCharOffsets()[byteIndex];
+		@Override
+		public OnigString prefix(final int charsCount) {
+			if (charsCount == content.length())
+				return this;
+			if (charsCount <= getSingleBytePrefixLength())
+				return new SingleByteString(content.substring(0, charsCount), bytesUTF8, charsCount, searchBudget);
+			return new MultiByteString(this, charsCount, getByteIndexOfChar(charsCount));
 		}
 	}
 
@@ -116,8 +195,8 @@ int getCharIndexOfByte(final int byteIndex) {
 	 */
 	static final class SingleByteString extends OnigString {
 
-		private SingleByteString(final String str, final byte[] bytesUTF8) {
-			super(str, bytesUTF8);
+		private SingleByteString(final String str, final byte[] bytesUTF8, final int bytesCount, final @Nullable SearchBudget searchBudget) {
+			super(str, bytesUTF8, bytesCount, searchBudget);
 		}
 
 		@Override
@@ -145,25 +224,184 @@ int getCharIndexOfByte(final int byteIndex) {
 			}
 			return byteIndex;
 		}
+
+		@Override
+		public OnigString prefix(final int charsCount) {
+			if (charsCount == bytesCount)
+				return this;
+			return new SingleByteString(content.substring(0, charsCount), bytesUTF8, charsCount, searchBudget);
+		}
 	}
 
+	/**
+	 * Value of {@link #getRemainingSearchNanos()} for strings whose searches are not time limited.
+	 */
+	public static final long NO_SEARCH_TIMEOUT = -1;
+
 	public static OnigString of(final String str) {
+		return of(str, NO_SEARCH_TIMEOUT);
+	}
+
+	/**
+	 * @param searchTimeoutNanos max time in nanoseconds, starting now, after which regex searches on the string (and its
+	 *            prefixes) are aborted with an {@link OnigSearchTimeoutException}, or {@link #NO_SEARCH_TIMEOUT}. Until
+	 *            {@link #activateSearchDeadline()} is called, each single search may take this time.
+	 */
+	public static OnigString of(final String str, final long searchTimeoutNanos) {
+		final var searchBudget = searchTimeoutNanos == NO_SEARCH_TIMEOUT ? null : new SearchBudget(searchTimeoutNanos);
+		// for strings with only Latin-1 chars (i.e. compact strings), String.getBytes works on the internal byte array
+		// and simply copies it if all chars are ASCII
 		final byte[] bytesUtf8 = str.getBytes(StandardCharsets.UTF_8);
 		if (bytesUtf8.length == str.length()) {
-			return new SingleByteString(str, bytesUtf8);
+			return new SingleByteString(str, bytesUtf8, bytesUtf8.length, searchBudget);
+		}
+		return new MultiByteString(str, bytesUtf8, bytesUtf8.length, searchBudget);
+	}
+
+	/**
+	 * Holds per regular expression the result of its last {@link OnigRegExp#search(OnigString, int, int)} call on this
+	 * string and the Joni matcher that is reused for all its searches on this string.
+	 * <p>
+	 * The entries are stored in parallel arrays of an open-addressing hash table keyed by the identity of the regular
+	 * expressions, so no objects are allocated per searched regular expression apart from its matcher.
+	 */
+	static final class SearchCache {
+		private @Nullable OnigRegExp[] regExps;
+		int[] positions;
+		int[] limits;
+		@Nullable
+		OnigResult[] results;
+		@Nullable
+		Matcher[] matchers;
+		private int size;
+
+		private SearchCache(final int regExpsCount) {
+			// keep the load factor at or below 0.5 to keep the probe sequences short
+			final int capacity = Integer.highestOneBit(Math.max(4, regExpsCount) * 4 - 1);
+			regExps = new OnigRegExp[capacity];
+			positions = new int[capacity];
+			limits = new int[capacity];
+			results = new OnigResult[capacity];
+			matchers = new Matcher[capacity];
+		}
+
+		/**
+		 * @return the index of the entry of the given regular expression, which is added if absent. The index stays
+		 *         valid until the next call of this method.
+		 */
+		int indexOf(final OnigRegExp regExp) {
+			final var regExps = this.regExps;
+			final int mask = regExps.length - 1;
+			int index = regExp.identityHash & mask;
+			while (true) {
+				final var entry = regExps[index];
+				if (entry == regExp)
+					return index;
+				if (entry == null)
+					break;
+				index = index + 1 & mask;
+			}
+
+			if (size * 2 >= mask) {
+				grow();
+				return indexOf(regExp);
+			}
+			size++;
+			regExps[index] = regExp;
+			positions[index] = -1;
+			limits[index] = Integer.MAX_VALUE;
+			return index;
+		}
+
+		private void grow() {
+			final var oldRegExps = regExps;
+			final var oldPositions = positions;
+			final var oldLimits = limits;
+			final var oldResults = results;
+			final var oldMatchers = matchers;
+
+			final int capacity = oldRegExps.length * 2;
+			final int mask = capacity - 1;
+			regExps = new OnigRegExp[capacity];
+			positions = new int[capacity];
+			limits = new int[capacity];
+			results = new OnigResult[capacity];
+			matchers = new Matcher[capacity];
+			for (int oldIndex = 0; oldIndex < oldRegExps.length; oldIndex++) {
+				final var regExp = oldRegExps[oldIndex];
+				if (regExp == null)
+					continue;
+				int index = regExp.identityHash & mask;
+				while (regExps[index] != null) {
+					index = index + 1 & mask;
+				}
+				regExps[index] = regExp;
+				positions[index] = oldPositions[oldIndex];
+				limits[index] = oldLimits[oldIndex];
+				results[index] = oldResults[oldIndex];
+				matchers[index] = oldMatchers[oldIndex];
+			}
 		}
-		return new MultiByteString(str, bytesUtf8);
 	}
 
 	public final String content;
 
+	/** number of bytes of {@code bytesUTF8} that belong to this string, which may be shared with a longer string */
 	public final int bytesCount;
 	final byte[] bytesUTF8;
 
-	private OnigString(final String content, final byte[] bytesUTF8) {
+	/**
+	 * Time limit shared by all searches on a string and its prefixes.
+	 */
+	static final class SearchBudget {
+		final long timeoutNanos;
+		final long deadlineNanos;
+		boolean isDeadlineActive;
+
+		SearchBudget(final long timeoutNanos) {
+			this.timeoutNanos = timeoutNanos;
+			deadlineNanos = System.nanoTime() + timeoutNanos;
+		}
+	}
+
+	/** the time limit of the searches on this string, or null if not limited */
+	final @Nullable SearchBudget searchBudget;
+
+	/**
+	 * Search result cache. An OnigString is created per tokenized line and is only accessed by the tokenizing thread,
+	 * which makes this cache thread-confined without requiring any synchronization.
+	 */
+	private @Nullable SearchCache searchCache;
+
+	private OnigString(final String content, final byte[] bytesUTF8, final int bytesCount, final @Nullable SearchBudget searchBudget) {
 		this.content = content;
 		this.bytesUTF8 = bytesUTF8;
-		bytesCount = bytesUTF8.length;
+		this.bytesCount = bytesCount;
+		this.searchBudget = searchBudget;
+	}
+
+	/**
+	 * @return the time in nanoseconds left for regex searches on this string (0 if the time is up), or
+	 *         {@link #NO_SEARCH_TIMEOUT}
+	 */
+	public long getRemainingSearchNanos() {
+		final var searchBudget = this.searchBudget;
+		if (searchBudget == null)
+			return NO_SEARCH_TIMEOUT;
+		if (!searchBudget.isDeadlineActive)
+			return searchBudget.timeoutNanos;
+		return Math.max(0, searchBudget.deadlineNanos - System.nanoTime());
+	}
+
+	/**
+	 * Limits all further searches on this string and its prefixes to the time left until the deadline given by the
+	 * search timeout passed to {@link #of(String, long)}.
+	 */
+	public void activateSearchDeadline() {
+		final var searchBudget = this.searchBudget;
+		if (searchBudget != null) {
+			searchBudget.isDeadlineActive = true;
+		}
 	}
 
 	protected final void throwOutOfBoundsException(final String indexName, final int index, final int minIndex, final int maxIndex) {
@@ -171,10 +409,30 @@ protected final void throwOutOfBoundsException(final String indexName, final int
 				indexName + " index " + index + " is out of range " + minIndex + ".." + maxIndex + " of " + this);
 	}
 
+	/**
+	 * @param regExpsCount the number of regular expressions expected to be searched on this string, used to size the
+	 *            cache when it is created
+	 */
+	SearchCache getSearchCache(final int regExpsCount) {
+		var searchCache = this.searchCache;
+		if (searchCache == null) {
+			searchCache = this.searchCache = new SearchCache(regExpsCount);
+		}
+		return searchCache;
+	}
+
 	abstract int getByteIndexOfChar(int charIndex);
 
 	abstract int getCharIndexOfByte(int byteIndex);
 
+	/**
+	 * Returns the first chars of this string as a new string with the same search timeout. Instead of encoding the
+	 * chars again, the new string shares the UTF-8 bytes of this string.
+	 *
+	 * @param charsCount the number of chars, must not split a supplementary character
+	 */
+	public abstract OnigString prefix(int charsCount);
+
 	@Override
 	public String toString() {
 		return getClass().getSimpleName() + "[string=\"" + content + "\"]";
@@ -41,7 +41,7 @@ public final class BeginEndRule extends Rule {
 	final boolean hasMissingPatterns;
 	final RuleId[] patterns;
 
-	private @Nullable RegExpSourceList cachedCompiledPatterns;
+	private volatile @Nullable RegExpSourceList cachedCompiledPatterns;
 
 	BeginEndRule(final RuleId id, final @Nullable String name, final @Nullable String contentName, final String begin,
 			final List<@Nullable CaptureRule> beginCaptures, final @Nullable String end,
@@ -89,7 +89,7 @@ public CompiledRule compileAG(final IRuleRegistry grammar, final @Nullable Strin
 	private RegExpSourceList getCachedCompiledPatterns(final IRuleRegistry grammar, final @Nullable String endRegexSource) {
 		var cachedCompiledPatterns = this.cachedCompiledPatterns;
 		if (cachedCompiledPatterns == null) {
-			cachedCompiledPatterns = new RegExpSourceList();
+			cachedCompiledPatterns = new RegExpSourceList(grammar);
 
 			for (final var pattern : this.patterns) {
 				final var rule = grammar.getRule(pattern);
@@ -97,18 +97,16 @@ private RegExpSourceList getCachedCompiledPatterns(final IRuleRegistry grammar,
 			}
 
 			if (this.applyEndPatternLast) {
-				cachedCompiledPatterns.add(this.endHasBackReferences ? this.end.clone() : this.end);
+				cachedCompiledPatterns.add(this.end);
 			} else {
-				cachedCompiledPatterns.remove(this.endHasBackReferences ? this.end.clone() : this.end);
+				cachedCompiledPatterns.remove(this.end);
 			}
 			this.cachedCompiledPatterns = cachedCompiledPatterns;
 		}
 		if (this.endHasBackReferences && endRegexSource != null) {
-			if (this.applyEndPatternLast) {
-				cachedCompiledPatterns.setSource(cachedCompiledPatterns.length() - 1, endRegexSource);
-			} else {
-				cachedCompiledPatterns.setSource(0, endRegexSource);
-			}
+			return cachedCompiledPatterns.withSource(
+					this.applyEndPatternLast ? cachedCompiledPatterns.length() - 1 : 0,
+					endRegexSource);
 		}
 		return cachedCompiledPatterns;
 	}
@@ -38,8 +38,8 @@ public final class BeginWhileRule extends Rule {
 	final boolean hasMissingPatterns;
 	final RuleId[] patterns;
 
-	private @Nullable RegExpSourceList cachedCompiledPatterns;
-	private @Nullable RegExpSourceList cachedCompiledWhilePatterns;
+	private volatile @Nullable RegExpSourceList cachedCompiledPatterns;
+	private volatile @Nullable RegExpSourceList cachedCompiledWhilePatterns;
 
 	BeginWhileRule(final RuleId id, final @Nullable String name, final @Nullable String contentName,
 			final String begin, final List<@Nullable CaptureRule> beginCaptures,
@@ -78,35 +78,35 @@ public CompiledRule compileAG(final IRuleRegistry grammar, final @Nullable Strin
 	private RegExpSourceList getCachedCompiledPatterns(final IRuleRegistry grammar) {
 		var cachedCompiledPatterns = this.cachedCompiledPatterns;
 		if (cachedCompiledPatterns == null) {
-			cachedCompiledPatterns = new RegExpSourceList();
-			this.cachedCompiledPatterns = cachedCompiledPatterns;
+			cachedCompiledPatterns = new RegExpSourceList(grammar);
 
 			for (final var pattern : this.patterns) {
 				final var rule = grammar.getRule(pattern);
 				rule.collectPatterns(grammar, cachedCompiledPatterns);
 			}
+			this.cachedCompiledPatterns = cachedCompiledPatterns;
 		}
 		return cachedCompiledPatterns;
 	}
 
-	public CompiledRule compileWhile(final @Nullable String endRegexSource) {
-		return getCachedCompiledWhilePatterns(endRegexSource).compile();
+	public CompiledRule compileWhile(final IRuleRegistry grammar, final @Nullable String endRegexSource) {
+		return getCachedCompiledWhilePatterns(grammar, endRegexSource).compile();
 	}
 
-	public CompiledRule compileWhileAG(final @Nullable String endRegexSource,
+	public CompiledRule compileWhileAG(final IRuleRegistry grammar, final @Nullable String endRegexSource,
 			final boolean allowA, final boolean allowG) {
-		return getCachedCompiledWhilePatterns(endRegexSource).compileAG(allowA, allowG);
+		return getCachedCompiledWhilePatterns(grammar, endRegexSource).compileAG(allowA, allowG);
 	}
 
-	private RegExpSourceList getCachedCompiledWhilePatterns(final @Nullable String endRegexSource) {
+	private RegExpSourceList getCachedCompiledWhilePatterns(final IRuleRegistry grammar, final @Nullable String endRegexSource) {
 		var cachedCompiledWhilePatterns = this.cachedCompiledWhilePatterns;
 		if (cachedCompiledWhilePatterns == null) {
-			cachedCompiledWhilePatterns = new RegExpSourceList();
-			cachedCompiledWhilePatterns.add(this.whileHasBackReferences ? this._while.clone() : this._while);
+			cachedCompiledWhilePatterns = new RegExpSourceList(grammar);
+			cachedCompiledWhilePatterns.add(this._while);
 			this.cachedCompiledWhilePatterns = cachedCompiledWhilePatterns;
 		}
 		if (whileHasBackReferences) {
-			cachedCompiledWhilePatterns.setSource(0, defaultIfNull(endRegexSource, "\uFFFF"));
+			return cachedCompiledWhilePatterns.withSource(0, defaultIfNull(endRegexSource, "\uFFFF"));
 		}
 		return cachedCompiledWhilePatterns;
 	}
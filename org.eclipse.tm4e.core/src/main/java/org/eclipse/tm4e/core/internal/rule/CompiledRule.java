@@ -31,9 +31,9 @@ public final class CompiledRule {
 	public final OnigScanner scanner;
 	public final RuleId[] rules;
 
-	CompiledRule(final List<String> regExps, final RuleId[] rules) {
+	CompiledRule(final List<String> regExps, final OnigScanner scanner, final RuleId[] rules) {
 		this.debugRegExps = regExps;
 		this.rules = rules;
-		this.scanner = new OnigScanner(regExps);
+		this.scanner = scanner;
 	}
 }
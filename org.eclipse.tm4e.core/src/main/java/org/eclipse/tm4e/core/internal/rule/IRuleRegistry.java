@@ -18,6 +18,9 @@
 
 import java.util.function.Function;
 
+import org.eclipse.tm4e.core.TMException;
+import org.eclipse.tm4e.core.internal.oniguruma.OnigRegExp;
+
 /**
  * @see <a href=
  *      "https://github.com/microsoft/vscode-textmate/blob/76ab07aecfbd7e959ee4b55de3976f7a3ee95f38/src/rule.ts#L31">
@@ -31,4 +34,13 @@ public interface IRuleRegistry {
 	Rule getRule(RuleId ruleId);
 
 	<T extends Rule> T registerRule(Function<RuleId, T> factory);
+
+	/**
+	 * custom tm4e code - not from upstream
+	 *
+	 * @return the compiled regular expression, which is shared by all rules of the grammar that use the same pattern
+	 *
+	 * @throws TMException if the pattern is invalid
+	 */
+	OnigRegExp getRegExp(String pattern);
 }
@@ -28,7 +28,7 @@ final class IncludeOnlyRule extends Rule {
 	final boolean hasMissingPatterns;
 	final RuleId[] patterns;
 
-	private @Nullable RegExpSourceList cachedCompiledPatterns;
+	private volatile @Nullable RegExpSourceList cachedCompiledPatterns;
 
 	IncludeOnlyRule(final RuleId id, final @Nullable String name, final @Nullable String contentName,
 			final CompilePatternsResult patterns, final @Nullable String grammarScope) {
@@ -59,7 +59,7 @@ public CompiledRule compileAG(final IRuleRegistry grammar, final @Nullable Strin
 	private RegExpSourceList getCachedCompiledPatterns(final IRuleRegistry grammar) {
 		var cachedCompiledPatterns = this.cachedCompiledPatterns;
 		if (cachedCompiledPatterns == null) {
-			cachedCompiledPatterns = new RegExpSourceList();
+			cachedCompiledPatterns = new RegExpSourceList(grammar);
 			this.collectPatterns(grammar, cachedCompiledPatterns);
 			this.cachedCompiledPatterns = cachedCompiledPatterns;
 		}
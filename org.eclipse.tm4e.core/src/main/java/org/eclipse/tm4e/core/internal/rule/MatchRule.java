@@ -30,7 +30,7 @@ public final class MatchRule extends Rule {
 	private final RegExpSource match;
 	public final List<@Nullable CaptureRule> captures;
 
-	private @Nullable RegExpSourceList cachedCompiledPatterns;
+	private volatile @Nullable RegExpSourceList cachedCompiledPatterns;
 
 	MatchRule(final RuleId id, final @Nullable String name, final String match, final List<@Nullable CaptureRule> captures,
 			final @Nullable String grammarScope) {
@@ -58,7 +58,7 @@ public CompiledRule compileAG(final IRuleRegistry grammar, final @Nullable Strin
 	private RegExpSourceList getCachedCompiledPatterns(final IRuleRegistry grammar) {
 		var cachedCompiledPatterns = this.cachedCompiledPatterns;
 		if (cachedCompiledPatterns == null) {
-			cachedCompiledPatterns = new RegExpSourceList();
+			cachedCompiledPatterns = new RegExpSourceList(grammar);
 			this.collectPatterns(grammar, cachedCompiledPatterns);
 			this.cachedCompiledPatterns = cachedCompiledPatterns;
 		}
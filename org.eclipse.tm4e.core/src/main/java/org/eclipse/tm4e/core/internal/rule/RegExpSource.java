@@ -35,11 +35,11 @@ final class RegExpSource {
 	private static final Pattern HAS_BACK_REFERENCES = Pattern.compile("\\\\(\\d+)");
 	private static final Pattern BACK_REFERENCING_END = Pattern.compile("\\\\(\\d+)");
 
-	private String source;
+	private final String source;
 	final RuleId ruleId;
 	final boolean hasBackReferences;
 
-	private String @Nullable [][] anchorCache;
+	private final String @Nullable [][] anchorCache;
 
 	RegExpSource(final String regExpSource, final RuleId ruleId) {
 		this(regExpSource, ruleId, true);
@@ -77,31 +77,34 @@ final class RegExpSource {
 				output.append(regExpSource.substring(lastPushedPos, len));
 				source = output.toString();
 			}
-			if (hasAnchors) {
-				anchorCache = buildAnchorCache();
-			}
+			anchorCache = hasAnchors ? buildAnchorCache(source) : null;
 		} else {
 			this.source = regExpSource;
+			this.anchorCache = null;
 		}
 
 		this.ruleId = ruleId;
 		this.hasBackReferences = HAS_BACK_REFERENCES.matcher(this.source).find();
 	}
 
-	@Override
-	protected RegExpSource clone() {
-		return new RegExpSource(source, this.ruleId);
+	private RegExpSource(final RegExpSource template, final String newSource) {
+		this.source = newSource;
+		this.ruleId = template.ruleId;
+		this.hasBackReferences = template.hasBackReferences;
+		this.anchorCache = template.hasAnchor() ? buildAnchorCache(newSource) : null;
 	}
 
-	void setSource(final String newSource) {
+	/**
+	 * Instances are immutable so they can be shared between threads. Upstream's <code>setSource</code> is replaced
+	 * by this method.
+	 *
+	 * @return a copy of this instance with the given source, or this instance if the source is unchanged
+	 */
+	RegExpSource withSource(final String newSource) {
 		if (Objects.equals(source, newSource)) {
-			return;
-		}
-		this.source = newSource;
-
-		if (hasAnchor()) {
-			this.anchorCache = buildAnchorCache();
+			return this;
 		}
+		return new RegExpSource(this, newSource);
 	}
 
 	@SuppressWarnings("null")
@@ -124,8 +127,7 @@ String resolveBackReferences(final CharSequence lineText, final OnigCaptureIndex
 		});
 	}
 
-	private String[][] buildAnchorCache() {
-		final var source = this.source;
+	private static String[][] buildAnchorCache(final String source) {
 		final var sourceLen = source.length();
 
 		final var A0_G0_result = new StringBuilder(sourceLen);
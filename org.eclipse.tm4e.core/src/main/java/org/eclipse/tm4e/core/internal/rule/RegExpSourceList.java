@@ -18,29 +18,92 @@
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.internal.oniguruma.OnigRegExp;
+import org.eclipse.tm4e.core.internal.oniguruma.OnigScanner;
+import org.eclipse.tm4e.core.internal.utils.TokenizerMetricsCollector;
 
 /**
+ * A list of regular expression sources that is compiled into a {@link CompiledRule}.
+ * <p>
+ * The list is populated once by the owning rule (via {@code add} and {@code remove}) and must not be modified after it
+ * has been published to other threads. Compiled rules are cached and safely published, so a single instance can be
+ * used by concurrently tokenizing threads.
+ *
  * @see <a href=
  *      "https://github.com/microsoft/vscode-textmate/blob/76ab07aecfbd7e959ee4b55de3976f7a3ee95f38/src/rule.ts#L744">
  *      github.com/microsoft/vscode-textmate/blob/main/src/rule.ts</a>
  */
 final class RegExpSourceList {
 
+	/**
+	 * Max number of copies cached by {@link #withSource(int, String)} per list, i.e. per begin/end or begin/while rule
+	 * with back-references. Documents such as Markdown files, shell scripts with here-documents or C++ files with raw
+	 * strings usually alternate between a few different delimiters.
+	 */
+	static final int MAX_CACHED_COPIES = 32;
+
+	private record SourceReplacement(int index, String newSource) {
+	}
+
+	private static final class CachedCopy {
+		final RegExpSourceList list;
+
+		/** value of {@link RegExpSourceList#useTick} at the last lookup, updated without synchronization */
+		long lastUsed;
+
+		CachedCopy(final RegExpSourceList list, final long lastUsed) {
+			this.list = list;
+			this.lastUsed = lastUsed;
+		}
+	}
+
+	/**
+	 * copies created by {@link #withSource(int, String)}. Lookups do not lock, so the least recently used order is only
+	 * tracked approximately by {@link CachedCopy#lastUsed} and concurrent insertions may briefly exceed
+	 * {@link #MAX_CACHED_COPIES}.
+	 */
+	private final Map<SourceReplacement, CachedCopy> cachedCopies = new ConcurrentHashMap<>();
+
+	/** racy counter used to order the lookups of {@link #cachedCopies} */
+	private long useTick;
+
 	private final List<RegExpSource> items = new ArrayList<>();
 	private boolean hasAnchors;
 
-	private @Nullable CompiledRule cached;
-	private final @Nullable CompiledRule[][] anchorCache = new CompiledRule[2][2];
+	/** the grammar whose compiled regular expressions are shared, or null to compile all of them for this list */
+	private final @Nullable IRuleRegistry grammar;
+
+	/**
+	 * index of the source replaced by {@link #withSource(int, String)}, which is not shared with the grammar since it
+	 * usually contains resolved back-references, or -1
+	 */
+	private final int replacedIndex;
+
+	private volatile @Nullable CompiledRule cached;
+
+	/** index = allowA * 2 + allowG */
+	private final AtomicReferenceArray<@Nullable CompiledRule> anchorCache = new AtomicReferenceArray<>(4);
+
+	RegExpSourceList() {
+		this(null, -1);
+	}
 
-	private void disposeCache() {
-		cached = null;
-		anchorCache[0][0] = null;
-		anchorCache[0][1] = null;
-		anchorCache[1][0] = null;
-		anchorCache[1][1] = null;
+	/**
+	 * @param grammar the grammar whose compiled regular expressions are shared by this list
+	 */
+	RegExpSourceList(final IRuleRegistry grammar) {
+		this(grammar, -1);
+	}
+
+	private RegExpSourceList(final @Nullable IRuleRegistry grammar, final int replacedIndex) {
+		this.grammar = grammar;
+		this.replacedIndex = replacedIndex;
 	}
 
 	void add(final RegExpSource item) {
@@ -61,19 +124,57 @@ int length() {
 		return items.size();
 	}
 
-	void setSource(final int index, final String newSource) {
+	/**
+	 * Upstream modifies the list in place (<code>setSource</code>) which is not safe when the list is shared between
+	 * threads. Instead a copy with the source at the given index replaced is returned.
+	 * <p>
+	 * The copies are cached, so that the regular expressions compiled by a copy are reused whenever the same source is
+	 * requested again, e.g. for each end pattern with the same resolved back-references.
+	 *
+	 * @return this instance if the source at the given index is already equal to <code>newSource</code>
+	 */
+	RegExpSourceList withSource(final int index, final String newSource) {
 		final RegExpSource r = items.get(index);
-		if (!Objects.equals(r.getSource(), newSource)) {
-			disposeCache();
-			r.setSource(newSource);
+		if (Objects.equals(r.getSource(), newSource)) {
+			return this;
+		}
+
+		final var key = new SourceReplacement(index, newSource);
+		final var cachedCopy = cachedCopies.get(key);
+		if (cachedCopy != null) {
+			cachedCopy.lastUsed = ++useTick;
+			return cachedCopy.list;
+		}
+
+		final var copy = new RegExpSourceList(grammar, index);
+		for (int i = 0, l = items.size(); i < l; i++) {
+			copy.add(i == index ? r.withSource(newSource) : items.get(i));
+		}
+		final var existingCopy = cachedCopies.putIfAbsent(key, new CachedCopy(copy, ++useTick));
+		if (existingCopy != null)
+			return existingCopy.list;
+		if (cachedCopies.size() > MAX_CACHED_COPIES) {
+			evictLeastRecentlyUsedCopy();
+		}
+		return copy;
+	}
+
+	private void evictLeastRecentlyUsedCopy() {
+		Map.@Nullable Entry<SourceReplacement, CachedCopy> eldest = null;
+		for (final var entry : cachedCopies.entrySet()) {
+			if (eldest == null || entry.getValue().lastUsed < eldest.getValue().lastUsed) {
+				eldest = entry;
+			}
+		}
+		if (eldest != null) {
+			cachedCopies.remove(eldest.getKey(), eldest.getValue());
 		}
 	}
 
 	CompiledRule compile() {
 		var cached = this.cached;
 		if (cached == null) {
-			final List<String> regexps = items.stream().map(RegExpSource::getSource).toList();
-			cached = this.cached = new CompiledRule(regexps, items.stream().map(e -> e.ruleId).toArray(RuleId[]::new));
+			cached = this.cached = createCompiledRule(items.stream().map(RegExpSource::getSource).toList());
 		}
 		return cached;
 	}
@@ -83,18 +184,31 @@ CompiledRule compileAG(final boolean allowA, final boolean allowG) {
 			return compile();
 		}
 
-		final var indexA = allowA ? 1 : 0;
-		final var indexG = allowG ? 1 : 0;
+		final var index = (allowA ? 2 : 0) + (allowG ? 1 : 0);
 
-		var rule = anchorCache[indexA][indexG];
+		var rule = anchorCache.get(index);
+		final var metrics = TokenizerMetricsCollector.getActive();
+		if (metrics != null) {
+			metrics.anchorCache.record(rule != null);
+		}
 		if (rule == null) {
-			rule = anchorCache[indexA][indexG] = resolveAnchors(allowA, allowG);
+			rule = resolveAnchors(allowA, allowG);
+			anchorCache.set(index, rule);
 		}
 		return rule;
 	}
 
 	private CompiledRule resolveAnchors(final boolean allowA, final boolean allowG) {
-		final List<String> regexps = items.stream().map(e -> e.resolveAnchors(allowA, allowG)).toList();
-		return new CompiledRule(regexps, items.stream().map(e -> e.ruleId).toArray(RuleId[]::new));
+		return createCompiledRule(items.stream().map(e -> e.resolveAnchors(allowA, allowG)).toList());
+	}
+
+	private CompiledRule createCompiledRule(final List<String> regexps) {
+		final var grammar = this.grammar;
+		final var regExps = new ArrayList<OnigRegExp>(regexps.size());
+		for (int i = 0, l = regexps.size(); i < l; i++) {
+			final var regexp = regexps.get(i);
+			regExps.add(grammar == null || i == replacedIndex ? new OnigRegExp(regexp) : grammar.getRegExp(regexp));
+		}
+		return new CompiledRule(regexps, OnigScanner.of(regExps), items.stream().map(e -> e.ruleId).toArray(RuleId[]::new));
 	}
 }
@@ -48,6 +48,10 @@ public abstract class Rule {
 		this.grammarScope = grammarScope; // custom tm4e code - not from upstream (for TMPartitioner)
 	}
 
+	public RuleId getId() { // custom tm4e code - not from upstream
+		return id;
+	}
+
 	public @Nullable String getName(final @Nullable CharSequence lineText, final OnigCaptureIndex @Nullable [] captureIndices) {
 		final var name = this.name;
 		if (!nameIsCapturing || name == null || lineText == null || captureIndices == null) {
@@ -15,6 +15,7 @@
 import static org.eclipse.tm4e.core.internal.utils.StringUtils.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -27,6 +28,7 @@
 import org.eclipse.tm4e.core.internal.theme.raw.IRawTheme;
 import org.eclipse.tm4e.core.internal.theme.raw.IRawThemeSetting;
 import org.eclipse.tm4e.core.internal.utils.StringUtils;
+import org.eclipse.tm4e.core.internal.utils.TokenizerMetricsCollector;
 
 /**
  * TextMate theme.
@@ -55,7 +57,7 @@ public static Theme createFromParsedTheme(final List<ParsedThemeRule> source, fi
 		return resolveParsedThemeRules(source, colorMap);
 	}
 
-	private final ConcurrentMap<String /* scopeName */, List<ThemeTrieElementRule>> _cachedMatchRoot = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String /* scopeName */, CompiledRule[]> _cachedMatchRoot = new ConcurrentHashMap<>();
 
 	private final ColorMap _colorMap;
 	private final StyleAttributes _defaults;
@@ -85,66 +87,112 @@ public Map<String, String> getEditorColors() { // custom tm4e code, not from ups
 			return this._defaults;
 		}
 		final var scopeName = scopePath.scopeName;
-		final var matchingTrieElements = this._cachedMatchRoot.computeIfAbsent(scopeName, _root::match);
-
-		final var effectiveRule = findFirstMatching(matchingTrieElements,
-				v -> _scopePathMatchesParentScopes(scopePath.parent, v.parentScopes));
-		if (effectiveRule == null) {
-			return null;
+		var matchingRules = this._cachedMatchRoot.get(scopeName);
+		final var metrics = TokenizerMetricsCollector.getActive();
+		if (metrics != null) {
+			metrics.themeCache.record(matchingRules != null);
+		}
+		if (matchingRules == null) {
+			matchingRules = this._cachedMatchRoot.computeIfAbsent(scopeName, this::_compileMatchingRules);
 		}
 
-		return StyleAttributes.of(
-				effectiveRule.fontStyle,
-				effectiveRule.foreground,
-				effectiveRule.background);
+		// the rules are sorted by specificity, i.e. the first rule without parent scopes ends the search
+		for (final var rule : matchingRules) {
+			if (rule.matchesParentScopes(scopePath.parent))
+				return rule.style;
+		}
+		return null;
 	}
 
-	private boolean _scopePathMatchesParentScopes(@Nullable ScopeStack scopePath, final List<String> parentScopeNames) {
-		if (parentScopeNames.isEmpty()) {
-			return true;
+	private CompiledRule[] _compileMatchingRules(final String scopeName) {
+		final var rules = _root.match(scopeName);
+		final var compiledRules = new CompiledRule[rules.size()];
+		for (int i = 0; i < compiledRules.length; i++) {
+			compiledRules[i] = CompiledRule.of(rules.get(i));
 		}
+		return compiledRules;
+	}
 
-		// Starting with the deepest parent scope, look for a match in the scope path.
-		final var parentScopeNamesLen = parentScopeNames.size();
-		for (int index = 0; index < parentScopeNamesLen; index++) {
-			var scopePattern = parentScopeNames.get(index);
-			boolean scopeMustMatch = false;
-
-			// Check for a child combinator (a parent-child relationship)
-			if (">".equals(scopePattern)) {
-				if (index == parentScopeNamesLen - 1) {
-					// Invalid use of child combinator
-					return false;
+	/**
+	 * A {@link ThemeTrieElementRule} with precomputed style attributes and its parent scopes preprocessed for matching,
+	 * i.e. with the child combinators turned into flags of the following scope patterns.
+	 *
+	 * @param parentScopes the parent scope patterns starting with the deepest one
+	 * @param mustBeDirectParent whether the parent scope at the same index must directly precede the previous one
+	 * @param isValid false if the parent scopes end with a child combinator, which never matches
+	 */
+	private record CompiledRule(StyleAttributes style, String[] parentScopes, boolean[] mustBeDirectParent,
+			boolean isValid) {
+
+		private static final String[] NO_PARENT_SCOPES = {};
+		private static final boolean[] NO_FLAGS = {};
+
+		static CompiledRule of(final ThemeTrieElementRule rule) {
+			final var style = StyleAttributes.of(rule.fontStyle, rule.foreground, rule.background);
+			final var parentScopeNames = rule.parentScopes;
+			if (parentScopeNames.isEmpty())
+				return new CompiledRule(style, NO_PARENT_SCOPES, NO_FLAGS, true);
+
+			final var parentScopes = new ArrayList<String>(parentScopeNames.size());
+			final var mustBeDirectParent = new boolean[parentScopeNames.size()];
+			final var parentScopeNamesLen = parentScopeNames.size();
+			for (int index = 0; index < parentScopeNamesLen; index++) {
+				var scopePattern = parentScopeNames.get(index);
+
+				// Check for a child combinator (a parent-child relationship)
+				if (">".equals(scopePattern)) {
+					if (index == parentScopeNamesLen - 1) {
+						// Invalid use of child combinator
+						return new CompiledRule(style, NO_PARENT_SCOPES, NO_FLAGS, false);
+					}
+					scopePattern = parentScopeNames.get(++index);
+					mustBeDirectParent[parentScopes.size()] = true;
 				}
-				scopePattern = parentScopeNames.get(++index);
-				scopeMustMatch = true;
+				parentScopes.add(scopePattern);
 			}
+			return new CompiledRule(style, parentScopes.toArray(String[]::new),
+					Arrays.copyOf(mustBeDirectParent, parentScopes.size()), true);
+		}
 
-			while (scopePath != null) {
-				if (_matchesScope(scopePath.scopeName, scopePattern)) {
-					break;
+		boolean matchesParentScopes(@Nullable ScopeStack scopePath) {
+			if (!isValid)
+				return false;
+
+			// Starting with the deepest parent scope, look for a match in the scope path.
+			for (int index = 0; index < parentScopes.length; index++) {
+				final var scopePattern = parentScopes[index];
+				final boolean scopeMustMatch = mustBeDirectParent[index];
+
+				while (scopePath != null) {
+					if (_matchesScope(scopePath.scopeName, scopePattern)) {
+						break;
+					}
+					if (scopeMustMatch) {
+						// If a child combinator was used, the parent scope must match.
+						return false;
+					}
+					scopePath = scopePath.parent;
 				}
-				if (scopeMustMatch) {
-					// If a child combinator was used, the parent scope must match.
+
+				if (scopePath == null) {
+					// No more potential matches
 					return false;
 				}
 				scopePath = scopePath.parent;
 			}
 
-			if (scopePath == null) {
-				// No more potential matches
-				return false;
-			}
-			scopePath = scopePath.parent;
+			// All parent scopes were matched.
+			return true;
 		}
 
-		// All parent scopes were matched.
-		return true;
-	}
-
-	private boolean _matchesScope(final String scopeName, final String scopeNamePattern) {
-		return scopeNamePattern.equals(scopeName)
-				|| scopeName.startsWith(scopeNamePattern) && scopeName.charAt(scopeNamePattern.length()) == '.';
+		private static boolean _matchesScope(final String scopeName, final String scopeNamePattern) {
+			final int patternLength = scopeNamePattern.length();
+			return scopeName.length() == patternLength
+					? scopeName.equals(scopeNamePattern)
+					: scopeName.length() > patternLength
+							&& scopeName.charAt(patternLength) == '.'
+							&& scopeName.startsWith(scopeNamePattern);
+		}
 	}
 
 	/**
@@ -14,6 +14,7 @@
 import static org.eclipse.tm4e.core.internal.utils.StringUtils.strArrCmp;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +35,9 @@ public final class ThemeTrieElement {
 	private final List<ThemeTrieElementRule> _rulesWithParentScopes;
 	private final Map<String /*segment*/, ThemeTrieElement> _children;
 
+	/** the rules of this element sorted by specificity, computed on first match and reset on insert */
+	private volatile @Nullable List<ThemeTrieElementRule> _sortedRules;
+
 	public ThemeTrieElement(final ThemeTrieElementRule mainRule) {
 		this(mainRule, new ArrayList<>(), new HashMap<>());
 	}
@@ -126,10 +130,16 @@ public List<ThemeTrieElementRule> match(final String scope) {
 			}
 		}
 
+		final var cachedRules = this._sortedRules;
+		if (cachedRules != null)
+			return cachedRules;
+
 		final var rules = new ArrayList<>(this._rulesWithParentScopes);
 		rules.add(this._mainRule);
 		rules.sort(ThemeTrieElement::_cmpBySpecificity);
-		return rules;
+		final var sortedRules = Collections.unmodifiableList(rules);
+		this._sortedRules = sortedRules;
+		return sortedRules;
 	}
 
 	public void insert(final int scopeDepth, final String scope, final @Nullable List<String> parentScopes, final int fontStyle,
@@ -159,6 +169,9 @@ public void insert(final int scopeDepth, final String scope, final @Nullable Lis
 	private void doInsertHere(final int scopeDepth, final @Nullable List<String> parentScopes, int fontStyle, int foreground,
 			int background) {
 
+		// the inserted or merged rule may change the order by specificity
+		this._sortedRules = null;
+
 		if (parentScopes == null) {
 			// Merge into the main rule
 			this._mainRule.acceptOverwrite(scopeDepth, fontStyle, foreground, background);
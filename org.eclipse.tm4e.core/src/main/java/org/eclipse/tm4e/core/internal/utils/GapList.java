@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.utils;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A list backed by a gap buffer, i.e. an array with a movable gap of unused slots at the position of the last
+ * modification.
+ * <p>
+ * Like {@link java.util.ArrayList} it provides constant time random access, but inserting or removing elements costs
+ * time proportional to the number of affected elements plus the distance to the previous modification instead of
+ * the number of elements following the modification. This suits lists that are modified close to the same position
+ * over and over, e.g. the per-line state of a document being edited.
+ * <p>
+ * Not thread-safe.
+ */
+public final class GapList<E> extends AbstractList<E> implements RandomAccess {
+
+	private static final @Nullable Object[] EMPTY = {};
+
+	private @Nullable Object[] items;
+	private int gapStart;
+	/** exclusive */
+	private int gapEnd;
+
+	public GapList() {
+		items = EMPTY;
+	}
+
+	public GapList(final int initialCapacity) {
+		items = initialCapacity == 0 ? EMPTY : new Object[initialCapacity];
+		gapEnd = initialCapacity;
+	}
+
+	@Override
+	public int size() {
+		return items.length - (gapEnd - gapStart);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E get(final int index) {
+		Objects.checkIndex(index, size());
+		return (E) items[index < gapStart ? index : index + gapEnd - gapStart];
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E set(final int index, final E element) {
+		Objects.checkIndex(index, size());
+		final int i = index < gapStart ? index : index + gapEnd - gapStart;
+		final var old = (E) items[i];
+		items[i] = element;
+		return old;
+	}
+
+	@Override
+	public void add(final int index, final E element) {
+		Objects.checkIndex(index, size() + 1);
+		moveGap(index);
+		ensureGapSize(1);
+		items[gapStart++] = element;
+		modCount++;
+	}
+
+	@Override
+	public boolean addAll(final Collection<? extends E> elements) {
+		return addAll(size(), elements);
+	}
+
+	@Override
+	public boolean addAll(final int index, final Collection<? extends E> elements) {
+		Objects.checkIndex(index, size() + 1);
+		final Object[] newItems = elements.toArray();
+		if (newItems.length == 0)
+			return false;
+		moveGap(index);
+		ensureGapSize(newItems.length);
+		System.arraycopy(newItems, 0, items, gapStart, newItems.length);
+		gapStart += newItems.length;
+		modCount++;
+		return true;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E remove(final int index) {
+		Objects.checkIndex(index, size());
+		moveGap(index);
+		final var old = (E) items[gapEnd];
+		items[gapEnd++] = null;
+		modCount++;
+		return old;
+	}
+
+	@Override
+	protected void removeRange(final int fromIndex, final int toIndex) {
+		Objects.checkFromToIndex(fromIndex, toIndex, size());
+		if (fromIndex == toIndex)
+			return;
+		moveGap(fromIndex);
+		final int newGapEnd = gapEnd + toIndex - fromIndex;
+		Arrays.fill(items, gapEnd, newGapEnd, null);
+		gapEnd = newGapEnd;
+		modCount++;
+	}
+
+	@Override
+	public void clear() {
+		removeRange(0, size());
+	}
+
+	/**
+	 * Moves the gap so that it starts at the given index. Only the elements between the old and the new position are
+	 * copied.
+	 */
+	private void moveGap(final int index) {
+		if (index == gapStart)
+			return;
+
+		final int gapSize = gapEnd - gapStart;
+		if (index < gapStart) {
+			// move elements [index, gapStart) behind the gap
+			final int count = gapStart - index;
+			System.arraycopy(items, index, items, gapEnd - count, count);
+			Arrays.fill(items, index, Math.min(gapStart, gapEnd - count), null);
+		} else {
+			// move elements [gapEnd, index + gapSize) in front of the gap
+			final int count = index - gapStart;
+			System.arraycopy(items, gapEnd, items, gapStart, count);
+			Arrays.fill(items, Math.max(gapEnd, index), gapEnd + count, null);
+		}
+		gapStart = index;
+		gapEnd = index + gapSize;
+	}
+
+	private void ensureGapSize(final int minGapSize) {
+		final int gapSize = gapEnd - gapStart;
+		if (gapSize >= minGapSize)
+			return;
+
+		final int size = items.length - gapSize;
+		final int newCapacity = Math.max(size + minGapSize, Math.max(10, items.length + (items.length >> 1)));
+		final var newItems = new @Nullable Object[newCapacity];
+		final int tailSize = items.length - gapEnd;
+		System.arraycopy(items, 0, newItems, 0, gapStart);
+		System.arraycopy(items, gapEnd, newItems, newCapacity - tailSize, tailSize);
+		items = newItems;
+		gapEnd = newCapacity - tailSize;
+	}
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Collects the counters of {@link org.eclipse.tm4e.core.grammar.TokenizerMetrics}.
+ * <p>
+ * The tokenizer only calls the collector if {@link #getActive()} returns non-null, i.e. if metrics are disabled the
+ * instrumentation costs a single volatile read per hook.
+ * <p>
+ * Thread-safe.
+ */
+public final class TokenizerMetricsCollector {
+
+	/** number of buckets of {@link GrammarCounters#lineTimeHistogram} */
+	public static final int HISTOGRAM_BUCKETS = 20;
+
+	public static final class GrammarCounters {
+		public final LongAdder lines = new LongAdder();
+		public final LongAdder nanos = new LongAdder();
+		public final LongAdder scannerSearches = new LongAdder();
+		public final LongAdder stoppedEarly = new LongAdder();
+
+		/**
+		 * bucket 0 counts lines tokenized in less than 1µs, bucket i &gt; 0 lines tokenized in [2^(i-1), 2^i) µs, the
+		 * last bucket all slower lines
+		 */
+		public final LongAdder[] lineTimeHistogram = new LongAdder[HISTOGRAM_BUCKETS];
+
+		GrammarCounters() {
+			for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+				lineTimeHistogram[i] = new LongAdder();
+			}
+		}
+	}
+
+	public record RuleKey(String grammarScope, int ruleId) {
+	}
+
+	public static final class RuleCounters {
+		public final String grammarScope;
+		public final int ruleId;
+		public final @Nullable String ruleName;
+		public final LongAdder searches = new LongAdder();
+		public final LongAdder nanos = new LongAdder();
+
+		RuleCounters(final String grammarScope, final int ruleId, final @Nullable String ruleName) {
+			this.grammarScope = grammarScope;
+			this.ruleId = ruleId;
+			this.ruleName = ruleName;
+		}
+	}
+
+	public static final class PatternCounters {
+		public final LongAdder searches = new LongAdder();
+		public final LongAdder nanos = new LongAdder();
+	}
+
+	public static final class CacheCounters {
+		public final LongAdder hits = new LongAdder();
+		public final LongAdder misses = new LongAdder();
+
+		public void record(final boolean hit) {
+			(hit ? hits : misses).increment();
+		}
+
+		void clear() {
+			hits.reset();
+			misses.reset();
+		}
+	}
+
+	private static final TokenizerMetricsCollector INSTANCE = new TokenizerMetricsCollector();
+
+	private static volatile @Nullable TokenizerMetricsCollector active;
+
+	/**
+	 * @return the collector to record metrics with, or null if metrics are disabled
+	 */
+	public static @Nullable TokenizerMetricsCollector getActive() {
+		return active;
+	}
+
+	/**
+	 * @return the collector, regardless of whether metrics are enabled
+	 */
+	public static TokenizerMetricsCollector getInstance() {
+		return INSTANCE;
+	}
+
+	public static void setEnabled(final boolean enabled) {
+		active = enabled ? INSTANCE : null;
+	}
+
+	/** keyed by grammar scope name */
+	public final Map<String, GrammarCounters> grammars = new ConcurrentHashMap<>();
+
+	/**
+	 * keyed by grammar scope name and rule ID, since rule IDs are only unique per grammar. Rule instances are not used
+	 * as keys so that the collected metrics do not keep the grammars alive.
+	 */
+	public final Map<RuleKey, RuleCounters> rules = new ConcurrentHashMap<>();
+
+	/** keyed by regex pattern */
+	public final Map<String, PatternCounters> patterns = new ConcurrentHashMap<>();
+
+	/** cache of the last search result of a regex per searched line */
+	public final CacheCounters regExpSearchCache = new CacheCounters();
+
+	/** cache of the scanners compiled per anchor variant of a rule */
+	public final CacheCounters anchorCache = new CacheCounters();
+
+	/** cache of the theme rules matching a scope name */
+	public final CacheCounters themeCache = new CacheCounters();
+
+	private TokenizerMetricsCollector() {
+	}
+
+	public void onLineTokenized(final String grammarScope, final long nanos, final boolean stoppedEarly) {
+		final var counters = getGrammarCounters(grammarScope);
+		counters.lines.increment();
+		counters.nanos.add(nanos);
+		if (stoppedEarly) {
+			counters.stoppedEarly.increment();
+		}
+		final long micros = nanos / 1_000;
+		counters.lineTimeHistogram[Math.min(HISTOGRAM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros))].increment();
+	}
+
+	/**
+	 * Records a search of the scanner of the given rule, i.e. of all its regular expressions.
+	 */
+	public void onRuleSearched(final String grammarScope, final int ruleId, final @Nullable String ruleName, final long nanos) {
+		getGrammarCounters(grammarScope).scannerSearches.increment();
+		final var key = new RuleKey(grammarScope, ruleId);
+		var counters = rules.get(key);
+		if (counters == null) {
+			counters = rules.computeIfAbsent(key, unused -> new RuleCounters(grammarScope, ruleId, ruleName));
+		}
+		counters.searches.increment();
+		counters.nanos.add(nanos);
+	}
+
+	public void onRegExpSearched(final String pattern, final long nanos) {
+		var counters = patterns.get(pattern);
+		if (counters == null) {
+			counters = patterns.computeIfAbsent(pattern, unused -> new PatternCounters());
+		}
+		counters.searches.increment();
+		counters.nanos.add(nanos);
+	}
+
+	private GrammarCounters getGrammarCounters(final String grammarScope) {
+		var counters = grammars.get(grammarScope);
+		if (counters == null) {
+			counters = grammars.computeIfAbsent(grammarScope, unused -> new GrammarCounters());
+		}
+		return counters;
+	}
+
+	public void clear() {
+		grammars.clear();
+		rules.clear();
+		patterns.clear();
+		regExpSearchCache.clear();
+		anchorCache.clear();
+		themeCache.clear();
+	}
+}
@@ -79,4 +79,20 @@ enum BackgroundTokenizationState {
 	void setGrammar(IGrammar grammar);
 
 	int getNumberOfLines();
+
+	/**
+	 * Informs the model about the lines currently visible in the editor.
+	 * <p>
+	 * Lines of the visible range that are not tokenized yet are tokenized with priority, i.e. before the lines between
+	 * the first out-of-date line and the visible range. If the state of the line above the visible range is not known
+	 * yet, the tokens are computed based on a guessed state and corrected later if required.
+	 * <p>
+	 * The default implementation does nothing, i.e. lines are tokenized in document order.
+	 *
+	 * @param startLineIndex 0-based index of the first visible line
+	 * @param endLineIndex 0-based index of the last visible line (inclusive)
+	 */
+	default void setVisibleRange(@SuppressWarnings("unused") final int startLineIndex,
+			@SuppressWarnings("unused") final int endLineIndex) {
+	}
 }
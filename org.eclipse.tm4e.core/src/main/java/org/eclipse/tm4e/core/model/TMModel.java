@@ -15,7 +15,7 @@
 package org.eclipse.tm4e.core.model;
 
 import static java.lang.System.Logger.Level.*;
-import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.lateNonNull;
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.*;
 
 import java.lang.System.Logger;
 import java.time.Duration;
@@ -23,19 +23,19 @@
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.grammar.IGrammar;
 import org.eclipse.tm4e.core.grammar.IStateStack;
 import org.eclipse.tm4e.core.internal.grammar.StateStack;
+import org.eclipse.tm4e.core.internal.utils.GapList;
 import org.eclipse.tm4e.core.internal.utils.MoreCollections;
 import org.eclipse.tm4e.core.internal.utils.StringUtils;
 
 /**
- * The {@link TMModel} runs a background thread tokenizing out-of-date lines of the text model.
+ * The {@link TMModel} tokenizes out-of-date lines of the text model in the background using a {@link TokenizerScheduler}.
  *
  * Concrete implementations of this class are supposed to announce editor's content changes using the
  * {@link #onLinesReplaced(int, int, int)} method.
@@ -90,25 +90,61 @@ public String toString() {
 
 	private static final Logger LOGGER = System.getLogger(TMModel.class.getName());
 
+	/**
+	 * max time between two edits for them to be considered part of a burst of edits, e.g. made by a formatter, which
+	 * are applied in one go before the token revalidation loop happens
+	 */
+	private static final long EDIT_BURST_INTERVAL_NANOS = Duration.ofMillis(20).toNanos();
+
 	/** The TextMate grammar to use to tokenize lines of the attached document **/
 	private @Nullable IGrammar grammar;
 
 	/** Listeners that are notified when (re)tokenization of changed lines was performed **/
 	private final ModelTokensChangedEvent.Listeners listeners = new ModelTokensChangedEvent.Listeners();
 
-	/** The background thread performing async line tokenizations */
-	private volatile @Nullable TokenizerThread tokenizerThread;
-	private volatile boolean tokenizerThreadHasWork;
-	private TMTokenizationSupport tokenizer = lateNonNull();
+	/** The scheduler running the {@link #tokenizerTask} */
+	private final TokenizerScheduler tokenizerScheduler;
 
-	/** package visibility for tests **/
-	final ArrayList<LineTokens> lines;
+	/** The background task performing async line tokenizations */
+	private volatile @Nullable TokenizerTask tokenizerTask;
+	private volatile boolean tokenizerTaskHasWork;
+	private volatile TMTokenizationSupport tokenizer = lateNonNull();
+	private @Nullable TokenizationCache tokenizationCache;
+
+	/**
+	 * The tokenization state of each line. A gap buffer is used, so that inserting or removing lines does not shift all
+	 * following lines, but only the lines between the current and the previous edit location.
+	 * <p>
+	 * package visibility for tests
+	 **/
+	final GapList<LineTokens> lines;
 	final Object linesWriteLock;
 
-	private final BlockingQueue<Edit> edits = new LinkedBlockingQueue<>();
+	private final Queue<Edit> edits = new ConcurrentLinkedQueue<>();
+	private volatile long lastEditNanoTime = System.nanoTime() - EDIT_BURST_INTERVAL_NANOS;
+	/** if the last edit was made shortly after the previous edit, e.g. by a formatter or a search&replace all */
+	private volatile boolean lastEditIsPartOfBurst;
+
+	/**
+	 * @param endLineIndex inclusive
+	 */
+	private record VisibleRange(int startLineIndex, int endLineIndex) {
+	}
+
+	/** The lines currently visible in the editor, which are tokenized with priority **/
+	private volatile @Nullable VisibleRange visibleRange;
+	private volatile boolean visibleRangeChanged;
+
+	/** If the model belongs to the focused editor, which is tokenized with priority **/
+	private volatile boolean focused;
 
 	protected TMModel(final int initialNumberOfLines) {
-		lines = new ArrayList<>(Math.max(10, initialNumberOfLines));
+		this(initialNumberOfLines, TokenizerScheduler.getDefault());
+	}
+
+	protected TMModel(final int initialNumberOfLines, final TokenizerScheduler tokenizerScheduler) {
+		this.tokenizerScheduler = tokenizerScheduler;
+		lines = new GapList<>(Math.max(10, initialNumberOfLines));
 		linesWriteLock = lines;
 		onLinesReplaced(0, 0, initialNumberOfLines);
 	}
@@ -120,64 +156,73 @@ private void logDebug(final String msg, final Object... args) {
 			return;
 		final var t = Thread.currentThread();
 		final var caller = t.getStackTrace()[2];
-		final var threadName = t.getName().endsWith(TokenizerThread.class.getSimpleName()) ? "tknz" : t.getName();
+		final var threadName = t.getName().startsWith(TokenizerScheduler.THREAD_NAME_PREFIX) ? "tknz" : t.getName();
 		LOGGER.log(DEBUG, "[" + threadName + "] " + caller.getMethodName() + String.format(msg, args));
 	}
 
 	/**
-	 * The {@link TokenizerThread} continuously runs tokenizing in background on the lines found in {@link TMModel#lines}.
+	 * The {@link TokenizerTask} tokenizes in background the lines found in {@link TMModel#lines}.
 	 *
 	 * The {@link TMModel#lines} are expected to be accessed through {@link TMModel#getLines()} and manipulated by the UI
-	 * part to inform of needs to (re)tokenize area, then the {@link TokenizerThread} processes them and emits events through the model.
+	 * part to inform of needs to (re)tokenize area, then the {@link TokenizerTask} processes them and emits events through the model.
+	 *
+	 * The task is run by the {@link #tokenizerScheduler} in time slices whenever new edits arrive or out-of-date lines remain.
 	 *
 	 * UI elements are supposed to subscribe and react to the events with
 	 * {@link TMModel#addModelTokensChangedListener(ModelTokensChangedListenerEvent.Listener)}.
 	 */
-	private final class TokenizerThread extends Thread {
+	private final class TokenizerTask extends TokenizerScheduler.Task {
 
 		/** max time allowed to tokenize a single line */
 		private static final Duration MAX_TIME_PER_LINE_TOKENIZATION = Duration.ofSeconds(1);
 
-		/** max time in milliseconds for multi-line validations before a consolidated {@link ModelTokensChangedEvent} is emitted */
-		private static final int MAX_TIME_PER_MULTI_LINE_VALIDATIONS = Duration.ofMillis(200).getNano();
+		/**
+		 * max number of lines above the visible range that are searched for a tokenized line whose end state is used as
+		 * start state for the tokenization of the visible range
+		 */
+		private static final int MAX_LINES_TO_VISIBLE_RANGE_CHECKPOINT = 100;
+
+		private long deadlineNanoTime;
 
-		/** Creates a new background thread. The thread runs with minimal priority. */
-		TokenizerThread() {
-			super("tm4e." + TokenizerThread.class.getSimpleName());
-			setPriority(Thread.MIN_PRIORITY);
-			setDaemon(true);
+		private boolean isCancelled() {
+			return tokenizerTask != this;
 		}
 
 		@Override
-		public void run() {
-			try {
-				// loop as long as the thread is active
-				while (tokenizerThread == this) {
-					tokenizerThreadHasWork = !(isAllTokensAreValid() && edits.isEmpty());
-
-					if (!tokenizerThreadHasWork || !edits.isEmpty()) {
-						// wait for the first edit
-						applyEdit(edits.take());
-
-						// poll all subsequent edits
-						for (;;) {
-							// wait up to 50ms for the next edit, so that edits made in fast succession (e.g. by a formatter) are applied
-							// in one go before the token revalidation loop happens
-							final var edit = edits.poll(50, TimeUnit.MILLISECONDS);
-							if (edit == null) {
-								break;
-							}
-							applyEdit(edit);
-						}
-					}
+		boolean isPriority() {
+			return focused;
+		}
 
-					revalidateTokens();
+		@Override
+		boolean run(final long deadlineNanoTime) {
+			if (isCancelled())
+				return false;
+			this.deadlineNanoTime = deadlineNanoTime;
+
+			// apply all queued edits
+			boolean editsApplied = false;
+			for (var edit = edits.poll(); edit != null; edit = edits.poll()) {
+				applyEdit(edit);
+				editsApplied = true;
+			}
+			// single edits, e.g. by typing, are revalidated right away, while revalidation is deferred as long as a burst of
+			// edits made in fast succession (e.g. by a formatter) continues, so that they are applied in one go
+			if (editsApplied && lastEditIsPartOfBurst) {
+				final long nanosSinceLastEdit = System.nanoTime() - lastEditNanoTime;
+				if (nanosSinceLastEdit < EDIT_BURST_INTERVAL_NANOS) {
+					tokenizerTaskHasWork = true;
+					tokenizerScheduler.schedule(this, Duration.ofNanos(EDIT_BURST_INTERVAL_NANOS - nanosSinceLastEdit));
+					return false;
 				}
-			} catch (final InterruptedException ex) {
-				interrupt();
-			} finally {
-				tokenizerThreadHasWork = false;
 			}
+
+			if (!isAllTokensAreValid()) {
+				tokenizerTaskHasWork = true;
+				revalidateTokens();
+			}
+
+			tokenizerTaskHasWork = !(isAllTokensAreValid() && edits.isEmpty());
+			return !isCancelled() && !isAllTokensAreValid();
 		}
 
 		private int firstLineToRevalidate = -1;
@@ -191,17 +236,19 @@ private void setAllTokensAreValid() {
 		}
 
 		/**
-		 * revalidates tokens of lines starting at {@link #firstLineToRevalidate} until all lines are processed or new {@link Edit} arrive.
+		 * revalidates tokens of lines starting at {@link #firstLineToRevalidate} until all lines are processed, new {@link Edit}s
+		 * arrive or the time slice of the task is used up.
 		 */
 		private void revalidateTokens() {
+			tokenizeVisibleRange();
+
 			final int startLineIndex = firstLineToRevalidate;
 			final int startLineNumber = startLineIndex + 1;
 			if (DEBUG_LOGGING) {
 				logDebug("(%d)", startLineNumber);
 			}
 
-			long startNanoTime = System.nanoTime();
-			var changedRanges = new ArrayList<Range>();
+			final var changedRanges = new ArrayList<Range>();
 			Range prevRange = null;
 			var prevLineTokens = getLineTokensOrNull(startLineIndex - 1);
 
@@ -211,8 +258,10 @@ private void revalidateTokens() {
 			// iterate over all lines from startLineIndex to end of file to check if (re)tokenization is required
 			for (currLineIndex = startLineIndex; currLineIndex < linesCount; currLineIndex++) {
 
-				// check if TokenizerThread is still running and no new edits are queued
-				if (isInterrupted() || !edits.isEmpty()) {
+				// check if the task is still active, no new edits are queued, the visible range is unchanged and the time slice
+				// is not used up
+				if (isCancelled() || !edits.isEmpty() || visibleRangeChanged
+						|| currLineIndex > startLineIndex && System.nanoTime() >= deadlineNanoTime) {
 					break;
 				}
 
@@ -244,25 +293,7 @@ private void revalidateTokens() {
 				if (DEBUG_LOGGING) {
 					logDebug("(%d) >> tokenizing line %d...", startLineNumber, currLineNumber);
 				}
-				TokenizationResult r;
-				try {
-					final String lineText = getLineText(currLineIndex);
-					r = tokenizer.tokenize(lineText, currLineTokens.startState, 0, MAX_TIME_PER_LINE_TOKENIZATION);
-				} catch (final Exception ex) {
-					LOGGER.log(ERROR, ex.toString());
-					r = new TokenizationResult(new ArrayList<>(1), 0, currLineTokens.startState, true);
-				}
-
-				// check if complete line was tokenized
-				if (r.stoppedEarly) {
-					// treat the rest of the line as one default token
-					r.tokens.add(new TMToken(r.actualStopOffset, "", Collections.emptyList(), null));
-					// Use the line's starting state as end state in case of incomplete tokenization
-					r.endState = currLineTokens.startState;
-				}
-
-				currLineTokens.endState = r.endState;
-				currLineTokens.tokens = r.tokens;
+				tokenizeLine(currLineIndex, currLineTokens);
 				prevLineTokens = currLineTokens;
 				firstLineToRevalidate = currLineIndex + 1;
 
@@ -273,19 +304,6 @@ private void revalidateTokens() {
 					prevRange = new Range(currLineNumber);
 					changedRanges.add(prevRange); // insert new range
 				}
-
-				// if MAX_TIME_PER_MULTI_LINE_VALIDATIONS reached, notify listeners about line changes
-				if (System.nanoTime() - startNanoTime >= MAX_TIME_PER_MULTI_LINE_VALIDATIONS) {
-					if (DEBUG_LOGGING) {
-						logDebug("(%d) >> changedRanges: %s", startLineNumber, changedRanges);
-					}
-					if (!changedRanges.isEmpty()) {
-						listeners.dispatchEvent(changedRanges, TMModel.this);
-						changedRanges = new ArrayList<>();
-					}
-					prevRange = null;
-					startNanoTime = System.nanoTime();
-				}
 			}
 
 			// notify listeners about remaining line changes
@@ -294,7 +312,112 @@ private void revalidateTokens() {
 			}
 			listeners.dispatchEvent(changedRanges, TMModel.this);
 
-			setAllTokensAreValid();
+			// only if the loop was not interrupted by new edits, a changed visible range or the end of the time slice
+			if (currLineIndex >= linesCount) {
+				setAllTokensAreValid();
+			}
+		}
+
+		/**
+		 * Tokenizes the not yet tokenized lines of the visible range ahead of the lines above it.
+		 * <p>
+		 * The tokenization starts with the end state of the nearest tokenized line above the visible range, or if there
+		 * is none within {@link #MAX_LINES_TO_VISIBLE_RANGE_CHECKPOINT} lines, with the initial state of the grammar.
+		 * Since the states of these lines may be outdated, the results are only a guess. They are checked by
+		 * {@link #revalidateTokens()} once the preceding lines are validated and are only re-tokenized if the start
+		 * state turns out to be different.
+		 */
+		private void tokenizeVisibleRange() {
+			visibleRangeChanged = false;
+			final var visibleRange = TMModel.this.visibleRange;
+			if (visibleRange == null || isAllTokensAreValid())
+				return;
+
+			final int linesCount = lines.size();
+			final int startLineIndex = visibleRange.startLineIndex;
+			final int endLineIndex = Math.min(visibleRange.endLineIndex, linesCount - 1);
+
+			// the lines near the first line to revalidate are reached by the regular revalidation in no time
+			if (startLineIndex <= firstLineToRevalidate + MAX_LINES_TO_VISIBLE_RANGE_CHECKPOINT || startLineIndex > endLineIndex)
+				return;
+
+			boolean hasUntokenizedLines = false;
+			for (int i = startLineIndex; i <= endLineIndex; i++) {
+				if (lines.get(i).tokens == null) {
+					hasUntokenizedLines = true;
+					break;
+				}
+			}
+			if (!hasUntokenizedLines)
+				return;
+
+			// find the nearest checkpoint above the visible range
+			int lineIndex = Math.max(0, startLineIndex - MAX_LINES_TO_VISIBLE_RANGE_CHECKPOINT);
+			IStateStack state = tokenizer.getInitialState();
+			for (int i = startLineIndex - 1; i >= lineIndex; i--) {
+				final var endState = lines.get(i).endState;
+				if (endState != null) {
+					lineIndex = i + 1;
+					state = endState;
+					break;
+				}
+			}
+
+			if (DEBUG_LOGGING) {
+				logDebug("(%d-%d) >> tokenizing from line %d", startLineIndex + 1, endLineIndex + 1, lineIndex + 1);
+			}
+
+			final var changedRanges = new ArrayList<Range>();
+			Range prevRange = null;
+			for (; lineIndex <= endLineIndex; lineIndex++) {
+				if (isCancelled() || !edits.isEmpty())
+					break;
+
+				final var lineTokens = lines.get(lineIndex);
+				final var endState = lineTokens.endState;
+				if (lineTokens.tokens != null && endState != null) {
+					state = endState;
+					continue;
+				}
+
+				lineTokens.startState = state;
+				tokenizeLine(lineIndex, lineTokens);
+				state = castNonNull(lineTokens.endState);
+
+				final int lineNumber = lineIndex + 1;
+				if (prevRange != null && prevRange.toLineNumber == lineNumber - 1) {
+					prevRange.toLineNumber = lineNumber;
+				} else {
+					prevRange = new Range(lineNumber);
+					changedRanges.add(prevRange);
+				}
+			}
+			listeners.dispatchEvent(changedRanges, TMModel.this);
+		}
+
+		/**
+		 * Tokenizes the given line based on its start state and updates its tokens and end state.
+		 */
+		private void tokenizeLine(final int lineIndex, final LineTokens lineTokens) {
+			TokenizationResult r;
+			try {
+				final String lineText = getLineText(lineIndex);
+				r = tokenizer.tokenize(lineText, lineTokens.startState, 0, MAX_TIME_PER_LINE_TOKENIZATION);
+			} catch (final Exception ex) {
+				LOGGER.log(ERROR, ex.toString());
+				r = new TokenizationResult(new ArrayList<>(1), 0, lineTokens.startState, true);
+			}
+
+			// check if complete line was tokenized
+			if (r.stoppedEarly) {
+				// treat the rest of the line as one default token
+				r.tokens.add(new TMToken(r.actualStopOffset, "", Collections.emptyList(), null));
+				// Use the line's starting state as end state in case of incomplete tokenization
+				r.endState = lineTokens.startState;
+			}
+
+			lineTokens.endState = r.endState;
+			lineTokens.tokens = r.tokens;
 		}
 
 		private void applyEdit(final Edit edit) {
@@ -363,7 +486,7 @@ private void applyEdit(final Edit edit) {
 
 	@Override
 	public BackgroundTokenizationState getBackgroundTokenizationState() {
-		return tokenizerThreadHasWork ? BackgroundTokenizationState.IN_PROGRESS : BackgroundTokenizationState.COMPLETED;
+		return tokenizerTaskHasWork ? BackgroundTokenizationState.IN_PROGRESS : BackgroundTokenizationState.COMPLETED;
 	}
 
 	@Override
@@ -375,14 +498,28 @@ public BackgroundTokenizationState getBackgroundTokenizationState() {
 	public synchronized void setGrammar(final IGrammar grammar) {
 		if (!Objects.equals(grammar, this.grammar)) {
 			this.grammar = grammar;
-			final var tokenizer = this.tokenizer = new TMTokenizationSupport(grammar);
+			final var tokenizer = this.tokenizer = new TMTokenizationSupport(grammar, StateStack.NULL, tokenizationCache);
 			synchronized (linesWriteLock) {
 				if (!lines.isEmpty()) {
 					lines.get(0).startState = tokenizer.getInitialState();
 				}
 				onLinesReplaced(0, 1, 1);
 			}
-			startTokenizerThread();
+			startTokenizerTask();
+		}
+	}
+
+	/**
+	 * Sets a cache of line tokenization results, which can be shared with other models, e.g. to speed up the
+	 * tokenization of lines which occur in many documents. By default no cache is used.
+	 */
+	public synchronized void setTokenizationCache(final @Nullable TokenizationCache tokenizationCache) {
+		if (tokenizationCache == this.tokenizationCache)
+			return;
+		this.tokenizationCache = tokenizationCache;
+		final var grammar = this.grammar;
+		if (grammar != null) {
+			tokenizer = new TMTokenizationSupport(grammar, tokenizer.getInitialState(), tokenizationCache);
 		}
 	}
 
@@ -408,12 +545,48 @@ public void onLinesReplaced(final int lineIndex, final int replacedLinesCount, f
 		}
 
 		edits.add(new Edit(lineIndex, replacedLinesCount, replacementLinesCount));
+		final long now = System.nanoTime();
+		lastEditIsPartOfBurst = now - lastEditNanoTime < EDIT_BURST_INTERVAL_NANOS;
+		lastEditNanoTime = now;
+
+		final var task = tokenizerTask;
+		if (task != null) {
+			tokenizerTaskHasWork = true;
+			tokenizerScheduler.schedule(task);
+		}
+	}
+
+	@Override
+	public void setVisibleRange(final int startLineIndex, final int endLineIndex) {
+		if (startLineIndex < 0 || endLineIndex < startLineIndex)
+			return;
+
+		final var visibleRange = this.visibleRange;
+		if (visibleRange == null || visibleRange.startLineIndex != startLineIndex || visibleRange.endLineIndex != endLineIndex) {
+			this.visibleRange = new VisibleRange(startLineIndex, endLineIndex);
+			visibleRangeChanged = true;
+		}
+	}
+
+	/**
+	 * Informs the model whether it belongs to the focused editor. The background tokenization of focused models takes
+	 * precedence over the tokenization of other models using the same {@link TokenizerScheduler}, see
+	 * {@link TokenizerScheduler#MAX_PRIORITY_BURST}.
+	 */
+	public void setFocused(final boolean focused) {
+		if (this.focused == focused)
+			return;
+		this.focused = focused;
+		final var task = tokenizerTask;
+		if (task != null) {
+			tokenizerScheduler.reprioritize(task);
+		}
 	}
 
 	@Override
 	public synchronized boolean addModelTokensChangedListener(final ModelTokensChangedEvent.Listener listener) {
 		if (listeners.add(listener)) {
-			startTokenizerThread();
+			startTokenizerTask();
 			return true;
 		}
 		return false;
@@ -423,7 +596,7 @@ public synchronized boolean addModelTokensChangedListener(final ModelTokensChang
 	public synchronized boolean removeModelTokensChangedListener(final ModelTokensChangedEvent.Listener listener) {
 		if (listeners.remove(listener)) {
 			if (listeners.isEmpty()) {
-				stopTokenizerThread(); // no need to keep tokenizing if no-one cares
+				stopTokenizerTask(); // no need to keep tokenizing if no-one cares
 			}
 			return true;
 		}
@@ -432,27 +605,28 @@ public synchronized boolean removeModelTokensChangedListener(final ModelTokensCh
 
 	@Override
 	public void dispose() {
-		stopTokenizerThread();
+		stopTokenizerTask();
 	}
 
-	private synchronized void startTokenizerThread() {
+	private synchronized void startTokenizerTask() {
 		if (grammar != null && listeners.isNotEmpty()) {
-			var thread = tokenizerThread;
-			if (thread == null || !thread.isAlive() || thread.isInterrupted()) {
-				thread = tokenizerThread = new TokenizerThread();
-				thread.start();
+			var task = tokenizerTask;
+			if (task == null) {
+				// the edits queued so far are applied in one go anyway
+				lastEditIsPartOfBurst = false;
+				task = tokenizerTask = new TokenizerTask();
+				tokenizerScheduler.schedule(task);
 			}
 		}
 	}
 
-	/** Interrupt the thread if running. */
-	private synchronized void stopTokenizerThread() {
-		final var thread = tokenizerThread;
-		if (thread == null)
+	/** Cancel the task if running. */
+	private synchronized void stopTokenizerTask() {
+		if (tokenizerTask == null)
 			return;
 
-		thread.interrupt();
-		tokenizerThread = null;
+		tokenizerTask = null;
+		tokenizerTaskHasWork = false;
 	}
 
 	@Override
@@ -52,14 +52,24 @@ public class TMTokenizationSupport implements ITokenizationSupport {
 	private final IGrammar _grammar;
 	private final IStateStack _initialState;
 	private final DecodeMap decodeMap = new DecodeMap();
+	private final @Nullable TokenizationCache cache;
 
 	public TMTokenizationSupport(final IGrammar grammar) {
 		this(grammar, StateStack.NULL);
 	}
 
 	public TMTokenizationSupport(final IGrammar grammar, final IStateStack initialState) {
+		this(grammar, initialState, null);
+	}
+
+	/**
+	 * @param cache an optional cache, possibly shared with other instances, used for tokenizations with an
+	 *            <code>offsetDelta</code> of 0
+	 */
+	public TMTokenizationSupport(final IGrammar grammar, final IStateStack initialState, final @Nullable TokenizationCache cache) {
 		this._grammar = grammar;
 		_initialState = initialState;
+		this.cache = cache;
 	}
 
 	@Override
@@ -78,6 +88,21 @@ public TokenizationResult tokenize(final String line,
 			final int offsetDelta,
 			final @Nullable Duration timeLimit) {
 
+		final var cache = this.cache;
+		if (cache != null && state != null && offsetDelta == 0) {
+			final var cachedResult = cache.get(_grammar, line, state);
+			if (cachedResult != null)
+				return cachedResult;
+			return cache.put(_grammar, line, state, tokenizeUncached(line, state, 0, timeLimit));
+		}
+		return tokenizeUncached(line, state, offsetDelta, timeLimit);
+	}
+
+	private TokenizationResult tokenizeUncached(final String line,
+			final @Nullable IStateStack state,
+			final int offsetDelta,
+			final @Nullable Duration timeLimit) {
+
 		final var tokenizationResult = _grammar.tokenizeLine(line, state, timeLimit);
 		final var tokens = (Token[]) tokenizationResult.getTokens();
 
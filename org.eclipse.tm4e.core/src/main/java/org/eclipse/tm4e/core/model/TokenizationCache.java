@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.model;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.grammar.IGrammar;
+import org.eclipse.tm4e.core.grammar.IStateStack;
+
+/**
+ * A memory-bounded cache of line tokenization results which can be shared by the {@link TMTokenizationSupport}s of
+ * multiple documents, so that lines occurring in many documents, e.g. license headers or imports, are only tokenized
+ * once.
+ * <p>
+ * Results are keyed by grammar, start state and line text. Since the end state of a cached line is equal to the
+ * start state of the next line, consecutive identical lines of different documents hit the cache as well. The least
+ * recently used results are evicted once {@link #getMaxEntries()} is exceeded. Lines longer than
+ * {@link #MAX_LINE_LENGTH} and lines whose tokenization stopped early are not cached.
+ * <p>
+ * Thread-safe. The cached states are shared between documents and threads without copying them, which is safe since
+ * the grammar does not modify a state once it returned it as the end state of a line.
+ */
+public final class TokenizationCache {
+
+	/** max length of lines that are cached */
+	public static final int MAX_LINE_LENGTH = 1_000;
+
+	private record Key(IGrammar grammar, IStateStack startState, String lineText) {
+	}
+
+	private record Entry(List<TMToken> tokens, int actualStopOffset, IStateStack endState) {
+	}
+
+	private final int maxEntries;
+
+	/** guarded by itself */
+	private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	/**
+	 * @param maxEntries max number of cached lines
+	 */
+	public TokenizationCache(final int maxEntries) {
+		if (maxEntries < 1)
+			throw new IllegalArgumentException("maxEntries must be greater than 0 but was " + maxEntries);
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * @return the cached result of tokenizing the given line with the given start state, or null if not cached
+	 */
+	@Nullable
+	TokenizationResult get(final IGrammar grammar, final String lineText, final IStateStack startState) {
+		if (lineText.length() > MAX_LINE_LENGTH)
+			return null;
+
+		final Entry entry;
+		synchronized (entries) {
+			entry = entries.get(new Key(grammar, startState, lineText));
+			if (entry == null) {
+				missCount++;
+				return null;
+			}
+			hitCount++;
+		}
+		// a new result instance is returned, since TMModel modifies the end state of results that stopped early
+		return new TokenizationResult(entry.tokens, entry.actualStopOffset, entry.endState, false);
+	}
+
+	/**
+	 * Caches the given result of tokenizing the given line with the given start state.
+	 *
+	 * @return the result to be used by the caller, which shares the tokens with the cache
+	 */
+	TokenizationResult put(final IGrammar grammar, final String lineText, final IStateStack startState,
+			final TokenizationResult result) {
+		if (lineText.length() > MAX_LINE_LENGTH || result.stoppedEarly)
+			return result;
+
+		final var entry = new Entry(List.copyOf(result.tokens), result.actualStopOffset, result.endState);
+		synchronized (entries) {
+			entries.put(new Key(grammar, startState, lineText), entry);
+			if (entries.size() > maxEntries) {
+				final var eldest = entries.keySet().iterator();
+				eldest.next();
+				eldest.remove();
+				evictionCount++;
+			}
+		}
+		return new TokenizationResult(entry.tokens, entry.actualStopOffset, entry.endState, false);
+	}
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * @return the number of lookups that found a cached result
+	 */
+	public long getHitCount() {
+		synchronized (entries) {
+			return hitCount;
+		}
+	}
+
+	/**
+	 * @return the number of lookups of cacheable lines that did not find a cached result
+	 */
+	public long getMissCount() {
+		synchronized (entries) {
+			return missCount;
+		}
+	}
+
+	/**
+	 * @return the number of results that were removed to stay within {@link #getMaxEntries()}
+	 */
+	public long getEvictionCount() {
+		synchronized (entries) {
+			return evictionCount;
+		}
+	}
+}
@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.model;
+
+import static java.lang.System.Logger.Level.*;
+
+import java.lang.System.Logger;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Runs the background tokenization of {@link TMModel}s on a shared, bounded pool of threads instead of one thread per
+ * model.
+ * <p>
+ * Each model with pending work is processed in time slices of at most {@link #TIME_SLICE}, after which the next model
+ * in line is processed. Models are processed round-robin. Focused models (see {@link TMModel#setFocused(boolean)}) are
+ * queued separately and processed first, but after {@link #MAX_PRIORITY_BURST} consecutive time slices of focused
+ * models a waiting unfocused model gets a time slice, so that other models are not starved.
+ * <p>
+ * Pool threads are created on demand and terminate after being idle for {@link #KEEP_ALIVE}.
+ */
+public final class TokenizerScheduler {
+
+	private static final Logger LOGGER = System.getLogger(TokenizerScheduler.class.getName());
+
+	static final String THREAD_NAME_PREFIX = "tm4e.TokenizerThread";
+
+	/** max time a model is processed before the next queued model gets its turn */
+	public static final Duration TIME_SLICE = Duration.ofMillis(100);
+
+	/**
+	 * max number of consecutive time slices of focused models while unfocused models are waiting, before an unfocused
+	 * model gets a time slice
+	 */
+	public static final int MAX_PRIORITY_BURST = 4;
+
+	/** time after which idle pool threads terminate */
+	public static final Duration KEEP_ALIVE = Duration.ofSeconds(30);
+
+	/** default number of pool threads, see {@link #getDefault()} */
+	public static final int DEFAULT_MAX_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+	private static volatile @Nullable TokenizerScheduler defaultScheduler;
+
+	/**
+	 * @return the scheduler used by {@link TMModel}s that are not explicitly configured with a scheduler. It uses
+	 *         {@link #DEFAULT_MAX_THREADS} platform threads with minimal priority.
+	 */
+	public static TokenizerScheduler getDefault() {
+		var scheduler = defaultScheduler;
+		if (scheduler == null) {
+			synchronized (TokenizerScheduler.class) {
+				scheduler = defaultScheduler;
+				if (scheduler == null) {
+					scheduler = defaultScheduler = new TokenizerScheduler(DEFAULT_MAX_THREADS, false);
+				}
+			}
+		}
+		return scheduler;
+	}
+
+	/**
+	 * The unit of work of a single model. A task is never run by more than one pool thread at a time.
+	 */
+	abstract static class Task {
+		private static final int IDLE = 0;
+		private static final int QUEUED = 1;
+		private static final int RUNNING = 2;
+		private static final int RUNNING_RESCHEDULED = 3;
+
+		private final AtomicInteger state = new AtomicInteger(IDLE);
+
+		/**
+		 * @param deadlineNanoTime the {@link System#nanoTime()} at which the task should return
+		 *
+		 * @return true if the task has remaining work and must be run again
+		 */
+		abstract boolean run(long deadlineNanoTime);
+
+		/**
+		 * @return true if the task is to be run before the other queued tasks
+		 */
+		abstract boolean isPriority();
+	}
+
+	@SuppressWarnings("resource") // terminated by shutdown()
+	private final ScheduledThreadPoolExecutor executor;
+	private final Queue<Task> priorityQueue = new ConcurrentLinkedQueue<>();
+	private final Queue<Task> queue = new ConcurrentLinkedQueue<>();
+
+	/** number of consecutive time slices of tasks from the {@link #priorityQueue} */
+	private final AtomicInteger priorityBurst = new AtomicInteger();
+	private final long timeSliceNanos = TIME_SLICE.toNanos();
+
+	/**
+	 * @param maxThreads the max number of threads tokenizing in parallel
+	 * @param useVirtualThreads if true virtual threads are used instead of platform threads with minimal priority
+	 */
+	@SuppressWarnings("resource") // the executor is terminated by shutdown()
+	public TokenizerScheduler(final int maxThreads, final boolean useVirtualThreads) {
+		if (maxThreads < 1)
+			throw new IllegalArgumentException("maxThreads must be greater than 0 but was " + maxThreads);
+
+		final ThreadFactory threadFactory;
+		if (useVirtualThreads) {
+			threadFactory = Thread.ofVirtual().name(THREAD_NAME_PREFIX + "-", 1).factory();
+		} else {
+			final var platformThreadFactory = Thread.ofPlatform().name(THREAD_NAME_PREFIX + "-", 1).daemon(true).factory();
+			threadFactory = runnable -> {
+				final var thread = platformThreadFactory.newThread(runnable);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			};
+		}
+		executor = new ScheduledThreadPoolExecutor(maxThreads, threadFactory);
+		executor.setKeepAliveTime(KEEP_ALIVE.toMillis(), TimeUnit.MILLISECONDS);
+		executor.allowCoreThreadTimeOut(true);
+		executor.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * Queues the given task unless it is already queued. If the task is currently running, it is queued again once the
+	 * current run is completed.
+	 */
+	void schedule(final Task task) {
+		for (;;) {
+			switch (task.state.get()) {
+				case Task.IDLE:
+					if (task.state.compareAndSet(Task.IDLE, Task.QUEUED)) {
+						enqueue(task);
+						return;
+					}
+					break;
+				case Task.RUNNING:
+					if (task.state.compareAndSet(Task.RUNNING, Task.RUNNING_RESCHEDULED))
+						return;
+					break;
+				default: // already queued
+					return;
+			}
+		}
+	}
+
+	/**
+	 * Queues the given task after the given delay.
+	 */
+	void schedule(final Task task, final Duration delay) {
+		if (!executor.isShutdown()) {
+			executor.schedule(() -> schedule(task), delay.toNanos(), TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Moves the given task to the queue matching its current {@link Task#isPriority() priority} if it is queued, e.g.
+	 * after the focus moved to another model.
+	 */
+	void reprioritize(final Task task) {
+		if (executor.isShutdown())
+			return;
+
+		final boolean isPriority = task.isPriority();
+		if ((isPriority ? queue : priorityQueue).remove(task)) {
+			(isPriority ? priorityQueue : queue).offer(task);
+			// a pool thread may have found the queues empty while the task was moved
+			executor.execute(this::runNextTask);
+		}
+	}
+
+	private void enqueue(final Task task) {
+		if (executor.isShutdown())
+			return;
+
+		(task.isPriority() ? priorityQueue : queue).offer(task);
+		executor.execute(this::runNextTask);
+	}
+
+	private @Nullable Task pollNextTask() {
+		if (priorityBurst.get() < MAX_PRIORITY_BURST || queue.isEmpty()) {
+			final var task = priorityQueue.poll();
+			if (task != null) {
+				priorityBurst.incrementAndGet();
+				return task;
+			}
+		}
+		priorityBurst.set(0);
+		final var task = queue.poll();
+		return task == null ? priorityQueue.poll() : task;
+	}
+
+	private void runNextTask() {
+		final var task = pollNextTask();
+		if (task == null)
+			return;
+
+		task.state.set(Task.RUNNING);
+		boolean hasMoreWork = false;
+		try {
+			hasMoreWork = task.run(System.nanoTime() + timeSliceNanos);
+		} catch (final RuntimeException ex) {
+			LOGGER.log(ERROR, ex.getMessage(), ex);
+		} finally {
+			if (hasMoreWork || !task.state.compareAndSet(Task.RUNNING, Task.IDLE)) {
+				task.state.set(Task.QUEUED);
+				enqueue(task);
+			}
+		}
+	}
+
+	/**
+	 * Stops all pool threads. Pending tokenizations of models using this scheduler are discarded.
+	 */
+	public void shutdown() {
+		if (this == defaultScheduler)
+			throw new IllegalStateException("The default scheduler cannot be shut down");
+		executor.shutdownNow();
+		priorityQueue.clear();
+		queue.clear();
+	}
+}
@@ -16,6 +16,7 @@
  */
 package org.eclipse.tm4e.core.registry;
 
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
 
@@ -44,4 +45,14 @@ public interface IRegistryOptions {
 	default @Nullable Collection<String> getInjections(@SuppressWarnings("unused") final String scopeName) {
 		return null;
 	}
+
+	/**
+	 * custom tm4e code, not from upstream
+	 *
+	 * @return a directory in which snapshots of parsed grammars are persisted across JVM restarts, or
+	 *         <code>null</code> to always parse grammars from their source
+	 */
+	default @Nullable Path getGrammarCacheDir() {
+		return null;
+	}
 }
@@ -31,6 +31,7 @@
 import org.eclipse.tm4e.core.internal.grammar.BalancedBracketSelectors;
 import org.eclipse.tm4e.core.internal.grammar.dependencies.ScopeDependencyProcessor;
 import org.eclipse.tm4e.core.internal.grammar.raw.RawGrammar;
+import org.eclipse.tm4e.core.internal.grammar.raw.RawGrammarCache;
 import org.eclipse.tm4e.core.internal.grammar.raw.RawGrammarReader;
 import org.eclipse.tm4e.core.internal.registry.SyncRegistry;
 import org.eclipse.tm4e.core.internal.theme.Theme;
@@ -51,6 +52,7 @@ public class Registry {
 	private final IRegistryOptions _options;
 	private final SyncRegistry _syncRegistry;
 	private final Map<String, Boolean> _ensureGrammarCache = new HashMap<>();
+	private final @Nullable RawGrammarCache _rawGrammarCache;
 
 	public Registry() {
 		this(new IRegistryOptions() {
@@ -60,6 +62,8 @@ public Registry() {
 	public Registry(final IRegistryOptions options) {
 		this._options = options;
 		this._syncRegistry = new SyncRegistry(Theme.createFromRawTheme(options.getTheme(), options.getColorMap()));
+		final var grammarCacheDir = options.getGrammarCacheDir();
+		this._rawGrammarCache = grammarCacheDir == null ? null : new RawGrammarCache(grammarCacheDir);
 	}
 
 	/**
@@ -157,7 +161,7 @@ protected boolean _doLoadSingleGrammar(final String scopeName) {
 			return false;
 		}
 		try {
-			final var grammar = RawGrammarReader.readGrammar(grammarSource);
+			final var grammar = _readGrammar(grammarSource);
 
 			// this code is specific to the tm4e project and not from upstream:
 			// adjust the scopeName in case the name as defined inside the TextMate grammar file
@@ -182,7 +186,7 @@ public IGrammar addGrammar(
 			final @Nullable Integer initialLanguage,
 			final @Nullable Map<String, Integer> embeddedLanguages) throws TMException {
 		try {
-			final var rawGrammar = RawGrammarReader.readGrammar(source);
+			final var rawGrammar = _readGrammar(source);
 			this._syncRegistry.addGrammar(rawGrammar,
 					injections == null || injections.isEmpty()
 							? this._options.getInjections(rawGrammar.getScopeName())
@@ -193,6 +197,16 @@ public IGrammar addGrammar(
 		}
 	}
 
+	/**
+	 * custom tm4e code, not from upstream
+	 */
+	private RawGrammar _readGrammar(final IGrammarSource source) throws Exception {
+		final var rawGrammarCache = this._rawGrammarCache;
+		return rawGrammarCache == null
+				? RawGrammarReader.readGrammar(source)
+				: rawGrammarCache.readGrammar(source);
+	}
+
 	/**
 	 * Lookup a grammar. The grammar must first be registered via `loadGrammar` or `addGrammar`.
 	 */
@@ -15,6 +15,13 @@
 public final class BenchmarkRunner {
 
 	private static final Runtime RUNTIME = Runtime.getRuntime();
+
+	/**
+	 * Used to measure the bytes allocated by the benchmark thread, which unlike the heap usage is not affected by
+	 * garbage collections during a round. Allocations of other threads are not included.
+	 */
+	private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
 	private static final String SEPARATOR = "--------------------------------";
 
 	public static void run(final int warmUpRounds, final int benchmarkRounds, final int opsPerBenchmarkRound, final Runnable benchmark)
@@ -67,6 +74,7 @@ private static void runRound(final String label, final int round, final int tota
 			}
 
 			final var startFreeMem = RUNTIME.freeMemory();
+			final var startAllocatedBytes = THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
 			final var startAt = System.currentTimeMillis();
 
 			for (int i = 0; i < iterations; i++) {
@@ -79,12 +87,15 @@ private static void runRound(final String label, final int round, final int tota
 
 			if (measureHeapUsage) {
 				final var heapBytesPerIteration = (startFreeMem - RUNTIME.freeMemory()) / (float) iterations;
+				final var allocatedBytesPerIteration = (THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() - startAllocatedBytes)
+						/ (float) iterations;
 				System.out.println(String.format(
-						" -> result: %,5d ms/round | %,7.2f ops/s | %,5.2f ms/op | %,6.3f MB/op",
+						" -> result: %,5d ms/round | %,7.2f ops/s | %,5.2f ms/op | %,6.3f MB/op | %,7.3f MB allocated/op",
 						durationMS,
 						iterationsPerSecond,
 						durationMSPerIteration,
-						heapBytesPerIteration / 1024 / 1024));
+						heapBytesPerIteration / 1024 / 1024,
+						allocatedBytesPerIteration / 1024 / 1024));
 			} else {
 				System.out.println(String.format(
 						" -> result: %,5d ms/round | %,7.2f ops/s | %,5.2f ms/op",
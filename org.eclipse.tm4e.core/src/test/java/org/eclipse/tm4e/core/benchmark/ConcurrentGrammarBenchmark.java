@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2026 Sebastian Thomschke and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.benchmark;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures how tokenization throughput scales when multiple threads share the same grammar instance.
+ * <p>
+ * One operation tokenizes the source file of the {@link GrammarBenchmark} once per thread, i.e. with linear scaling
+ * the reported ms/op stays constant while the number of threads increases.
+ */
+public final class ConcurrentGrammarBenchmark implements Runnable, AutoCloseable {
+
+	private static final int WARMUP_ROUNDS = 2;
+	private static final int BENCHMARK_ROUNDS = 3;
+	private static final int OPS_PER_BENCHMARK_ROUND = 20;
+
+	public static void main(final String... args) throws Exception {
+		final var singleThreaded = new GrammarBenchmark();
+		final int maxThreads = Runtime.getRuntime().availableProcessors();
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			System.out.println("================================");
+			System.out.println("Threads: " + threads);
+			try (var benchmark = new ConcurrentGrammarBenchmark(singleThreaded, threads)) {
+				BenchmarkRunner.run(WARMUP_ROUNDS, BENCHMARK_ROUNDS, OPS_PER_BENCHMARK_ROUND, benchmark);
+			}
+		}
+	}
+
+	private final GrammarBenchmark benchmark;
+	private final int threads;
+	private final ExecutorService executor;
+
+	ConcurrentGrammarBenchmark(final GrammarBenchmark benchmark, final int threads) {
+		this.benchmark = benchmark;
+		this.threads = threads;
+		executor = Executors.newFixedThreadPool(threads);
+	}
+
+	/**
+	 * Tokenize all lines of the pre-loaded source file on each thread using the same grammar instance
+	 */
+	@Override
+	public void run() {
+		final var futures = new ArrayList<Future<?>>(threads);
+		for (int i = 0; i < threads; i++) {
+			futures.add(executor.submit(benchmark));
+		}
+		try {
+			for (final var future : futures) {
+				future.get();
+			}
+		} catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(ex);
+		} catch (final ExecutionException ex) {
+			throw new RuntimeException(ex.getCause());
+		}
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+}
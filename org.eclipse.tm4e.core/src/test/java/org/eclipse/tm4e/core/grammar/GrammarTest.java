@@ -21,12 +21,15 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.eclipse.tm4e.core.Data;
+import org.eclipse.tm4e.core.internal.grammar.Grammar;
 import org.eclipse.tm4e.core.internal.utils.ResourceUtils;
 import org.eclipse.tm4e.core.registry.IGrammarSource;
 import org.eclipse.tm4e.core.registry.Registry;
@@ -106,6 +109,46 @@ void testTokenizeConcurrent() throws Exception {
 		}
 	}
 
+	@Test
+	void testTokenizeConcurrentYieldsIdenticalTokens() throws Exception {
+		// a fresh grammar, so that both threads also race on compiling the rules and caching the regex matchers
+		final var grammar = new Registry().addGrammar(fromResource(Data.class, "TypeScript.tmLanguage.json"));
+
+		final List<String> expectedTokens;
+		try (var reader = ResourceUtils.getResourceReader(Data.class, "raytracer_tokens.txt")) {
+			expectedTokens = reader.lines().toList();
+		}
+		final List<String> lines;
+		try (var reader = ResourceUtils.getResourceReader(Data.class, "raytracer.ts")) {
+			lines = reader.lines().toList();
+		}
+
+		final var start = new CountDownLatch(1);
+		final Callable<List<String>> tokenizationTask = () -> {
+			start.await();
+			final var tokens = new ArrayList<String>();
+			IStateStack stateStack = null;
+			for (final String line : lines) {
+				final var lineTokens = grammar.tokenizeLine(line, stateStack, null);
+				stateStack = lineTokens.getRuleStack();
+				for (final var token : lineTokens.getTokens()) {
+					tokens.add("Token from " + token.getStartIndex() + " to " + token.getEndIndex() + " with scopes "
+							+ token.getScopes());
+				}
+			}
+			return tokens;
+		};
+
+		try (final var executor = Executors.newFixedThreadPool(2)) {
+			final var tokens1 = executor.submit(tokenizationTask);
+			final var tokens2 = executor.submit(tokenizationTask);
+			start.countDown();
+
+			assertThat(tokens1.get(1, TimeUnit.MINUTES)).isEqualTo(expectedTokens);
+			assertThat(tokens2.get(1, TimeUnit.MINUTES)).isEqualTo(expectedTokens);
+		}
+	}
+
 	@Test
 	void testTokenizeSingleLineExpression() throws Exception {
 		final var registry = new Registry();
@@ -292,6 +335,160 @@ void testTokenizeWithTimeout() throws IOException {
 		}
 	}
 
+	@Test
+	void testTokenizerMetrics() {
+		final var grammar = new Registry().addGrammar(fromResource(Data.class, "JavaScript.tmLanguage"));
+
+		TokenizerMetrics.reset();
+		TokenizerMetrics.setEnabled(true);
+		try {
+			final var state = grammar.tokenizeLine("function add(a, b) {").getRuleStack();
+			grammar.tokenizeLine("  return a + b; }", state, null);
+		} finally {
+			TokenizerMetrics.setEnabled(false);
+		}
+		grammar.tokenizeLine("var disabled = true;");
+
+		final var metrics = TokenizerMetrics.snapshot();
+		assertThat(metrics.getGrammars()).singleElement().satisfies(stats -> {
+			assertThat(stats.scopeName()).isEqualTo("source.js");
+			assertThat(stats.lines()).isEqualTo(2);
+			assertThat(stats.stoppedEarly()).isZero();
+			assertThat(stats.scannerSearches()).isGreaterThanOrEqualTo(2);
+			assertThat(Arrays.stream(stats.lineTimeHistogram()).sum()).isEqualTo(2);
+		});
+		assertThat(metrics.getSlowestRules(3)).hasSizeBetween(1, 3)
+				.allSatisfy(rule -> assertThat(rule.grammarScope()).isEqualTo("source.js"));
+		assertThat(metrics.getSlowestPatterns(5)).hasSize(5)
+				.isSortedAccordingTo((p1, p2) -> Long.compare(p2.nanos(), p1.nanos()));
+		assertThat(metrics.getRegExpSearchCache().misses()).isPositive();
+		assertThat(metrics.getThemeCache().hits() + metrics.getThemeCache().misses()).isPositive();
+		assertThat(metrics.toJson()).contains("\"scopeName\": \"source.js\"", "\"slowestPatterns\"");
+
+		TokenizerMetrics.reset();
+		assertThat(TokenizerMetrics.snapshot().getGrammars()).isEmpty();
+	}
+
+	@Test
+	void testEqualRuleStacksHaveEqualHashCodes() {
+		// separate registries so that the states do not share any scope list instances
+		final var grammar1 = new Registry().addGrammar(fromResource(Data.class, "TypeScript.tmLanguage.json"));
+		final var grammar2 = new Registry().addGrammar(fromResource(Data.class, "TypeScript.tmLanguage.json"));
+
+		final var state1 = grammar1.tokenizeLine("const s = `${ /* a").getRuleStack();
+		final var state2 = grammar2.tokenizeLine("const s = `${ /* b").getRuleStack();
+		assertThat(state1).isNotSameAs(state2).isEqualTo(state2).hasSameHashCodeAs(state2);
+
+		final var state3 = grammar2.tokenizeLine("const s = `${ a").getRuleStack();
+		assertThat(state1).isNotEqualTo(state3);
+		assertThat(state1.hashCode()).isNotEqualTo(state3.hashCode());
+	}
+
+	@Test
+	void testTokenizeLineAbortsCatastrophicBacktracking() {
+		final var registry = new Registry();
+		final var grammar = registry.addGrammar(fromString(IGrammarSource.ContentType.JSON, """
+			{
+				"scopeName": "source.test",
+				"patterns": [
+					{ "match": "^\\\\s+", "name": "indent" },
+					{ "match": "(a+)+$", "name": "catastrophic" }
+				]
+			}
+			"""));
+		final var lineText = "  " + "a".repeat(40) + "b";
+
+		final long start = System.nanoTime();
+		final var result = grammar.tokenizeLine(lineText, null, Duration.ofMillis(100));
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(10));
+		assertThat(result.isStoppedEarly()).isTrue();
+		assertThat(result.getTokens()[0].getScopes()).containsExactly("source.test", "indent");
+
+		// the aborted search is only reported by the grammar that tokenized the line
+		assertThat(((Grammar) grammar).getSearchTimeouts()).containsOnlyKeys("(a+)+$");
+		assertThat(((Grammar) registry.addGrammar(fromResource(Data.class, "JavaScript.tmLanguage"))).getSearchTimeouts()).isEmpty();
+	}
+
+	@Test
+	void testTokenizeLineTimeoutInBeginCapturesReturnsConsistentRuleStack() {
+		final var grammar = new Registry().addGrammar(fromString(IGrammarSource.ContentType.JSON, """
+			{
+				"scopeName": "source.test",
+				"patterns": [
+					{ "match": "^\\\\s+", "name": "indent" },
+					{
+						"begin": "(\\\\w+)=",
+						"end": "\\\\1;",
+						"name": "assignment",
+						"beginCaptures": { "1": { "patterns": [ { "match": "(a+)+$", "name": "catastrophic" } ] } }
+					}
+				]
+			}
+			"""));
+		final var lineText = "  " + "a".repeat(40) + "b=1";
+
+		final var result = grammar.tokenizeLine(lineText, null, Duration.ofMillis(100));
+		assertThat(result.isStoppedEarly()).isTrue();
+
+		// the frame of the begin rule was pushed before its captures timed out, but its end rule with the
+		// back-reference was not resolved yet, so the stack before the begin rule must be returned
+		assertThat(result.getRuleStack()).isEqualTo(grammar.tokenizeLine("  ").getRuleStack());
+		assertThat(grammar.tokenizeLine("x", result.getRuleStack(), null).getTokens()[0].getScopes()).containsExactly("source.test");
+	}
+
+	@Test
+	void testTokenizeDocument() throws IOException {
+		final var grammar = new Registry().addGrammar(fromResource(Data.class, "TypeScript.tmLanguage.json"));
+		final String raytracer;
+		try (var reader = ResourceUtils.getResourceReader(Data.class, "raytracer.ts")) {
+			raytracer = reader.lines().collect(Collectors.joining("\n"));
+		}
+		// the block comment spans multiple chunks so that speculatively tokenized lines must be re-tokenized
+		final String content = raytracer + "\r\n/*\n" + raytracer + "\r*/\n" + raytracer + "\n";
+		final String[] lines = content.split("\r\n|\r|\n", -1);
+
+		final var expected = new ArrayList<ITokenizeLineResult<int[]>>();
+		IStateStack state = null;
+		for (final String line : lines) {
+			final var result = grammar.tokenizeLine2(line, state, null);
+			expected.add(result);
+			state = result.getRuleStack();
+		}
+
+		for (final int parallelism : new int[] { 1, 2, 4 }) {
+			final var actual = grammar.tokenizeDocument(content, parallelism);
+			assertThat(actual).hasSize(lines.length);
+			for (int i = 0; i < lines.length; i++) {
+				assertThat(actual.get(i).getTokens()).as("tokens of line %d", i).isEqualTo(expected.get(i).getTokens());
+				assertThat(actual.get(i).getRuleStack()).as("state of line %d", i).isEqualTo(expected.get(i).getRuleStack());
+			}
+		}
+	}
+
+	@Test
+	void testWarmUp() throws IOException {
+		final var grammar = new Registry().addGrammar(fromResource(Data.class, "TypeScript.tmLanguage.json"));
+		final var warmedUpGrammar = new Registry().addGrammar(fromResource(Data.class, "TypeScript.tmLanguage.json"));
+		final var executor = Executors.newFixedThreadPool(4);
+		try {
+			assertThat(warmedUpGrammar.warmUp(executor)).isPositive();
+			assertThat(warmedUpGrammar.warmUp(executor)).isPositive();
+		} finally {
+			executor.shutdown();
+		}
+
+		final String raytracer;
+		try (var reader = ResourceUtils.getResourceReader(Data.class, "raytracer.ts")) {
+			raytracer = reader.lines().collect(Collectors.joining("\n"));
+		}
+		final var expected = grammar.tokenizeDocument(raytracer, 1);
+		final var actual = warmedUpGrammar.tokenizeDocument(raytracer, 1);
+		assertThat(actual).hasSameSizeAs(expected);
+		for (int i = 0; i < expected.size(); i++) {
+			assertThat(actual.get(i).getTokens()).as("tokens of line %d", i).isEqualTo(expected.get(i).getTokens());
+		}
+	}
+
 	// TODO see https://github.com/microsoft/vscode-textmate/issues/173
 	@Disabled
 	@Test
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.grammar;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNonNull;
+
+import org.eclipse.tm4e.core.Data;
+import org.eclipse.tm4e.core.registry.IGrammarSource;
+import org.eclipse.tm4e.core.registry.IThemeSource;
+import org.eclipse.tm4e.core.registry.Registry;
+import org.junit.jupiter.api.Test;
+
+class AttributedScopeStackTest {
+
+	@Test
+	void testPushReturnsCanonicalNodes() {
+		final var registry = new Registry();
+		final var grammar = (Grammar) registry.addGrammar(IGrammarSource.fromResource(Data.class, "JavaScript.tmLanguage"));
+
+		final var root = castNonNull(grammar.createRootState().contentNameScopesList);
+		assertThat(grammar.createRootState().contentNameScopesList).isSameAs(root);
+
+		final var comment = root.pushAttributed("comment.line.js punctuation.definition.comment.js", grammar);
+		assertThat(comment.getScopeNames()).containsExactly("source.js", "comment.line.js", "punctuation.definition.comment.js");
+		final var commentLine = root.pushAttributed("comment.line.js", grammar);
+		assertThat(commentLine.pushAttributed("punctuation.definition.comment.js", grammar)).isSameAs(comment);
+		assertThat(root.pushAttributed("string.quoted.js", grammar)).isNotSameAs(comment);
+
+		// the memoized nodes are not reused after the theme changed
+		registry.setTheme(IThemeSource.fromString(IThemeSource.ContentType.JSON, """
+			{ "settings": [ { "settings": { "foreground": "#000000", "background": "#FFFFFF" } } ] }
+			"""));
+		final var newRoot = castNonNull(grammar.createRootState().contentNameScopesList);
+		assertThat(newRoot).isNotSameAs(root);
+		assertThat(root.pushAttributed("comment.line.js", grammar)).isNotSameAs(commentLine);
+	}
+
+	@Test
+	void testMatchingInjectionsAreCachedPerNode() {
+		final var registry = new Registry();
+		final var grammar = (Grammar) registry.addGrammar(IGrammarSource.fromString(IGrammarSource.ContentType.JSON, """
+			{
+			  "scopeName": "source.test",
+			  "patterns": [ { "begin": "#", "end": "$", "name": "comment.line.test" } ],
+			  "injections": {
+			    "L:comment": { "patterns": [ { "match": "TODO", "name": "keyword.todo.test" } ] },
+			    "source.test - comment": { "patterns": [ { "match": "FIXME", "name": "invalid.fixme.test" } ] }
+			  }
+			}
+			"""));
+		final var injections = grammar.getInjections();
+		assertThat(injections).hasSize(2);
+
+		final var root = castNonNull(grammar.createRootState().contentNameScopesList);
+		final var comment = root.pushAttributed("comment.line.test", grammar);
+
+		final var rootInjections = root.getMatchingInjections(injections);
+		assertThat(rootInjections).extracting(injection -> injection.debugSelector).containsExactly("source.test - comment");
+		assertThat(root.getMatchingInjections(injections)).isSameAs(rootInjections);
+
+		final var commentInjections = comment.getMatchingInjections(injections);
+		assertThat(commentInjections).extracting(injection -> injection.debugSelector).containsExactly("L:comment");
+		assertThat(comment.getMatchingInjections(injections)).isSameAs(commentInjections);
+
+		final var tokens = grammar.tokenizeLine("FIXME # TODO FIXME").getTokens();
+		assertThat(tokens).extracting(token -> token.getScopes().get(token.getScopes().size() - 1))
+				.containsExactly("invalid.fixme.test", "source.test", "comment.line.test", "comment.line.test", "keyword.todo.test",
+						"comment.line.test");
+	}
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.grammar;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.tm4e.core.Data;
+import org.eclipse.tm4e.core.grammar.IToken;
+import org.eclipse.tm4e.core.registry.IGrammarSource;
+import org.eclipse.tm4e.core.registry.Registry;
+import org.junit.jupiter.api.Test;
+
+class ScopeStackTest {
+
+	@Test
+	void testSegmentsAreShared() {
+		final var stack = castNonNull(ScopeStack.from("source.js", "meta.block.js", "string.quoted.js"));
+		final var segments = stack.getSegments();
+		assertThat(segments).containsExactly("source.js", "meta.block.js", "string.quoted.js");
+		assertThat(stack.getSegments()).isSameAs(segments);
+		assertThat(castNonNull(stack.parent).getSegments()).containsExactly("source.js", "meta.block.js");
+		assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> segments.add("x"));
+
+		// the shared segments still compare by value
+		final var equalStack = castNonNull(ScopeStack.from("source.js", "meta.block.js", "string.quoted.js"));
+		assertThat(equalStack.getSegments()).isNotSameAs(segments).isEqualTo(segments).hasSameHashCodeAs(segments);
+		final var mutableSegments = new ArrayList<>(List.of("source.js", "meta.block.js", "string.quoted.js"));
+		assertThat(segments).isEqualTo(mutableSegments).hasSameHashCodeAs(mutableSegments);
+		assertThat(castNonNull(ScopeStack.from("source.js", "meta.block.js")).getSegments()).isNotEqualTo(segments);
+	}
+
+	@Test
+	void testTokensWithEqualScopesShareScopeList() {
+		final var grammar = new Registry().addGrammar(IGrammarSource.fromResource(Data.class, "JavaScript.tmLanguage"));
+		final String line = "var a = 1; var b = 2;";
+		final IToken[] tokens = grammar.tokenizeLine(line).getTokens();
+
+		int sharedCount = 0;
+		for (int i = 0; i < tokens.length; i++) {
+			for (int j = i + 1; j < tokens.length; j++) {
+				if (tokens[i].getScopes().equals(tokens[j].getScopes())) {
+					assertThat(tokens[j].getScopes()).isSameAs(tokens[i].getScopes());
+					sharedCount++;
+				}
+			}
+		}
+		assertThat(sharedCount).isPositive();
+
+		// tokens of separate tokenizations still compare by value
+		final IToken[] tokensAgain = grammar.tokenizeLine(line).getTokens();
+		assertThat(tokensAgain).isEqualTo(tokens);
+		for (int i = 0; i < tokens.length; i++) {
+			assertThat(tokensAgain[i]).isNotSameAs(tokens[i]).hasSameHashCodeAs(tokens[i]);
+		}
+	}
+}
@@ -32,6 +32,24 @@
 
 class TokenizeLineTest {
 
+	@Test
+	void testEndStatesAreNotModifiedOnceReturned() throws Exception {
+		final var grammar = new Registry().addGrammar(IGrammarSource.fromResource(Data.class, "JavaScript.tmLanguage"));
+
+		// the block comment pushes a state which is still on the stack at the end of the line
+		final var endState = (StateStack) grammar.tokenizeLine("var a = 1; /* comment").getRuleStack();
+		assertThat(endState.getDepth()).isGreaterThan(1);
+		for (StateStack el = endState; el != null; el = el.pop()) {
+			assertThat(el.getEnterPos()).isEqualTo(-1);
+			assertThat(el.getAnchorPos()).isEqualTo(-1);
+		}
+
+		// tokenizing further lines with the state, e.g. shared by a TokenizationCache, leaves it as is
+		final var endState2 = grammar.tokenizeLine("end */ var b = 2;", endState, null).getRuleStack();
+		assertThat(endState2).isNotEqualTo(endState);
+		assertThat(grammar.tokenizeLine("end */ var b = 2;", endState, null).getRuleStack()).isEqualTo(endState2);
+	}
+
 	@Test
 	void testTokenizeLine() throws Exception {
 		final var grammar = new Registry().addGrammar(IGrammarSource.fromResource(Data.class, "JavaScript.tmLanguage"));
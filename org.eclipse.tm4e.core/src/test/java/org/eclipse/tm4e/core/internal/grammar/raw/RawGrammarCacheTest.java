@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.grammar.raw;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.eclipse.tm4e.core.Data;
+import org.eclipse.tm4e.core.internal.utils.ResourceUtils;
+import org.eclipse.tm4e.core.registry.IGrammarSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RawGrammarCacheTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testSnapshotsOfDifferentFormats() throws Exception {
+		final var cache = new RawGrammarCache(tempDir.resolve("cache"));
+		for (final var resourceName : new String[] { "JavaScript.tmLanguage", "JavaScript.tmLanguage.json",
+				"JavaScript.tmLanguage.yaml" }) {
+			final var source = IGrammarSource.fromResource(Data.class, resourceName);
+			final var expected = RawGrammarReader.readGrammar(source);
+
+			assertThat(cache.readGrammar(source)).isEqualTo(expected); // parsed and snapshot written
+			assertThat(cache.readGrammar(source)).isEqualTo(expected); // loaded from snapshot
+		}
+		try (var snapshots = Files.list(tempDir.resolve("cache"))) {
+			assertThat(snapshots).hasSize(3);
+		}
+	}
+
+	@Test
+	void testSnapshotInvalidation() throws Exception {
+		final var grammarFile = tempDir.resolve("JavaScript.tmLanguage.json");
+		final String content;
+		try (var reader = ResourceUtils.getResourceReader(Data.class, "JavaScript.tmLanguage.json")) {
+			content = reader.lines().reduce("", (a, b) -> a + b + "\n");
+		}
+		Files.writeString(grammarFile, content);
+		final var lastModified = FileTime.fromMillis(1_000_000_000_000L);
+		Files.setLastModifiedTime(grammarFile, lastModified);
+
+		final var cache = new RawGrammarCache(tempDir.resolve("cache"));
+		final var source = IGrammarSource.fromFile(grammarFile);
+		final var grammar = cache.readGrammar(source);
+		assertThat(grammar.getName()).isEqualTo("JavaScript (with React support)");
+
+		// unchanged timestamp: the snapshot is used without reading the source
+		Files.writeString(grammarFile, content.replace("\"name\": \"JavaScript (with React support)\"", "\"name\": \"Changed\""));
+		Files.setLastModifiedTime(grammarFile, lastModified);
+		assertThat(cache.readGrammar(source)).isEqualTo(grammar);
+
+		// changed timestamp and content: the source is parsed again
+		Files.setLastModifiedTime(grammarFile, FileTime.fromMillis(lastModified.toMillis() + 1000));
+		assertThat(cache.readGrammar(source).getName()).isEqualTo("Changed");
+
+		// changed timestamp but same content: the snapshot is used again
+		Files.setLastModifiedTime(grammarFile, FileTime.fromMillis(lastModified.toMillis() + 2000));
+		assertThat(cache.readGrammar(source).getName()).isEqualTo("Changed");
+	}
+
+	@Test
+	void testSnapshotIsReplaced() throws Exception {
+		final var grammarFile = tempDir.resolve("JavaScript.tmLanguage.json");
+		final String content;
+		try (var reader = ResourceUtils.getResourceReader(Data.class, "JavaScript.tmLanguage.json")) {
+			content = reader.lines().reduce("", (a, b) -> a + b + "\n");
+		}
+		Files.writeString(grammarFile, content);
+		Files.setLastModifiedTime(grammarFile, FileTime.fromMillis(1_000_000_000_000L));
+
+		final var cacheDir = tempDir.resolve("cache");
+		final var cache = new RawGrammarCache(cacheDir);
+		final var source = IGrammarSource.fromFile(grammarFile);
+		cache.readGrammar(source);
+		final Path snapshotFile;
+		try (var snapshots = Files.list(cacheDir)) {
+			snapshotFile = snapshots.findFirst().orElseThrow();
+		}
+		final byte[] oldSnapshot = Files.readAllBytes(snapshotFile);
+
+		// the existing snapshot is read and must then be overwritten with the snapshot of the changed grammar
+		Files.writeString(grammarFile, content.replace("\"name\": \"JavaScript (with React support)\"", "\"name\": \"Changed\""));
+		Files.setLastModifiedTime(grammarFile, FileTime.fromMillis(1_000_000_001_000L));
+		assertThat(cache.readGrammar(source).getName()).isEqualTo("Changed");
+		assertThat(Files.readAllBytes(snapshotFile)).isNotEqualTo(oldSnapshot);
+		try (var files = Files.list(cacheDir)) {
+			assertThat(files).containsExactly(snapshotFile); // no left-over temp files
+		}
+
+		// a new cache instance uses the replaced snapshot without parsing the source
+		Files.writeString(grammarFile, "invalid");
+		Files.setLastModifiedTime(grammarFile, FileTime.fromMillis(1_000_000_001_000L));
+		assertThat(new RawGrammarCache(cacheDir).readGrammar(source).getName()).isEqualTo("Changed");
+	}
+}
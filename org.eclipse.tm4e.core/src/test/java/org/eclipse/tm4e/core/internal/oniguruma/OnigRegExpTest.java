@@ -10,6 +10,7 @@
 package org.eclipse.tm4e.core.internal.oniguruma;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.junit.jupiter.api.Test;
@@ -82,6 +83,28 @@ void testOnigRegExpCaching() {
 		assertOnigRegExpSearch(line, result, 28, true, "MAKECMDGOALS", "MAKECMDGOALS");
 	}
 
+	@Test
+	void testSearchTimeout() {
+		final var pattern = "(x+x+)+y";
+		final var regexp = new OnigRegExp(pattern);
+		final var input = "x".repeat(40);
+
+		assertThat(regexp.search(OnigString.of("xxy", 1_000_000_000), 0)).isNotNull();
+
+		final var onigString = OnigString.of(input, 10_000_000);
+		assertThatExceptionOfType(OnigSearchTimeoutException.class)
+				.isThrownBy(() -> regexp.search(onigString, 0))
+				.satisfies(ex -> assertThat(ex.getPattern()).isEqualTo(pattern));
+		assertThat(onigString.getRemainingSearchNanos()).isEqualTo(10_000_000);
+
+		// once the deadline is active, the time limit applies to all searches on the string together
+		onigString.activateSearchDeadline();
+		assertThat(onigString.getRemainingSearchNanos()).isZero();
+		assertThatExceptionOfType(OnigSearchTimeoutException.class)
+				.isThrownBy(() -> new OnigRegExp("x").search(onigString, 0))
+				.satisfies(ex -> assertThat(ex.getPattern()).isEqualTo("x"));
+	}
+
 	@Test
 	void testNegativeLookBehinds() {
 		// test of OnigRegExp.rewritePatternIfRequired (lookbehind1)
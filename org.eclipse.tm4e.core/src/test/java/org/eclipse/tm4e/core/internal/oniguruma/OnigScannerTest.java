@@ -38,4 +38,29 @@ void testOnigScanner() {
 						new OnigCaptureIndex(1, 4),
 						new OnigCaptureIndex(2, 3));
 	}
+
+	@Test
+	void testOnigScannerPrefersLeftMostThenFirstPattern() {
+		final var scanner = new OnigScanner(Arrays.asList("x", "c", "b", "[bc]"));
+		final var line = OnigString.of("abcabc");
+
+		// "b" at 1 is found after "c" at 2 narrowed the search range, the equally positioned "[bc]" must not win
+		OnigScannerMatch result = scanner.findNextMatch(line, 0);
+		assert result != null;
+		assertThat(result.index).isEqualTo(2);
+		assertThat(result.getCaptureIndices()).containsExactly(new OnigCaptureIndex(1, 2));
+
+		// the cached results of the previous, partially bounded searches must not hide matches
+		result = scanner.findNextMatch(line, 2);
+		assert result != null;
+		assertThat(result.index).isEqualTo(1);
+		assertThat(result.getCaptureIndices()).containsExactly(new OnigCaptureIndex(2, 3));
+
+		result = scanner.findNextMatch(line, 3);
+		assert result != null;
+		assertThat(result.index).isEqualTo(2);
+		assertThat(result.getCaptureIndices()).containsExactly(new OnigCaptureIndex(4, 5));
+
+		assertThat(scanner.findNextMatch(line, 6)).isNull();
+	}
 }
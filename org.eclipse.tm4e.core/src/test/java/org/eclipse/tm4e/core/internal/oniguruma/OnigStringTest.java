@@ -168,4 +168,82 @@ void testMixedMultiByteString() {
 		assertThatThrownBy(() -> onigString.getCharIndexOfByte(17))
 				.isInstanceOf(ArrayIndexOutOfBoundsException.class);
 	}
+
+	@Test
+	void testSupplementaryCharacters() {
+		final var string = "a😀b€";
+		final OnigString onigString = OnigString.of(string);
+		assertThat(onigString).isInstanceOf(OnigString.MultiByteString.class);
+		assertThat(onigString.bytesCount).isEqualTo(9);
+
+		assertThat(onigString.getByteIndexOfChar(0)).isZero(); // a
+		assertThat(onigString.getByteIndexOfChar(1)).isEqualTo(1); // 😀 high surrogate
+		assertThat(onigString.getByteIndexOfChar(2)).isEqualTo(1); // 😀 low surrogate
+		assertThat(onigString.getByteIndexOfChar(3)).isEqualTo(5); // b
+		assertThat(onigString.getByteIndexOfChar(4)).isEqualTo(6); // €
+		assertThat(onigString.getByteIndexOfChar(5)).isEqualTo(9);
+
+		assertThat(onigString.getCharIndexOfByte(0)).isZero(); // a
+		assertThat(onigString.getCharIndexOfByte(1)).isEqualTo(1); // 😀
+		assertThat(onigString.getCharIndexOfByte(4)).isEqualTo(1); // 😀
+		assertThat(onigString.getCharIndexOfByte(5)).isEqualTo(3); // b
+		assertThat(onigString.getCharIndexOfByte(8)).isEqualTo(4); // €
+		assertThat(onigString.getCharIndexOfByte(9)).isEqualTo(5);
+
+		// unpaired surrogates are encoded as '?' by String#getBytes
+		final OnigString unpaired = OnigString.of("\uD83Dxé");
+		assertThat(unpaired.bytesCount).isEqualTo(4);
+		assertThat(unpaired.getByteIndexOfChar(1)).isEqualTo(1);
+		assertThat(unpaired.getByteIndexOfChar(2)).isEqualTo(2);
+		assertThat(unpaired.getCharIndexOfByte(3)).isEqualTo(2);
+	}
+
+	@Test
+	void testPrefix() {
+		final OnigString onigString = OnigString.of("ab😀cé", 60_000_000_000L);
+		assertThat(onigString.prefix(onigString.content.length())).isSameAs(onigString);
+
+		final OnigString singleByte = onigString.prefix(2);
+		assertThat(singleByte).isInstanceOf(OnigString.SingleByteString.class);
+		assertThat(singleByte.content).isEqualTo("ab");
+		assertThat(singleByte.bytesCount).isEqualTo(2);
+		assertThat(singleByte.bytesUTF8).isSameAs(onigString.bytesUTF8);
+		assertThat(singleByte.searchBudget).isNotNull().isSameAs(onigString.searchBudget);
+
+		final OnigString multiByte = onigString.prefix(5);
+		assertThat(multiByte).isInstanceOf(OnigString.MultiByteString.class);
+		assertThat(multiByte.content).isEqualTo("ab😀c");
+		assertThat(multiByte.bytesCount).isEqualTo(7);
+		assertThat(multiByte.bytesUTF8).isSameAs(onigString.bytesUTF8);
+		assertThat(multiByte.getCharIndexOfByte(6)).isEqualTo(4);
+		assertThat(multiByte.getByteIndexOfChar(5)).isEqualTo(7);
+		assertThatThrownBy(() -> multiByte.getCharIndexOfByte(8))
+				.isInstanceOf(ArrayIndexOutOfBoundsException.class);
+
+		// searches must not see the bytes following the prefix
+		final var regex = new OnigRegExp("c$");
+		assertThat(regex.search(onigString, 0)).isNull();
+		assertThat(regex.search(multiByte, 0)).isNotNull();
+	}
+
+	@Test
+	void testSearchCacheGrowsAndKeepsResults() {
+		final OnigString onigString = OnigString.of("abcdefghijklmnopqrstuvwxyz0123456789");
+		final var regExps = new OnigRegExp[100];
+		final var results = new OnigResult[regExps.length];
+		for (int i = 0; i < regExps.length; i++) {
+			regExps[i] = new OnigRegExp(String.valueOf(onigString.content.charAt(i % onigString.content.length())));
+			results[i] = regExps[i].search(onigString, 0);
+			assertThat(results[i]).isNotNull();
+			assertThat(results[i].locationAt(0)).isEqualTo(i % onigString.content.length());
+		}
+
+		// the cached results survived the growth of the cache
+		for (int i = 0; i < regExps.length; i++) {
+			assertThat(regExps[i].search(onigString, 0)).isSameAs(results[i]);
+		}
+
+		// the cache is per string
+		assertThat(regExps[0].search(OnigString.of("xyz"), 0)).isNull();
+	}
 }
@@ -0,0 +1,43 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.rule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class RegExpSourceListTest {
+
+	@Test
+	void testWithSourceReusesCompiledCopies() {
+		final var list = new RegExpSourceList();
+		list.add(new RegExpSource("a", RuleId.of(1)));
+		list.add(new RegExpSource("\\1", RuleId.END_RULE));
+
+		assertThat(list.withSource(1, "\\1")).isSameAs(list);
+
+		final var eof = list.withSource(1, "EOF");
+		final var end = list.withSource(1, "END");
+		assertThat(eof).isNotSameAs(list).isNotSameAs(end);
+		assertThat(eof.compile().debugRegExps).containsExactly("a", "EOF");
+
+		// alternating delimiters reuse the compiled rules of the previous copies
+		assertThat(list.withSource(1, "EOF")).isSameAs(eof);
+		assertThat(list.withSource(1, "END")).isSameAs(end);
+		assertThat(list.withSource(1, "EOF").compile()).isSameAs(eof.compile());
+
+		// the least recently used copy is evicted
+		for (int i = 0; i < RegExpSourceList.MAX_CACHED_COPIES - 1; i++) {
+			list.withSource(1, "X" + i);
+		}
+		assertThat(list.withSource(1, "EOF")).isSameAs(eof);
+		assertThat(list.withSource(1, "END")).isNotSameAs(end);
+	}
+}
@@ -16,6 +16,7 @@
 import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNonNull;
 
 import java.nio.file.Path;
+import java.util.List;
 
 import org.eclipse.tm4e.core.internal.grammar.ScopeStack;
 import org.eclipse.tm4e.core.internal.theme.raw.RawThemeReader;
@@ -148,4 +149,54 @@ void testVSCodeJsonTheme() throws Exception {
 		attrs = castNonNull(theme.match(ScopeStack.from("keyword.something")));
 		assertThat(colors.get(attrs.foregroundId)).isEqualTo("#00FF00");
 	}
+
+	@Test
+	void testMatchRulesWithParentScopes() throws Exception {
+		final var theme = Theme.createFromRawTheme(RawThemeReader.readTheme(
+				IThemeSource.fromString(ContentType.JSON, """
+					{
+					  "tokenColors": [
+					    { "settings": { "foreground": "#100000" } },
+					    { "scope": "string", "settings": { "foreground": "#200000" } },
+					    { "scope": "source.js string", "settings": { "foreground": "#300000" } },
+					    { "scope": "meta.embedded > string.quoted", "settings": { "foreground": "#400000" } },
+					    { "scope": "> string.quoted.double", "settings": { "foreground": "#500000" } }
+					  ]
+					}
+					""")), null);
+		final var colors = theme.getColorMap();
+
+		final var jsString = ScopeStack.from("source.js", "meta.block", "string.quoted.single");
+		var attrs = castNonNull(theme.match(jsString));
+		assertThat(colors.get(attrs.foregroundId)).isEqualTo("#300000");
+		// repeated matches are served from the precomputed style attributes
+		assertThat(theme.match(jsString)).isSameAs(attrs);
+
+		// parent scope patterns only match whole scope name segments
+		attrs = castNonNull(theme.match(ScopeStack.from("source.jsx", "string.quoted.single")));
+		assertThat(colors.get(attrs.foregroundId)).isEqualTo("#200000");
+
+		attrs = castNonNull(theme.match(ScopeStack.from("source.js", "meta.embedded.block", "string.quoted.single")));
+		assertThat(colors.get(attrs.foregroundId)).isEqualTo("#400000");
+		attrs = castNonNull(theme.match(ScopeStack.from("meta.embedded", "meta.block", "string.quoted.single")));
+		assertThat(colors.get(attrs.foregroundId)).isEqualTo("#200000");
+
+		// a child combinator without parent scope never matches
+		attrs = castNonNull(theme.match(ScopeStack.from("string.quoted.double")));
+		assertThat(colors.get(attrs.foregroundId)).isEqualTo("#200000");
+	}
+
+	@Test
+	void testInsertAfterMatch() {
+		final var root = new ThemeTrieElement(new ThemeTrieElementRule(0, null, FontStyle.NotSet, 1, 2));
+		root.insert(0, "string", null, FontStyle.NotSet, 3, 0);
+		assertThat(root.match("string.quoted")).extracting(rule -> rule.foreground).containsExactly(3);
+
+		// the rules sorted by the previous match must not be served after an insert
+		root.insert(0, "string", List.of("source.js"), FontStyle.Bold, 4, 0);
+		assertThat(root.match("string.quoted")).extracting(rule -> rule.foreground).containsExactly(4, 3);
+
+		root.insert(0, "string", List.of("source.js", "meta.block"), FontStyle.Italic, 5, 0);
+		assertThat(root.match("string.quoted")).extracting(rule -> rule.foreground).containsExactly(5, 4, 3);
+	}
 }
@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.utils;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class GapListTest {
+
+	@Test
+	void testBehavesLikeArrayList() {
+		final var random = new Random(42);
+		final var expected = new ArrayList<Integer>();
+		final var actual = new GapList<Integer>();
+		int nextValue = 0;
+
+		for (int i = 0; i < 10_000; i++) {
+			final int size = expected.size();
+			switch (random.nextInt(7)) {
+				case 0 -> {
+					final int index = random.nextInt(size + 1);
+					expected.add(index, nextValue);
+					actual.add(index, nextValue);
+					nextValue++;
+				}
+				case 1 -> {
+					final int index = random.nextInt(size + 1);
+					final var values = new ArrayList<Integer>();
+					for (int j = random.nextInt(20); j > 0; j--) {
+						values.add(nextValue++);
+					}
+					expected.addAll(index, values);
+					actual.addAll(index, values);
+				}
+				case 2 -> {
+					if (size > 0) {
+						final int index = random.nextInt(size);
+						assertThat(actual.remove(index)).isEqualTo(expected.remove(index));
+					}
+				}
+				case 3 -> {
+					final int from = random.nextInt(size + 1);
+					final int to = from + random.nextInt(size - from + 1);
+					expected.subList(from, to).clear();
+					actual.subList(from, to).clear();
+				}
+				case 4 -> {
+					if (size > 0) {
+						final int index = random.nextInt(size);
+						assertThat(actual.set(index, nextValue)).isEqualTo(expected.set(index, nextValue));
+						nextValue++;
+					}
+				}
+				case 5 -> {
+					// modification through a sub list as done by TMModel
+					final int from = random.nextInt(size + 1);
+					final int to = from + random.nextInt(Math.min(5, size - from) + 1);
+					final var values = List.of(nextValue++, nextValue++);
+					expected.subList(from, to).addAll(values);
+					actual.subList(from, to).addAll(values);
+				}
+				default -> {
+					expected.add(nextValue);
+					actual.add(nextValue);
+					nextValue++;
+				}
+			}
+			assertThat(actual).hasSize(expected.size());
+		}
+		assertThat(actual).containsExactlyElementsOf(expected);
+
+		actual.clear();
+		assertThat(actual).isEmpty();
+	}
+
+	@Test
+	void testIndexChecks() {
+		final var list = new GapList<String>(2);
+		list.add("a");
+		list.add("b");
+
+		assertThatThrownBy(() -> list.get(2)).isInstanceOf(IndexOutOfBoundsException.class);
+		assertThatThrownBy(() -> list.get(-1)).isInstanceOf(IndexOutOfBoundsException.class);
+		assertThatThrownBy(() -> list.add(3, "c")).isInstanceOf(IndexOutOfBoundsException.class);
+		assertThatThrownBy(() -> list.remove(2)).isInstanceOf(IndexOutOfBoundsException.class);
+
+		list.add(0, "c");
+		assertThat(list).containsExactly("c", "a", "b");
+		assertThatThrownBy(() -> list.get(3)).isInstanceOf(IndexOutOfBoundsException.class);
+	}
+}
@@ -12,6 +12,9 @@
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.eclipse.tm4e.core.registry.IGrammarSource.fromResource;
 
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
 import org.eclipse.tm4e.core.Data;
 import org.eclipse.tm4e.core.internal.grammar.StateStack;
 import org.eclipse.tm4e.core.model.ITMModel.BackgroundTokenizationState;
@@ -45,7 +48,7 @@ public String getLineText(final int lineIndex) throws Exception {
 
 			assertThat(tmModel.getBackgroundTokenizationState()).isEqualTo(BackgroundTokenizationState.COMPLETED);
 
-			// adding a listener will spawn the TokenizerThread
+			// adding a listener will schedule the TokenizerTask
 			tmModel.addModelTokensChangedListener(event -> {
 			});
 
@@ -76,4 +79,52 @@ public String getLineText(final int lineIndex) throws Exception {
 			tmModel.dispose();
 		}
 	}
+
+	@Test
+	void testVisibleRangeIsTokenizedFirst() throws Exception {
+		final var grammar = new Registry().addGrammar(fromResource(Data.class, "TypeScript.tmLanguage.json"));
+
+		// the whole document is a block comment, i.e. the initial state guessed for the visible range is wrong
+		final int lineCount = 20_000;
+		final var textLines = new String[lineCount];
+		textLines[0] = "/*";
+		for (int i = 1; i < lineCount; i++) {
+			textLines[i] = "const sum" + i + " = addNumbers(10, " + i + ");";
+		}
+
+		final var tmModel = new TMModel(textLines.length) {
+			@Override
+			public String getLineText(final int lineIndex) throws Exception {
+				return textLines[lineIndex];
+			}
+		};
+
+		try {
+			tmModel.setGrammar(grammar);
+			tmModel.setVisibleRange(15_000, 15_049);
+
+			final var events = new LinkedBlockingQueue<ModelTokensChangedEvent>();
+			tmModel.addModelTokensChangedListener(events::add);
+
+			final var firstEvent = events.poll(10, TimeUnit.SECONDS);
+			assertThat(firstEvent).isNotNull();
+			assertThat(firstEvent.ranges).last().isEqualTo(new Range(14_901, 15_050));
+
+			final long deadline = System.currentTimeMillis() + 30_000;
+			while (tmModel.getBackgroundTokenizationState() == BackgroundTokenizationState.IN_PROGRESS
+					|| tmModel.getLineTokens(lineCount - 1) == null) {
+				assertThat(System.currentTimeMillis()).isLessThan(deadline);
+				Thread.sleep(10);
+			}
+
+			// the guessed tokens of the visible range are corrected once the preceding lines are tokenized
+			for (final int lineIndex : new int[] { 1, 14_999, 15_000, 15_049, lineCount - 1 }) {
+				final var tokens = tmModel.getLineTokens(lineIndex);
+				assertThat(tokens).isNotNull();
+				assertThat(tokens).allSatisfy(token -> assertThat(token.type).contains("comment"));
+			}
+		} finally {
+			tmModel.dispose();
+		}
+	}
 }
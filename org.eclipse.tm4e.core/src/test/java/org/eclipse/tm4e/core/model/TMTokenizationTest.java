@@ -17,6 +17,8 @@
 import java.util.stream.Collectors;
 
 import org.eclipse.tm4e.core.Data;
+import org.eclipse.tm4e.core.grammar.IStateStack;
+import org.eclipse.tm4e.core.internal.grammar.StateStack;
 import org.eclipse.tm4e.core.internal.utils.ResourceUtils;
 import org.eclipse.tm4e.core.registry.Registry;
 import org.junit.jupiter.api.Test;
@@ -39,4 +41,46 @@ void testTokenizeWithTimeout() throws IOException {
 			assertThat(result1.tokens.size()).isNotEqualTo(result2.tokens.size());
 		}
 	}
+
+	@Test
+	void testTokenizationCache() throws IOException {
+		final var grammar = new Registry().addGrammar(fromResource(Data.class, "TypeScript.tmLanguage.json"));
+		final String[] lines;
+		try (var reader = ResourceUtils.getResourceReader(Data.class, "raytracer.ts")) {
+			lines = reader.lines().toArray(String[]::new);
+		}
+
+		final var cache = new TokenizationCache(10_000);
+		final var uncachedTokenizer = new TMTokenizationSupport(grammar);
+		final var cachedTokenizer1 = new TMTokenizationSupport(grammar, StateStack.NULL, cache);
+		final var cachedTokenizer2 = new TMTokenizationSupport(grammar, StateStack.NULL, cache);
+
+		IStateStack state = StateStack.NULL;
+		IStateStack state1 = StateStack.NULL;
+		IStateStack state2 = StateStack.NULL;
+		for (final String line : lines) {
+			final var expected = uncachedTokenizer.tokenize(line, state);
+			final var result1 = cachedTokenizer1.tokenize(line, state1);
+			final var result2 = cachedTokenizer2.tokenize(line, state2);
+			assertThat(result1.tokens).isEqualTo(expected.tokens);
+			assertThat(result2.tokens).isSameAs(result1.tokens);
+			assertThat(result1.endState).isEqualTo(expected.endState);
+			state = expected.endState;
+			state1 = result1.endState;
+			state2 = result2.endState;
+		}
+		// the second document only hits the cache, the first one hits it for lines occurring multiple times
+		assertThat(cache.getHitCount()).isGreaterThanOrEqualTo(lines.length);
+		assertThat(cache.getMissCount() + cache.getHitCount()).isEqualTo(2L * lines.length);
+		assertThat(cache.getEvictionCount()).isZero();
+
+		final var smallCache = new TokenizationCache(10);
+		final var tokenizer = new TMTokenizationSupport(grammar, StateStack.NULL, smallCache);
+		state = StateStack.NULL;
+		for (final String line : lines) {
+			state = tokenizer.tokenize(line, state).endState;
+		}
+		assertThat(smallCache.size()).isEqualTo(10);
+		assertThat(smallCache.getEvictionCount()).isEqualTo(smallCache.getMissCount() - 10);
+	}
 }
@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.model;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.eclipse.tm4e.core.registry.IGrammarSource.fromResource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tm4e.core.Data;
+import org.eclipse.tm4e.core.grammar.IGrammar;
+import org.eclipse.tm4e.core.model.ITMModel.BackgroundTokenizationState;
+import org.eclipse.tm4e.core.registry.Registry;
+import org.junit.jupiter.api.Test;
+
+class TokenizerSchedulerTest {
+
+	private static final IGrammar GRAMMAR = new Registry().addGrammar(fromResource(Data.class, "TypeScript.tmLanguage.json"));
+
+	private static TMModel createModel(final int lineCount, final TokenizerScheduler scheduler) {
+		final var textLines = new String[lineCount];
+		for (int i = 0; i < lineCount; i++) {
+			textLines[i] = "const sum" + i + " = addNumbers(10, " + i + "); // " + "x".repeat(i % 80);
+		}
+		final var model = new TMModel(lineCount, scheduler) {
+			@Override
+			public String getLineText(final int lineIndex) throws Exception {
+				return textLines[lineIndex];
+			}
+		};
+		model.setGrammar(GRAMMAR);
+		return model;
+	}
+
+	private static boolean isCompleted(final TMModel model) {
+		return model.getBackgroundTokenizationState() == BackgroundTokenizationState.COMPLETED
+				&& model.getLineTokens(model.getNumberOfLines() - 1) != null;
+	}
+
+	private static void waitForCompletion(final List<TMModel> models, final List<TMModel> completionOrder) throws Exception {
+		final long deadline = System.currentTimeMillis() + 60_000;
+		while (completionOrder.size() < models.size()) {
+			assertThat(System.currentTimeMillis()).isLessThan(deadline);
+			for (final var model : models) {
+				if (!completionOrder.contains(model) && isCompleted(model)) {
+					completionOrder.add(model);
+				}
+			}
+			Thread.sleep(5);
+		}
+	}
+
+	@Test
+	void testModelsShareBoundedPool() throws Exception {
+		for (final boolean useVirtualThreads : new boolean[] { false, true }) {
+			final var scheduler = new TokenizerScheduler(2, useVirtualThreads);
+			final var threadNames = new ConcurrentLinkedQueue<String>();
+			final var models = new ArrayList<TMModel>();
+			try {
+				for (int i = 0; i < 20; i++) {
+					final var model = createModel(100, scheduler);
+					model.addModelTokensChangedListener(event -> threadNames.add(Thread.currentThread().getName()));
+					models.add(model);
+				}
+				waitForCompletion(models, new ArrayList<>());
+
+				assertThat(threadNames).isNotEmpty().allMatch(name -> name.startsWith(TokenizerScheduler.THREAD_NAME_PREFIX));
+				assertThat(threadNames.stream().distinct().count()).isLessThanOrEqualTo(2);
+			} finally {
+				models.forEach(TMModel::dispose);
+				scheduler.shutdown();
+			}
+		}
+	}
+
+	@Test
+	void testFocusedModelIsTokenizedFirst() throws Exception {
+		final var scheduler = new TokenizerScheduler(1, false);
+		final var models = new ArrayList<TMModel>();
+		try {
+			for (int i = 0; i < 4; i++) {
+				models.add(createModel(2_000, scheduler));
+			}
+			final var focusedModel = models.get(models.size() - 1);
+			focusedModel.setFocused(true);
+			for (final var model : models) {
+				model.addModelTokensChangedListener(event -> {
+				});
+			}
+
+			final var completionOrder = new ArrayList<TMModel>();
+			waitForCompletion(models, completionOrder);
+			assertThat(completionOrder.get(0)).isSameAs(focusedModel);
+		} finally {
+			models.forEach(TMModel::dispose);
+			scheduler.shutdown();
+		}
+	}
+
+	@Test
+	void testFocusedModelDoesNotStarveOtherModels() throws Exception {
+		final var scheduler = new TokenizerScheduler(1, false);
+		final var models = new ArrayList<TMModel>();
+		try {
+			final var focusedModel = createModel(20_000, scheduler);
+			focusedModel.setFocused(true);
+			models.add(focusedModel);
+			models.add(createModel(100, scheduler));
+			for (final var model : models) {
+				model.addModelTokensChangedListener(event -> {
+				});
+			}
+
+			final var completionOrder = new ArrayList<TMModel>();
+			waitForCompletion(models, completionOrder);
+			assertThat(completionOrder.get(0)).isSameAs(models.get(1));
+		} finally {
+			models.forEach(TMModel::dispose);
+			scheduler.shutdown();
+		}
+	}
+
+	@Test
+	void testQueuedTaskIsReprioritized() throws Exception {
+		final var scheduler = new TokenizerScheduler(1, false);
+		final var runOrder = new ConcurrentLinkedQueue<String>();
+		final var blockerStarted = new CountDownLatch(1);
+		final var releaseBlocker = new CountDownLatch(1);
+		final class TestTask extends TokenizerScheduler.Task {
+			final String name;
+			volatile boolean priority;
+
+			TestTask(final String name, final boolean priority) {
+				this.name = name;
+				this.priority = priority;
+			}
+
+			@Override
+			boolean run(final long deadlineNanoTime) {
+				if ("blocker".equals(name)) {
+					blockerStarted.countDown();
+					try {
+						releaseBlocker.await();
+					} catch (final InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				runOrder.add(name);
+				return false;
+			}
+
+			@Override
+			boolean isPriority() {
+				return priority;
+			}
+		}
+		try {
+			// occupy the only pool thread while the other tasks are queued
+			scheduler.schedule(new TestTask("blocker", false));
+			assertThat(blockerStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+			final var previouslyFocused = new TestTask("previouslyFocused", true);
+			scheduler.schedule(previouslyFocused);
+			scheduler.schedule(new TestTask("other", false));
+			final var focused = new TestTask("focused", false);
+			scheduler.schedule(focused);
+
+			previouslyFocused.priority = false;
+			scheduler.reprioritize(previouslyFocused);
+			focused.priority = true;
+			scheduler.reprioritize(focused);
+			releaseBlocker.countDown();
+
+			final long deadline = System.currentTimeMillis() + 10_000;
+			while (runOrder.size() < 4) {
+				assertThat(System.currentTimeMillis()).isLessThan(deadline);
+				Thread.sleep(5);
+			}
+			assertThat(runOrder).containsExactly("blocker", "focused", "other", "previouslyFocused");
+		} finally {
+			releaseBlocker.countDown();
+			scheduler.shutdown();
+		}
+	}
+
+	@Test
+	void testInvalidMaxThreads() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new TokenizerScheduler(0, false));
+	}
+}
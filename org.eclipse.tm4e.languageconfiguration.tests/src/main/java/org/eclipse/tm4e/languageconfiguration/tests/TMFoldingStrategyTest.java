@@ -115,6 +115,42 @@ public void testIndentationBasedFolding() throws Exception {
 				"e\n    f\n");
 	}
 
+	@Test
+	public void testIndentationBasedFoldingAfterEdits() throws Exception {
+		final var file = project.getFile("incremental-indent.lc-test");
+		final String initialContent = """
+			a
+			    b
+			    c
+			d
+			    e
+			    f
+			""";
+		file.create(new ByteArrayInputStream(initialContent.getBytes()), true, null);
+
+		final IWorkbenchPage page = UI.getActivePage();
+		editor = (ITextEditor) IDE.openEditor(page, file, "org.eclipse.ui.genericeditor.GenericEditor");
+		final var document = editor.getDocumentProvider().getDocument(editor.getEditorInput());
+
+		final var targetOp = editor.getAdapter(ITextOperationTarget.class);
+		if (!(targetOp instanceof final ProjectionViewer viewer))
+			throw new IllegalStateException("GenericEditor did not return a ProjectionViewer");
+
+		assertAnnotations(viewer, "a\n    b\n    c\n", "d\n    e\n    f\n");
+
+		/*
+		 * Insert a new block above the existing ones, which moves them down
+		 */
+		document.replace(0, 0, "x\n    y\n");
+		assertAnnotations(viewer, "x\n    y\n", "a\n    b\n    c\n", "d\n    e\n    f\n");
+
+		/*
+		 * Indent the line following the first block, which merges both blocks
+		 */
+		document.replace(document.get().indexOf("d\n"), 0, "    ");
+		assertAnnotations(viewer, "x\n    y\n", "a\n    b\n    c\n    d\n    e\n    f\n");
+	}
+
 	@Test
 	public void testMarkerBasedFolding() throws Exception {
 		/*
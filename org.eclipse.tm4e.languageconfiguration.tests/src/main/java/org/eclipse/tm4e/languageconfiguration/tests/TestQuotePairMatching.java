@@ -286,4 +286,65 @@ public void testTsResEndParenWithCommentedParen() throws Exception {
 					.isEqualTo(callClosingParen);
 		}
 	}
+
+	/**
+	 * Verifies that braces spanning many lines are matched from both sides while braces inside strings and comments
+	 * are skipped, and that the enclosing pair of a selection is found, also after the document was modified.
+	 */
+	@Test
+	public void testBraceMatchingAcrossLines() throws Exception {
+		final IEditorDescriptor genericEditorDescr = TestUtils.assertHasGenericEditor();
+
+		final var tempFile = TestUtils.createTempFile(".java");
+		final var source = new StringBuilder("class X {\n");
+		for (int i = 0; i < 500; i++) {
+			source.append("  void m").append(i).append("() { String s = \"}\"; /* { */ }\n");
+		}
+		source.append("}\n");
+		try (var out = new FileOutputStream(tempFile)) {
+			out.write(source.toString().getBytes(StandardCharsets.UTF_8));
+		}
+
+		final ITextEditor editor = (ITextEditor) IDE.openEditor(UI.getActivePage(), tempFile.toURI(),
+				genericEditorDescr.getId(), true);
+		final IDocument document = editor.getDocumentProvider().getDocument(editor.getEditorInput());
+
+		TestUtils.waitForModelReady(document, 10_000);
+
+		final var matcher = new LanguageConfigurationCharacterPairMatcher();
+		try {
+			String text = document.get();
+			final int classOpeningBrace = text.indexOf('{');
+			int classClosingBrace = text.lastIndexOf('}');
+
+			final IRegion regionAtOpening = matcher.match(document, classOpeningBrace + 1);
+			assertThat(regionAtOpening).isNotNull();
+			assertThat(regionAtOpening.getOffset()).isEqualTo(classOpeningBrace);
+			assertThat(regionAtOpening.getOffset() + regionAtOpening.getLength() - 1).isEqualTo(classClosingBrace);
+
+			final IRegion regionAtClosing = matcher.match(document, classClosingBrace + 1);
+			assertThat(regionAtClosing).isNotNull();
+			assertThat(regionAtClosing.getOffset()).isEqualTo(classOpeningBrace);
+
+			// the enclosing pair of a caret inside the string of the last method is the method body
+			final int lastMethod = text.indexOf("void m499()");
+			final int lastMethodOpeningBrace = text.indexOf('{', lastMethod);
+			final int lastMethodClosingBrace = text.lastIndexOf('}', classClosingBrace - 1);
+			final IRegion enclosing = matcher.findEnclosingPeerCharacters(document, text.indexOf("\"}\"", lastMethod) + 1, 0);
+			assertThat(enclosing).isNotNull();
+			assertThat(enclosing.getOffset()).isEqualTo(lastMethodOpeningBrace);
+			assertThat(enclosing.getOffset() + enclosing.getLength() - 1).isEqualTo(lastMethodClosingBrace);
+
+			// lines inserted before the class body shift the indexed lines
+			document.replace(0, 0, "// header\n// header\n");
+			TestUtils.waitForModelReady(document, 10_000);
+			text = document.get();
+			classClosingBrace = text.lastIndexOf('}');
+			final IRegion regionAfterEdit = matcher.match(document, text.indexOf('{') + 1);
+			assertThat(regionAfterEdit).isNotNull();
+			assertThat(regionAfterEdit.getOffset() + regionAfterEdit.getLength() - 1).isEqualTo(classClosingBrace);
+		} finally {
+			matcher.dispose();
+		}
+	}
 }
@@ -0,0 +1,281 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.languageconfiguration.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Region;
+import org.eclipse.tm4e.core.internal.utils.GapList;
+import org.eclipse.tm4e.core.model.ITMModel;
+import org.eclipse.tm4e.core.model.ModelTokensChangedEvent;
+import org.eclipse.tm4e.core.model.TMToken;
+
+/**
+ * Index of the structural brackets of a document, i.e. of the brackets outside of string, comment and character
+ * tokens, built from the tokens of the document's {@link ITMModel}.
+ * <p>
+ * The brackets are indexed per line. Lines are indexed on first access and re-indexed once the model reports new
+ * tokens for them, so matching a bracket only iterates the brackets between the pair instead of looking up the token
+ * of every character in between.
+ */
+final class BracketIndex implements IDocumentListener, ModelTokensChangedEvent.Listener {
+
+	/**
+	 * The structural brackets of a line.
+	 *
+	 * @param tokens the tokens the brackets were computed from, used to detect re-tokenized lines
+	 */
+	private record LineBrackets(@Nullable List<TMToken> tokens, char[] chars, int[] columns) {
+	}
+
+	private static final LineBrackets NO_BRACKETS = new LineBrackets(null, new char[0], new int[0]);
+
+	final IDocument document;
+	final ITMModel model;
+	private final char[] bracketPairs;
+
+	/** guarded by itself, null entries are lines that need to be (re-)indexed */
+	private final List<@Nullable LineBrackets> lines;
+
+	private int startLineOfChange = -1;
+	private int endLineOfRemovedText = -1;
+
+	/**
+	 * @param bracketPairs pairs of opening and closing bracket characters, e.g. <code>()[]{}</code>
+	 */
+	BracketIndex(final IDocument document, final ITMModel model, final char[] bracketPairs) {
+		this.document = document;
+		this.model = model;
+		this.bracketPairs = bracketPairs;
+		lines = new GapList<>(document.getNumberOfLines());
+		lines.addAll(Collections.nCopies(document.getNumberOfLines(), null));
+		document.addDocumentListener(this);
+		model.addModelTokensChangedListener(this);
+	}
+
+	void dispose() {
+		document.removeDocumentListener(this);
+		model.removeModelTokensChangedListener(this);
+	}
+
+	@Override
+	public void documentAboutToBeChanged(final DocumentEvent event) {
+		try {
+			startLineOfChange = document.getLineOfOffset(event.getOffset());
+			endLineOfRemovedText = document.getLineOfOffset(event.getOffset() + event.getLength());
+		} catch (final BadLocationException ex) {
+			startLineOfChange = -1;
+		}
+	}
+
+	@Override
+	public void documentChanged(final DocumentEvent event) {
+		synchronized (lines) {
+			if (startLineOfChange != -1 && endLineOfRemovedText < lines.size()) {
+				try {
+					final int endLineOfAddedText = document.getLineOfOffset(event.getOffset() + event.getText().length());
+					final var changedLines = lines.subList(startLineOfChange, endLineOfRemovedText + 1);
+					changedLines.clear();
+					changedLines.addAll(Collections.nCopies(endLineOfAddedText - startLineOfChange + 1, null));
+					return;
+				} catch (final BadLocationException ex) {
+					// fall through
+				}
+			}
+			// re-index all lines
+			lines.clear();
+			lines.addAll(Collections.nCopies(document.getNumberOfLines(), null));
+		}
+	}
+
+	@Override
+	public void onModelTokensChanged(final ModelTokensChangedEvent event) {
+		synchronized (lines) {
+			for (final var range : event.ranges) {
+				for (int lineIndex = range.fromLineNumber - 1; lineIndex < range.toLineNumber && lineIndex < lines.size(); lineIndex++) {
+					lines.set(lineIndex, null);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return true if the given offset is a structural bracket
+	 */
+	boolean isStructuralBracket(final int offset) throws BadLocationException {
+		final int lineIndex = document.getLineOfOffset(offset);
+		final var brackets = getLineBrackets(lineIndex);
+		final int column = offset - document.getLineOffset(lineIndex);
+		for (final int bracketColumn : brackets.columns) {
+			if (bracketColumn == column)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @param bracketOffset offset of a structural bracket
+	 *
+	 * @return the offset of the matching bracket or -1 if not found
+	 */
+	int findMatchingBracket(final int bracketOffset, final char bracket, final char mate, final boolean searchForward)
+			throws BadLocationException {
+		final int lineCount = document.getNumberOfLines();
+		final int bracketLine = document.getLineOfOffset(bracketOffset);
+		final int bracketColumn = bracketOffset - document.getLineOffset(bracketLine);
+		final int step = searchForward ? 1 : -1;
+		int nesting = 0;
+		for (int lineIndex = bracketLine; lineIndex >= 0 && lineIndex < lineCount; lineIndex += step) {
+			final var brackets = getLineBrackets(lineIndex);
+			final int count = brackets.chars.length;
+			for (int j = 0; j < count; j++) {
+				final int i = searchForward ? j : count - 1 - j;
+				final int column = brackets.columns[i];
+				if (lineIndex == bracketLine && (searchForward ? column <= bracketColumn : column >= bracketColumn))
+					continue;
+				final char c = brackets.chars[i];
+				if (c == bracket) {
+					nesting++;
+				} else if (c == mate) {
+					if (nesting == 0)
+						return document.getLineOffset(lineIndex) + column;
+					nesting--;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the innermost pair of structural brackets enclosing the given range, or null if none
+	 */
+	@Nullable
+	IRegion findEnclosingPair(final int offset, final int length) throws BadLocationException {
+		// number of unmatched closing brackets per pair seen while searching backward
+		final int[] nesting = new int[bracketPairs.length / 2];
+		final int startLine = document.getLineOfOffset(offset);
+		final int startColumn = offset - document.getLineOffset(startLine);
+		for (int lineIndex = startLine; lineIndex >= 0; lineIndex--) {
+			final var brackets = getLineBrackets(lineIndex);
+			for (int i = brackets.chars.length - 1; i >= 0; i--) {
+				final int column = brackets.columns[i];
+				if (lineIndex == startLine && column >= startColumn)
+					continue;
+				final char c = brackets.chars[i];
+				final int pairIndex = indexOfPair(c);
+				if (pairIndex == -1)
+					continue;
+				if (c != bracketPairs[pairIndex * 2]) {
+					nesting[pairIndex]++;
+				} else if (nesting[pairIndex] > 0) {
+					nesting[pairIndex]--;
+				} else {
+					final int openOffset = document.getLineOffset(lineIndex) + column;
+					final int closeOffset = findMatchingBracket(openOffset, c, bracketPairs[pairIndex * 2 + 1], true);
+					if (closeOffset == -1)
+						return null;
+					if (closeOffset >= offset + length)
+						return new Region(openOffset, closeOffset - openOffset + 1);
+					// the pair ends inside the range, i.e. it does not enclose it
+				}
+			}
+		}
+		return null;
+	}
+
+	private int indexOfPair(final char c) {
+		for (int i = 0; i < bracketPairs.length; i++) {
+			if (bracketPairs[i] == c)
+				return i / 2;
+		}
+		return -1;
+	}
+
+	private LineBrackets getLineBrackets(final int lineIndex) throws BadLocationException {
+		final var tokens = model.getLineTokens(lineIndex);
+		synchronized (lines) {
+			if (lineIndex < lines.size()) {
+				final var brackets = lines.get(lineIndex);
+				if (brackets != null && brackets.tokens == tokens)
+					return brackets;
+			}
+		}
+
+		final var brackets = computeLineBrackets(lineIndex, tokens);
+		// lines that are not tokenized yet are not cached
+		if (tokens != null) {
+			synchronized (lines) {
+				if (lineIndex < lines.size()) {
+					lines.set(lineIndex, brackets);
+				}
+			}
+		}
+		return brackets;
+	}
+
+	private LineBrackets computeLineBrackets(final int lineIndex, final @Nullable List<TMToken> tokens)
+			throws BadLocationException {
+		final int lineOffset = document.getLineOffset(lineIndex);
+		final int lineLength = document.getLineLength(lineIndex);
+		final String lineText = document.get(lineOffset, lineLength);
+
+		final var columns = new ArrayList<Integer>();
+		if (tokens == null || tokens.isEmpty()) {
+			// not tokenized yet, i.e. all brackets are considered structural
+			collectBrackets(lineText, 0, lineLength, columns);
+		} else {
+			final int tokenCount = tokens.size();
+			for (int i = 0; i < tokenCount; i++) {
+				final TMToken token = tokens.get(i);
+				final int tokenEnd = i + 1 < tokenCount ? tokens.get(i + 1).startIndex : lineLength;
+				if (!isStringCommentOrCharacterToken(token)) {
+					collectBrackets(lineText, token.startIndex, Math.min(tokenEnd, lineLength), columns);
+				}
+			}
+		}
+		if (columns.isEmpty())
+			return tokens == null ? NO_BRACKETS : new LineBrackets(tokens, NO_BRACKETS.chars, NO_BRACKETS.columns);
+
+		final var chars = new char[columns.size()];
+		final var columnsArray = new int[columns.size()];
+		for (int i = 0; i < chars.length; i++) {
+			columnsArray[i] = columns.get(i);
+			chars[i] = lineText.charAt(columnsArray[i]);
+		}
+		return new LineBrackets(tokens, chars, columnsArray);
+	}
+
+	private void collectBrackets(final String lineText, final int start, final int end, final List<Integer> columns) {
+		for (int column = start; column < end; column++) {
+			if (indexOfPair(lineText.charAt(column)) != -1) {
+				columns.add(column);
+			}
+		}
+	}
+
+	static boolean isStringCommentOrCharacterToken(final TMToken token) {
+		for (final String scope : token.scopes) {
+			if (scope.startsWith("string.") || scope.contains(".string.")
+					|| scope.startsWith("comment.") || scope.contains(".comment.")
+					|| scope.contains("constant.character")) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -42,6 +42,7 @@ public class LanguageConfigurationCharacterPairMatcher implements ICharacterPair
 	private static final char[] NO_QUOTES = new char[0];
 
 	private @Nullable DefaultCharacterPairMatcher matcher;
+	private @Nullable BracketIndex bracketIndex;
 	private @Nullable IDocument document;
 	private char[] bracketPairs = NO_BRACKETS;
 	private char[] quoteChars = NO_QUOTES;
@@ -99,6 +100,20 @@ public int getAnchor() {
 	@Override
 	public @Nullable IRegion findEnclosingPeerCharacters(final IDocument document, final int offset, final int length) {
 		final var matcher = getMatcher(document);
+
+		final var bracketIndex = getBracketIndex(document);
+		if (bracketIndex != null) {
+			try {
+				final var region = bracketIndex.findEnclosingPair(offset, length);
+				if (region != null) {
+					anchor = ICharacterPairMatcher.LEFT;
+					return region;
+				}
+			} catch (final BadLocationException e) {
+				// ignore and fall through to default matcher
+			}
+		}
+
 		final var region = filterBracketRegion(document, matcher.findEnclosingPeerCharacters(document, offset, length));
 		if (region == null) {
 			anchor = -1;
@@ -137,6 +152,7 @@ public void dispose() {
 			matcher.dispose();
 		}
 		matcher = null;
+		disposeBracketIndex();
 		bracketPairs = NO_BRACKETS;
 		quoteChars = NO_QUOTES;
 		anchor = -1;
@@ -157,6 +173,7 @@ private DefaultCharacterPairMatcher getMatcher(final IDocument document) {
 		var matcher = this.matcher;
 		if (matcher == null || !document.equals(this.document)) {
 			this.document = document;
+			disposeBracketIndex();
 
 			// initialize a DefaultCharacterPairMatcher by using character pairs of the language configuration.
 			final ContentTypeInfo info = ContentTypeHelper.findContentTypes(document);
@@ -217,6 +234,36 @@ private DefaultCharacterPairMatcher getMatcher(final IDocument document) {
 		return matcher;
 	}
 
+	/**
+	 * @return the bracket index of the given document or null if no TextMate model with a grammar is connected to it
+	 */
+	private @Nullable BracketIndex getBracketIndex(final IDocument document) {
+		if (bracketPairs.length == 0)
+			return null;
+
+		final var tmModel = TMModelManager.INSTANCE.getConnectedModel(document);
+		if (tmModel == null || tmModel.getGrammar() == null) {
+			disposeBracketIndex();
+			return null;
+		}
+
+		var bracketIndex = this.bracketIndex;
+		if (bracketIndex == null || bracketIndex.document != document || bracketIndex.model != tmModel) {
+			disposeBracketIndex();
+			bracketIndex = new BracketIndex(document, tmModel, bracketPairs);
+			this.bracketIndex = bracketIndex;
+		}
+		return bracketIndex;
+	}
+
+	private void disposeBracketIndex() {
+		final var bracketIndex = this.bracketIndex;
+		if (bracketIndex != null) {
+			bracketIndex.dispose();
+			this.bracketIndex = null;
+		}
+	}
+
 	private boolean isQuoteChar(final char ch) {
 		for (final char quote : quoteChars) {
 			if (quote == ch)
@@ -254,17 +301,12 @@ private char getMatchingBracket(final char ch) {
 	}
 
 	private @Nullable IRegion matchBracketsWithTM(final IDocument document, final int offset) {
-		if (bracketPairs.length == 0)
-			return null;
-
 		if (offset < 0 || offset > document.getLength())
 			return null;
 
-		final var connectedModel = TMModelManager.INSTANCE.getConnectedModel(document);
-		if (connectedModel == null || connectedModel.getGrammar() == null) {
+		final var bracketIndex = getBracketIndex(document);
+		if (bracketIndex == null)
 			return null;
-		}
-		final ITMModel tmModel = connectedModel;
 
 		try {
 			final int docLength = document.getLength();
@@ -291,7 +333,7 @@ private char getMatchingBracket(final char ch) {
 			}
 
 			// do not treat brackets inside string/comment/character tokens as structural
-			if (isInsideStringCommentOrCharacterToken(tmModel, document, bracketOffset)) {
+			if (!bracketIndex.isStructuralBracket(bracketOffset)) {
 				return null;
 			}
 
@@ -299,47 +341,13 @@ private char getMatchingBracket(final char ch) {
 			if (mate == '\0')
 				return null;
 
-			if (searchForward) {
-				final int startPos = bracketOffset + 1;
-				int nesting = 0;
-				for (int pos = startPos; pos < docLength; pos++) {
-					if (isInsideStringCommentOrCharacterToken(tmModel, document, pos)) {
-						continue;
-					}
-					final char c = document.getChar(pos);
-					if (c == bracketChar) {
-						nesting++;
-					} else if (c == mate) {
-						if (nesting == 0) {
-							anchor = ICharacterPairMatcher.LEFT;
-							final int start = bracketOffset;
-							final int end = pos;
-							return new Region(Math.min(start, end), Math.abs(end - start) + 1);
-						}
-						nesting--;
-					}
-				}
-			} else {
-				final int startPos = bracketOffset - 1;
-				int nesting = 0;
-				for (int pos = startPos; pos >= 0; pos--) {
-					if (isInsideStringCommentOrCharacterToken(tmModel, document, pos)) {
-						continue;
-					}
-					final char c = document.getChar(pos);
-					if (c == bracketChar) {
-						nesting++;
-					} else if (c == mate) {
-						if (nesting == 0) {
-							anchor = ICharacterPairMatcher.RIGHT;
-							final int start = pos;
-							final int end = bracketOffset;
-							return new Region(Math.min(start, end), Math.abs(end - start) + 1);
-						}
-						nesting--;
-					}
-				}
-			}
+			final int mateOffset = bracketIndex.findMatchingBracket(bracketOffset, bracketChar, mate, searchForward);
+			if (mateOffset == -1)
+				return null;
+
+			anchor = searchForward ? ICharacterPairMatcher.LEFT : ICharacterPairMatcher.RIGHT;
+			final int start = Math.min(bracketOffset, mateOffset);
+			return new Region(start, Math.abs(mateOffset - bracketOffset) + 1);
 		} catch (final BadLocationException e) {
 			// ignore and fall through to default matcher
 		}
@@ -634,14 +642,7 @@ private static boolean isInsideStringCommentOrCharacterToken(final ITMModel tmMo
 			if (column < tokenStart || column >= tokenEnd) {
 				continue;
 			}
-			for (final String scope : token.scopes) {
-				if (scope.startsWith("string.") || scope.contains(".string.")
-						|| scope.startsWith("comment.") || scope.contains(".comment.")
-						|| scope.contains("constant.character")) {
-					return true;
-				}
-			}
-			return false;
+			return BracketIndex.isStringCommentOrCharacterToken(token);
 		}
 		return false;
 	}
@@ -12,13 +12,24 @@
  */
 package org.eclipse.tm4e.languageconfiguration.internal.folding;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextViewer;
 import org.eclipse.jface.text.ITextViewerLifecycle;
@@ -28,12 +39,30 @@
 import org.eclipse.jface.text.reconciler.IReconcilingStrategyExtension;
 import org.eclipse.jface.text.source.Annotation;
 import org.eclipse.jface.text.source.projection.IProjectionListener;
+import org.eclipse.jface.text.source.projection.ProjectionAnnotation;
 import org.eclipse.jface.text.source.projection.ProjectionAnnotationModel;
 import org.eclipse.jface.text.source.projection.ProjectionViewer;
+import org.eclipse.tm4e.core.internal.utils.GapList;
+import org.eclipse.tm4e.ui.internal.model.DocumentHelper;
 
+/**
+ * Base class of folding strategies that derive foldable regions from a value computed per line, e.g. its indentation
+ * level.
+ * <p>
+ * The per-line values are cached between reconciles and only recomputed for lines changed since the last reconcile.
+ * The annotations added by the strategy are tracked by their line range, so that only annotations spanning changed
+ * lines need to be mapped from their positions back to lines.
+ * </p>
+ */
 public abstract class AbstractFoldingStrategy
 		implements IReconcilingStrategy, IReconcilingStrategyExtension, ITextViewerLifecycle {
 
+	/**
+	 * A foldable region, both line indexes are inclusive.
+	 */
+	protected record FoldingRange(int startLineIndex, int endLineIndex) {
+	}
+
 	protected volatile @Nullable IDocument document;
 	protected volatile @Nullable ProjectionAnnotationModel projectionAnnotationModel;
 	protected volatile @Nullable ITextViewer textViewer;
@@ -41,6 +70,67 @@
 
 	private static final Annotation[] EMPTY_ANNOTATIONS = new Annotation[0];
 
+	/** marks a document change in {@link #pendingLineChanges} that could not be mapped to lines */
+	private static final int[] RESYNC = new int[0];
+
+	/**
+	 * {start line index, number of removed lines, number of added lines} of the document changes not yet applied to
+	 * {@link #lineValues} and {@link #foldings}
+	 */
+	private final Queue<int[]> pendingLineChanges = new ConcurrentLinkedQueue<>();
+
+	/** incremented before each document change, used to detect document changes during a reconcile */
+	private final AtomicInteger documentChangeCount = new AtomicInteger();
+
+	private volatile boolean isInvalidated = true;
+
+	/** guards {@link #lineValues}, {@link #foldings}, {@link #unverifiedFoldings} and {@link #isSynced} */
+	private final Object foldingsLock = new Object();
+
+	/** the cached per-line values, null entries are lines that need to be (re-)computed */
+	private final List<@Nullable Integer> lineValues = new GapList<>();
+
+	/** the annotations added by this strategy by their line range */
+	private final Map<FoldingRange, ProjectionAnnotation> foldings = new HashMap<>();
+
+	/** annotations whose line range must be re-determined from their position since lines they span were changed */
+	private final List<ProjectionAnnotation> unverifiedFoldings = new ArrayList<>();
+
+	/** if false, all lines are recomputed and the annotations are re-read from the annotation model */
+	private boolean isSynced;
+
+	private final IDocumentListener documentListener = new IDocumentListener() {
+		private int startLineOfChange = -1;
+		private int endLineOfRemovedText = -1;
+
+		@Override
+		public void documentAboutToBeChanged(final DocumentEvent event) {
+			documentChangeCount.incrementAndGet();
+			try {
+				final IDocument document = event.getDocument();
+				startLineOfChange = document.getLineOfOffset(event.getOffset());
+				endLineOfRemovedText = document.getLineOfOffset(event.getOffset() + event.getLength());
+			} catch (final BadLocationException ex) {
+				startLineOfChange = -1;
+			}
+		}
+
+		@Override
+		public void documentChanged(final DocumentEvent event) {
+			if (startLineOfChange == -1) {
+				pendingLineChanges.add(RESYNC);
+				return;
+			}
+			try {
+				final int endLineOfAddedText = event.getDocument().getLineOfOffset(event.getOffset() + event.getText().length());
+				pendingLineChanges.add(new int[] { startLineOfChange, endLineOfRemovedText - startLineOfChange + 1,
+						endLineOfAddedText - startLineOfChange + 1 });
+			} catch (final BadLocationException ex) {
+				pendingLineChanges.add(RESYNC);
+			}
+		}
+	};
+
 	private final IProjectionListener projectionListener = new IProjectionListener() {
 		@Override
 		public void projectionDisabled() {
@@ -49,6 +139,7 @@ public void projectionDisabled() {
 
 		@Override
 		public void projectionEnabled() {
+			invalidateFoldings();
 			if (projectionViewer != null) {
 				projectionAnnotationModel = projectionViewer.getProjectionAnnotationModel();
 			}
@@ -78,6 +169,207 @@ protected boolean modifyAnnotations(final Collection<? extends Annotation> delet
 		return true;
 	}
 
+	/**
+	 * Discards all cached per-line values, e.g. because the settings they were computed with changed, so that the next
+	 * reconcile recomputes all folding ranges.
+	 */
+	protected void invalidateFoldings() {
+		isInvalidated = true;
+	}
+
+	/**
+	 * @return the value to compute the folding ranges from for the line with the given text, e.g. its indentation level
+	 */
+	protected abstract int computeLineValue(String lineText);
+
+	/**
+	 * @param lineValues the values of all lines of the document as returned by {@link #computeLineValue(String)}
+	 */
+	protected abstract List<FoldingRange> computeFoldingRanges(int[] lineValues);
+
+	protected abstract ProjectionAnnotation createAnnotation();
+
+	/**
+	 * @return true if the given annotation was created by {@link #createAnnotation()}
+	 */
+	protected abstract boolean isOwnAnnotation(Annotation annotation);
+
+	/**
+	 * Updates the annotations of this strategy to the folding ranges computed from the current per-line values.
+	 * <p>
+	 * Only the values of lines changed since the last call are computed, and all annotation changes are applied with a
+	 * single {@link #modifyAnnotations(Collection, Map, Collection)} call.
+	 */
+	protected void updateFoldings(final IDocument document, final ProjectionAnnotationModel annoModel)
+			throws BadLocationException {
+		synchronized (foldingsLock) {
+			final int changeCount = documentChangeCount.get();
+			if (isInvalidated) {
+				isInvalidated = false;
+				isSynced = false;
+			}
+			applyPendingLineChanges();
+
+			final int lineCount = document.getNumberOfLines();
+			if (isSynced && lineValues.size() != lineCount) {
+				if (!pendingLineChanges.isEmpty())
+					return; // document changed meanwhile, the change triggers another reconcile
+				isSynced = false;
+			}
+			if (!isSynced) {
+				lineValues.clear();
+				lineValues.addAll(Collections.nCopies(lineCount, null));
+			}
+
+			/*
+			 * Compute the values of new and changed lines
+			 */
+			final var values = new int[lineCount];
+			final var computedLines = new BitSet();
+			boolean isComplete = false;
+			try {
+				for (int lineIndex = 0; lineIndex < lineCount; lineIndex++) {
+					Integer value = lineValues.get(lineIndex);
+					if (value == null) {
+						if (document != this.document)
+							return; // abort on changed document
+						value = computeLineValue(DocumentHelper.getLineText(document, lineIndex, false));
+						lineValues.set(lineIndex, value);
+						computedLines.set(lineIndex);
+					}
+					values[lineIndex] = value;
+				}
+				isComplete = documentChangeCount.get() == changeCount;
+			} finally {
+				if (!isComplete) {
+					// values may have been computed from lines of a newer document state
+					computedLines.stream().forEach(lineIndex -> lineValues.set(lineIndex, null));
+				}
+			}
+			if (!isComplete)
+				return; // document changed meanwhile, the change triggers another reconcile
+
+			final var newRanges = new HashSet<FoldingRange>();
+			for (final FoldingRange range : computeFoldingRanges(values)) {
+				// ignore single line foldingRanges
+				if (range.endLineIndex > range.startLineIndex) {
+					newRanges.add(range);
+				}
+			}
+
+			/*
+			 * Diff against existing annotations
+			 */
+			final var additions = new HashMap<ProjectionAnnotation, Position>();
+			final var deletions = new ArrayList<ProjectionAnnotation>();
+
+			if (!isSynced) {
+				foldings.clear();
+				unverifiedFoldings.clear();
+				for (final var it = annoModel.getAnnotationIterator(); it.hasNext();) {
+					if (it.next() instanceof final ProjectionAnnotation anno && isOwnAnnotation(anno)) {
+						unverifiedFoldings.add(anno);
+					}
+				}
+			}
+
+			// map annotations spanning changed lines back to lines
+			for (final ProjectionAnnotation anno : unverifiedFoldings) {
+				final Position pos = annoModel.getPosition(anno);
+				if (pos == null || pos.getLength() == 0 || pos.isDeleted()) { // zero-length = bogus
+					deletions.add(anno);
+					continue;
+				}
+
+				try {
+					final int annStartLineIndex = document.getLineOfOffset(pos.getOffset());
+					// + (length - 1) because last char belongs to the range
+					final int annEndLineIndex = document.getLineOfOffset(pos.getOffset() + pos.getLength() - 1);
+					if (foldings.putIfAbsent(new FoldingRange(annStartLineIndex, annEndLineIndex), anno) != null) {
+						deletions.add(anno); // duplicate
+					}
+				} catch (final BadLocationException ex) {
+					// unable to map position -> recreate via deletions/additions
+					deletions.add(anno);
+				}
+			}
+			unverifiedFoldings.clear();
+
+			for (final var it = foldings.entrySet().iterator(); it.hasNext();) {
+				final var folding = it.next();
+				if (!newRanges.remove(folding.getKey())) {
+					deletions.add(folding.getValue()); // stale -> delete
+					it.remove();
+				}
+			}
+
+			// Create Position + Annotation objects for new ranges
+			for (final FoldingRange range : newRanges) {
+				final int startOffset = document.getLineOffset(range.startLineIndex);
+				final int endOffset = document.getLineOffset(range.endLineIndex) + document.getLineLength(range.endLineIndex);
+				final var anno = createAnnotation();
+				additions.put(anno, new Position(startOffset, endOffset - startOffset));
+				foldings.put(range, anno);
+			}
+			isSynced = true;
+
+			/*
+			 * Apply changes to the annotation model
+			 */
+			if (document != this.document)
+				return; // abort on changed document
+			modifyAnnotations(deletions, additions, List.of());
+		}
+	}
+
+	/**
+	 * Moves the cached line values and the line ranges of the annotations according to the document changes since the
+	 * last reconcile. Values of changed lines are discarded and annotations spanning changed lines are marked as
+	 * unverified.
+	 */
+	private void applyPendingLineChanges() {
+		for (int[] change; (change = pendingLineChanges.poll()) != null;) {
+			if (!isSynced)
+				continue; // everything is recomputed anyway
+
+			if (change == RESYNC) {
+				isSynced = false;
+				continue;
+			}
+
+			final int startLineIndex = change[0];
+			final int removedLines = change[1];
+			final int addedLines = change[2];
+			if (startLineIndex + removedLines > lineValues.size()) {
+				isSynced = false;
+				continue;
+			}
+
+			final var changedLines = lineValues.subList(startLineIndex, startLineIndex + removedLines);
+			changedLines.clear();
+			changedLines.addAll(Collections.nCopies(addedLines, null));
+
+			final int lastChangedLineIndex = startLineIndex + removedLines - 1;
+			final int lineDelta = addedLines - removedLines;
+			final var shifted = new HashMap<FoldingRange, ProjectionAnnotation>();
+			for (final var it = foldings.entrySet().iterator(); it.hasNext();) {
+				final var folding = it.next();
+				final FoldingRange range = folding.getKey();
+				if (range.endLineIndex < startLineIndex)
+					continue; // before the change -> unaffected
+
+				it.remove();
+				if (range.startLineIndex > lastChangedLineIndex) {
+					shifted.put(new FoldingRange(range.startLineIndex + lineDelta, range.endLineIndex + lineDelta),
+							folding.getValue());
+				} else {
+					unverifiedFoldings.add(folding.getValue());
+				}
+			}
+			foldings.putAll(shifted);
+		}
+	}
+
 	@Override
 	public void initialReconcile() {
 		reconcile(null);
@@ -120,7 +412,15 @@ public void reconcile(final @Nullable IRegion subRegion) {
 
 	@Override
 	public void setDocument(final @Nullable IDocument document) {
+		final var oldDocument = this.document;
+		if (oldDocument != null) {
+			oldDocument.removeDocumentListener(documentListener);
+		}
 		this.document = document;
+		invalidateFoldings();
+		if (document != null) {
+			document.addDocumentListener(documentListener);
+		}
 	}
 
 	@Override
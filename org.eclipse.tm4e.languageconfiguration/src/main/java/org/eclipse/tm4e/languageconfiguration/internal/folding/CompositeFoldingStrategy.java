@@ -35,7 +35,7 @@
 public final class CompositeFoldingStrategy
 		implements IReconcilingStrategy, IReconcilingStrategyExtension, ITextViewerLifecycle {
 
-	private static final List<AbstractFoldingStrategy> DELEGATES = List.of(
+	private final List<AbstractFoldingStrategy> delegates = List.of(
 			new IndentationFoldingStrategy(),
 			new TMFoldingStrategy());
 
@@ -44,49 +44,49 @@ public CompositeFoldingStrategy() {
 
 	@Override
 	public void initialReconcile() {
-		for (final AbstractFoldingStrategy delegate : DELEGATES) {
+		for (final AbstractFoldingStrategy delegate : delegates) {
 			delegate.initialReconcile();
 		}
 	}
 
 	@Override
 	public void install(final ITextViewer textViewer) {
-		for (final AbstractFoldingStrategy delegate : DELEGATES) {
+		for (final AbstractFoldingStrategy delegate : delegates) {
 			delegate.install(textViewer);
 		}
 	}
 
 	@Override
 	public void reconcile(final DirtyRegion dirtyRegion, final @Nullable IRegion subRegion) {
-		for (final AbstractFoldingStrategy delegate : DELEGATES) {
+		for (final AbstractFoldingStrategy delegate : delegates) {
 			delegate.reconcile(dirtyRegion, subRegion);
 		}
 	}
 
 	@Override
 	public void reconcile(final IRegion partition) {
-		for (final AbstractFoldingStrategy delegate : DELEGATES) {
+		for (final AbstractFoldingStrategy delegate : delegates) {
 			delegate.reconcile(partition);
 		}
 	}
 
 	@Override
 	public void setDocument(final @Nullable IDocument document) {
-		for (final AbstractFoldingStrategy delegate : DELEGATES) {
+		for (final AbstractFoldingStrategy delegate : delegates) {
 			delegate.setDocument(document);
 		}
 	}
 
 	@Override
 	public void setProgressMonitor(final @Nullable IProgressMonitor monitor) {
-		for (final AbstractFoldingStrategy delegate : DELEGATES) {
+		for (final AbstractFoldingStrategy delegate : delegates) {
 			delegate.setProgressMonitor(monitor);
 		}
 	}
 
 	@Override
 	public void uninstall() {
-		for (final AbstractFoldingStrategy delegate : DELEGATES) {
+		for (final AbstractFoldingStrategy delegate : delegates) {
 			delegate.uninstall();
 		}
 	}
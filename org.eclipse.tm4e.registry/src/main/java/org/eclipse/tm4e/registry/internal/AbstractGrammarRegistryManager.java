@@ -18,6 +18,7 @@
 import java.io.Reader;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -36,6 +37,7 @@
 import org.eclipse.tm4e.registry.IGrammarDefinition;
 import org.eclipse.tm4e.registry.IGrammarRegistryManager;
 import org.eclipse.tm4e.registry.ITMScope;
+import org.eclipse.tm4e.registry.TMEclipseRegistryPlugin;
 
 abstract class AbstractGrammarRegistryManager implements IGrammarRegistryManager {
 
@@ -148,6 +150,19 @@ public long getLastModified() {
 					}
 				};
 			}
+
+			@Override
+			public @Nullable Path getGrammarCacheDir() {
+				final var plugin = TMEclipseRegistryPlugin.getDefault();
+				if (plugin == null)
+					return null;
+				try {
+					return plugin.getStateLocation().append("grammar-cache").toFile().toPath();
+				} catch (final IllegalStateException ex) {
+					// no writable instance location, e.g. when running headless with -data @none
+					return null;
+				}
+			}
 		});
 	}
 
@@ -0,0 +1,226 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.ui.tests;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.TextPresentation;
+import org.eclipse.jface.text.TextViewer;
+import org.eclipse.jface.text.rules.IToken;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyleRange;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.tm4e.core.grammar.IGrammar;
+import org.eclipse.tm4e.core.model.TMToken;
+import org.eclipse.tm4e.core.registry.IGrammarSource;
+import org.eclipse.tm4e.core.registry.Registry;
+import org.eclipse.tm4e.ui.TMUIPlugin;
+import org.eclipse.tm4e.ui.tests.support.TestUtils;
+import org.eclipse.tm4e.ui.text.ITMPresentationReconcilerListener;
+import org.eclipse.tm4e.ui.text.TMPresentationReconciler;
+import org.eclipse.tm4e.ui.themes.ITokenProvider;
+import org.eclipse.tm4e.ui.themes.ThemeIdConstants;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that styles are computed off the UI thread and that the lines near the viewport are colorized first.
+ */
+class TMPresentationReconcilerColorizingTest {
+
+	private static final int LINES = 2_000;
+
+	/**
+	 * Delegates to a theme and counts the tokens styled off the UI thread.
+	 */
+	private static final class ThreadRecordingTokenProvider implements ITokenProvider {
+
+		final AtomicInteger offUIThreadCalls = new AtomicInteger();
+		private final ITokenProvider theme;
+
+		ThreadRecordingTokenProvider(final ITokenProvider theme) {
+			this.theme = theme;
+		}
+
+		@Override
+		public IToken getToken(final String tmTokenType) {
+			return theme.getToken(tmTokenType);
+		}
+
+		@Override
+		public IToken getToken(final TMToken token) {
+			if (Display.getCurrent() == null) {
+				offUIThreadCalls.incrementAndGet();
+			}
+			return theme.getToken(token);
+		}
+
+		@Override
+		public Color getEditorBackground() {
+			return theme.getEditorBackground();
+		}
+
+		@Override
+		public Color getEditorForeground() {
+			return theme.getEditorForeground();
+		}
+
+		@Override
+		public Color getEditorSelectionBackground() {
+			return theme.getEditorSelectionBackground();
+		}
+
+		@Override
+		public Color getEditorSelectionForeground() {
+			return theme.getEditorSelectionForeground();
+		}
+
+		@Override
+		public Color getEditorCurrentLineHighlight() {
+			return theme.getEditorCurrentLineHighlight();
+		}
+	}
+
+	private IGrammar grammar;
+	private ThreadRecordingTokenProvider theme;
+	private final List<IRegion> colorizedRegions = new CopyOnWriteArrayList<>();
+
+	private Shell shell;
+	private TextViewer viewer;
+	private Document document;
+	private TMPresentationReconciler reconciler;
+
+	@BeforeEach
+	void setup() throws Exception {
+		TestUtils.assertNoTM4EThreadsRunning();
+
+		grammar = new Registry().addGrammar(IGrammarSource.fromResource(getClass(), "/grammars/TypeScript.tmLanguage.json"));
+		theme = new ThreadRecordingTokenProvider(TMUIPlugin.getThemeManager().getThemeById(ThemeIdConstants.SolarizedLight));
+
+		shell = new Shell();
+		shell.setLayout(new FillLayout());
+		shell.setSize(400, 300);
+		viewer = new TextViewer(shell, SWT.V_SCROLL);
+		document = new Document();
+		viewer.setDocument(document);
+		shell.layout();
+		shell.open();
+
+		reconciler = new TMPresentationReconciler();
+		reconciler.addListener(new ITMPresentationReconcilerListener() {
+			@Override
+			public void onInstalled(final ITextViewer textViewer, final IDocument doc) {
+			}
+
+			@Override
+			public void onUninstalled() {
+			}
+
+			@Override
+			public void onColorized(final TextPresentation presentation, final Throwable error) {
+				if (error == null) {
+					colorizedRegions.add(presentation.getExtent());
+				}
+			}
+		});
+		reconciler.setGrammar(grammar);
+		reconciler.setTheme(theme);
+		reconciler.install(viewer);
+
+		final var text = new StringBuilder();
+		for (int i = 0; i < LINES; i++) {
+			text.append("let a").append(i).append(" = ").append(i).append(";\n");
+		}
+		document.set(text.toString());
+		TestUtils.waitForModelReady(document, 10_000);
+		TestUtils.waitForAndAssertCondition(5_000, () -> isKeywordColorized(0));
+		processUIEvents();
+	}
+
+	@AfterEach
+	void tearDown() throws InterruptedException {
+		reconciler.uninstall();
+		shell.dispose();
+
+		TestUtils.assertNoTM4EThreadsRunning();
+	}
+
+	@Test
+	void testStylesAreComputedOffUIThread() {
+		assertThat(theme.offUIThreadCalls).hasPositiveValue();
+	}
+
+	@Test
+	void testVisibleLinesAreColorizedFirst() throws BadLocationException {
+		assertThat(viewer.getTopIndex()).isZero();
+		assertThat(isKeywordColorized(1_900)).isFalse();
+		assertNotColorized(1_500);
+
+		viewer.setTopIndex(1_900);
+		TestUtils.waitForAndAssertCondition(5_000, () -> isKeywordColorized(1_900));
+		assertThat(isKeywordColorized(LINES - 1)).isTrue();
+	}
+
+	@Test
+	void testDeferredLinesAreMovedOnDocumentChange() throws BadLocationException {
+		colorizedRegions.clear();
+		document.replace(0, 0, "let x = 0;\nlet y = 0;\n");
+		TestUtils.waitForAndAssertCondition(5_000, () -> isKeywordColorized(0) && isKeywordColorized(1));
+		processUIEvents();
+
+		// the insertion neither colorizes the deferred lines nor moves their styles to the wrong offsets
+		assertNotColorized(1_500);
+		assertThat(isKeywordColorized(1_902)).isFalse();
+
+		viewer.setTopIndex(1_902);
+		TestUtils.waitForAndAssertCondition(5_000, () -> isKeywordColorized(1_902));
+		final int lineOffset = document.getLineOffset(1_902);
+		assertThat(document.get(lineOffset, 8)).isEqualTo("let a190");
+		assertThat(isBold(lineOffset + 3)).isFalse();
+	}
+
+	private void assertNotColorized(final int lineIndex) throws BadLocationException {
+		final int lineOffset = document.getLineOffset(lineIndex);
+		assertThat(colorizedRegions).noneMatch(region -> region.getOffset() <= lineOffset
+				&& lineOffset < region.getOffset() + region.getLength());
+	}
+
+	/**
+	 * @return true if the <code>let</code> keyword at the start of the given line is styled bold by the theme
+	 */
+	private boolean isKeywordColorized(final int lineIndex) throws BadLocationException {
+		return isBold(document.getLineOffset(lineIndex));
+	}
+
+	private boolean isBold(final int offset) {
+		final StyleRange style = viewer.getTextWidget().getStyleRangeAtOffset(offset);
+		return style != null && (style.fontStyle & SWT.BOLD) != 0;
+	}
+
+	private void processUIEvents() {
+		final Display display = shell.getDisplay();
+		while (display.readAndDispatch()) {
+			// process pending presentations
+		}
+	}
+}
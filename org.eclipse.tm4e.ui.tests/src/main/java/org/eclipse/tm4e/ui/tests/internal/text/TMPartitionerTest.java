@@ -459,6 +459,29 @@ void partitionsEmbeddedLanguages() throws Exception {
 		assertThat(jsType).isEqualTo("tm4e:source.js");
 	}
 
+	@Test
+	void partitionsRightOfEditsAreShifted() throws Exception {
+		final String text = doc.get();
+		final int scriptContent = text.indexOf("<script>\n") + "<script>\n".length();
+		final int scriptClose = text.indexOf("</script>", scriptContent);
+		final int styleContent = text.indexOf("<style>\n") + "<style>\n".length();
+
+		// insert and remove text left of the embedded regions without waiting for tokenization
+		final String header = "<!-- header -->\n";
+		for (int i = 0; i < 50; i++) {
+			doc.replace(0, 0, header);
+		}
+		doc.replace(0, header.length() * 10, "");
+		final int shift = header.length() * 40;
+
+		final ITMPartitionRegion js = partitioner.getPartition(scriptContent + shift);
+		assertThat(js.getType()).isEqualTo("tm4e:source.js");
+		assertThat(js.getOffset()).isLessThanOrEqualTo(scriptContent + shift);
+		assertThat(js.getOffset() + js.getLength()).isGreaterThanOrEqualTo(scriptClose + shift);
+		assertThat(partitioner.getPartition(styleContent + shift).getType()).isEqualTo("tm4e:source.css");
+		assertThat(partitioner.getPartition(0).getType()).isNotEqualTo("tm4e:source.js");
+	}
+
 	@Test
 	void prefersExistingModelGrammar() throws Exception {
 		// Prepare a fresh document and set a grammar directly on the shared model
@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.ui.tests.internal.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.tm4e.ui.internal.utils.UI;
+import org.eclipse.tm4e.ui.tests.support.TestUtils;
+import org.eclipse.ui.ide.IDE;
+import org.eclipse.ui.texteditor.ITextEditor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MarkerUtilsTest {
+
+	private static final String TASKMARKER_TYPE = "org.eclipse.tm4e.ui.taskmarker";
+
+	private IProject project;
+	private IFile file;
+	private ITextEditor editor;
+
+	@BeforeEach
+	public void setup() throws Exception {
+		TestUtils.assertHasGenericEditor();
+		project = ResourcesPlugin.getWorkspace().getRoot().getProject(getClass().getSimpleName() + System.currentTimeMillis());
+		project.create(null);
+		project.open(null);
+
+		file = project.getFile("tasks.ts");
+		file.create(new ByteArrayInputStream("""
+			let a = 1;
+			// TODO first
+			let b = 2;
+			// FIXME second
+			""".getBytes()), true, null);
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		TestUtils.closeEditor(editor);
+		editor = null;
+		if (project != null && project.exists()) {
+			project.delete(true, null);
+		}
+	}
+
+	private IDocument openEditor() throws Exception {
+		editor = (ITextEditor) IDE.openEditor(UI.getActivePage(), file, "org.eclipse.ui.genericeditor.GenericEditor");
+		return editor.getDocumentProvider().getDocument(editor.getEditorInput());
+	}
+
+	/**
+	 * Waits until the task markers of the file are at the expected lines with the expected messages and positioned at
+	 * their tags.
+	 *
+	 * @param expectedMarkers entries in the form <code>lineNumber:message</code>
+	 */
+	private void assertTaskMarkers(final IDocument doc, final String... expectedMarkers) {
+		TestUtils.waitForAndAssertCondition(5_000, () -> {
+			final var markers = file.findMarkers(TASKMARKER_TYPE, true, IResource.DEPTH_ZERO);
+			final List<String> actual = Arrays.stream(markers)
+					.map(m -> m.getAttribute(IMarker.LINE_NUMBER, -1) + ":" + m.getAttribute(IMarker.MESSAGE, ""))
+					.sorted()
+					.toList();
+			assertThat(actual).containsExactly(expectedMarkers);
+
+			for (final IMarker marker : markers) {
+				final int charStart = marker.getAttribute(IMarker.CHAR_START, -1);
+				final String message = marker.getAttribute(IMarker.MESSAGE, "");
+				assertThat(doc.get(charStart, message.length())).isEqualTo(message);
+				assertThat(doc.getLineOfOffset(charStart) + 1).isEqualTo(marker.getAttribute(IMarker.LINE_NUMBER, -1));
+			}
+			return true;
+		});
+	}
+
+	private IMarker[] findTaskMarkers() throws CoreException {
+		return file.findMarkers(TASKMARKER_TYPE, true, IResource.DEPTH_ZERO);
+	}
+
+	@Test
+	void testInsertLinesAboveTag() throws Exception {
+		final IDocument doc = openEditor();
+		assertTaskMarkers(doc, "2:TODO first", "4:FIXME second");
+		final IMarker todoMarker = Arrays.stream(findTaskMarkers())
+				.filter(m -> m.getAttribute(IMarker.MESSAGE, "").equals("TODO first"))
+				.findFirst().orElseThrow();
+
+		doc.replace(0, 0, "let x = 0;\nlet y = 0;\n");
+		assertTaskMarkers(doc, "4:TODO first", "6:FIXME second");
+
+		// the markers are moved, not recreated
+		assertThat(todoMarker.exists()).isTrue();
+	}
+
+	@Test
+	void testDeleteLineWithTag() throws Exception {
+		final IDocument doc = openEditor();
+		assertTaskMarkers(doc, "2:TODO first", "4:FIXME second");
+
+		final var todoLine = doc.getLineInformation(1);
+		doc.replace(todoLine.getOffset(), todoLine.getLength() + 1, "");
+		assertTaskMarkers(doc, "3:FIXME second");
+	}
+
+	@Test
+	void testEditInsideTaggedLine() throws Exception {
+		final IDocument doc = openEditor();
+		assertTaskMarkers(doc, "2:TODO first", "4:FIXME second");
+
+		doc.replace(doc.get().indexOf("first"), "first".length(), "changed");
+		assertTaskMarkers(doc, "2:TODO changed", "4:FIXME second");
+
+		// indenting the comment moves the marker within the line
+		doc.replace(doc.getLineOffset(1), 0, "    ");
+		assertTaskMarkers(doc, "2:TODO changed", "4:FIXME second");
+
+		// removing the tag removes the marker
+		doc.replace(doc.get().indexOf("FIXME"), "FIXME".length(), "fixed");
+		assertTaskMarkers(doc, "2:TODO changed");
+	}
+
+	@Test
+	void testCloseAndReopenEditor() throws Exception {
+		IDocument doc = openEditor();
+		assertTaskMarkers(doc, "2:TODO first", "4:FIXME second");
+
+		TestUtils.closeEditor(editor);
+		editor = null;
+
+		// the markers are kept and adopted by the reopened editor instead of being duplicated
+		doc = openEditor();
+		assertTaskMarkers(doc, "2:TODO first", "4:FIXME second");
+
+		// changes of the reopened document are still tracked
+		doc.replace(0, 0, "let x = 0;\n");
+		assertTaskMarkers(doc, "3:TODO first", "5:FIXME second");
+	}
+}
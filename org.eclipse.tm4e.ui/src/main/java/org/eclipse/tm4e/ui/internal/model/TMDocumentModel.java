@@ -16,6 +16,7 @@
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IDocumentListener;
 import org.eclipse.tm4e.core.model.TMModel;
+import org.eclipse.tm4e.core.model.TokenizerScheduler;
 import org.eclipse.tm4e.ui.TMUIPlugin;
 import org.eclipse.tm4e.ui.model.ITMDocumentModel;
 
@@ -28,7 +29,11 @@ public final class TMDocumentModel extends TMModel implements ITMDocumentModel,
 	private int endLineIndexOfRemovedText = -1;
 
 	public TMDocumentModel(final IDocument document) {
-		super(document.getNumberOfLines());
+		this(document, TokenizerScheduler.getDefault());
+	}
+
+	public TMDocumentModel(final IDocument document, final TokenizerScheduler tokenizerScheduler) {
+		super(document.getNumberOfLines(), tokenizerScheduler);
 		this.document = document;
 		document.addDocumentListener(this);
 	}
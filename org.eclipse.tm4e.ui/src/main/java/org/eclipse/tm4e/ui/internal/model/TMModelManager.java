@@ -16,6 +16,9 @@
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.tm4e.core.model.TokenizationCache;
+import org.eclipse.tm4e.core.model.TokenizerScheduler;
+import org.eclipse.tm4e.ui.internal.utils.MarkerUtils;
 import org.eclipse.tm4e.ui.model.ITMModelManager;
 
 /**
@@ -27,12 +30,19 @@ public final class TMModelManager implements ITMModelManager {
 
 	private final Map<IDocument, TMDocumentModel> models = new ConcurrentHashMap<>();
 
+	private volatile TokenizerScheduler tokenizerScheduler = TokenizerScheduler.getDefault();
+	private volatile @Nullable TokenizationCache tokenizationCache;
+
 	private TMModelManager() {
 	}
 
 	@Override
 	public TMDocumentModel connect(final IDocument document) {
-		return models.computeIfAbsent(document, TMDocumentModel::new);
+		return models.computeIfAbsent(document, doc -> {
+			final var model = new TMDocumentModel(doc, tokenizerScheduler);
+			model.setTokenizationCache(tokenizationCache);
+			return model;
+		});
 	}
 
 	@Override
@@ -41,6 +51,7 @@ public void disconnect(final IDocument document) {
 		if (model != null) {
 			model.dispose();
 		}
+		MarkerUtils.disconnect(document);
 	}
 
 	public @Nullable TMDocumentModel getConnectedModel(final IDocument document) {
@@ -51,4 +62,35 @@ public void disconnect(final IDocument document) {
 	public boolean isConnected(final IDocument document) {
 		return models.containsKey(document);
 	}
+
+	public TokenizerScheduler getTokenizerScheduler() {
+		return tokenizerScheduler;
+	}
+
+	/**
+	 * Sets the scheduler performing the background tokenization of documents connected from now on, e.g. to use a
+	 * different number of threads or virtual threads. Already connected documents keep using their scheduler.
+	 * <p>
+	 * Internal, not part of the {@link ITMModelManager} API. Clients managing their own
+	 * {@link org.eclipse.tm4e.core.model.TMModel}s pass the scheduler to the model constructor instead.
+	 */
+	public void setTokenizerScheduler(final TokenizerScheduler tokenizerScheduler) {
+		this.tokenizerScheduler = tokenizerScheduler;
+	}
+
+	public @Nullable TokenizationCache getTokenizationCache() {
+		return tokenizationCache;
+	}
+
+	/**
+	 * Sets the cache of line tokenization results shared by all connected documents, or null to not use a cache.
+	 * <p>
+	 * Internal, not part of the {@link ITMModelManager} API. Clients managing their own
+	 * {@link org.eclipse.tm4e.core.model.TMModel}s use
+	 * {@link org.eclipse.tm4e.core.model.TMModel#setTokenizationCache(TokenizationCache)} instead.
+	 */
+	public void setTokenizationCache(final @Nullable TokenizationCache tokenizationCache) {
+		this.tokenizationCache = tokenizationCache;
+		models.values().forEach(model -> model.setTokenizationCache(tokenizationCache));
+	}
 }
@@ -0,0 +1,260 @@
+/**
+ * Copyright (c) 2026 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.ui.internal.text;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.ui.internal.text.TMPartitioner.TMPartitionRegion;
+
+/**
+ * Immutable index of non-overlapping partition regions keyed by their start offset.
+ * <p>
+ * Implemented as a persistent treap where each node stores its start offset relative to the start offset of its parent
+ * node. Shifting all regions right of an edit therefore only requires splitting the tree and adjusting the offset of
+ * one root node, i.e. O(log n) instead of O(n) for re-inserting every region into a sorted map.
+ * <p>
+ * All modifications return a new tree and share unchanged nodes with the original one, so readers can work on a
+ * snapshot without locking.
+ */
+final class TMPartitionTree {
+
+	static final TMPartitionTree EMPTY = new TMPartitionTree(null);
+
+	private static final class Node {
+		/** start offset relative to the start offset of the parent node, or the document offset for a root node */
+		final int offset;
+		final int length;
+		final String type;
+		final String grammarScope;
+		final int priority;
+		final @Nullable Node left;
+		final @Nullable Node right;
+
+		Node(final int offset, final int length, final String type, final String grammarScope, final int priority,
+				final @Nullable Node left, final @Nullable Node right) {
+			this.offset = offset;
+			this.length = length;
+			this.type = type;
+			this.grammarScope = grammarScope;
+			this.priority = priority;
+			this.left = left;
+			this.right = right;
+		}
+
+		Node with(final int offset, final @Nullable Node left, final @Nullable Node right) {
+			if (offset == this.offset && left == this.left && right == this.right)
+				return this;
+			return new Node(offset, length, type, grammarScope, priority, left, right);
+		}
+
+		TMPartitionRegion toRegion(final int start) {
+			return new TMPartitionRegion(start, length, type, grammarScope);
+		}
+	}
+
+	private static @Nullable Node shift(final @Nullable Node node, final int delta) {
+		return node == null || delta == 0 ? node : node.with(node.offset + delta, node.left, node.right);
+	}
+
+	/**
+	 * @param parentStart start offset of the parent of the given node
+	 *
+	 * @return the root nodes of the trees with the regions starting before and at/after the given key, both with
+	 *         document offsets
+	 */
+	private static @Nullable Node[] split(final @Nullable Node node, final int parentStart, final int key) {
+		if (node == null)
+			return new @Nullable Node[2];
+		final int start = parentStart + node.offset;
+		if (start < key) {
+			final var parts = split(node.right, start, key);
+			parts[0] = node.with(start, node.left, shift(parts[0], -start));
+			return parts;
+		}
+		final var parts = split(node.left, start, key);
+		parts[1] = node.with(start, shift(parts[1], -start), node.right);
+		return parts;
+	}
+
+	/**
+	 * Joins two trees where all regions of the left tree start before the regions of the right tree.
+	 *
+	 * @param left root node with document offset
+	 * @param right root node with document offset
+	 *
+	 * @return the new root node with document offset
+	 */
+	private static @Nullable Node merge(final @Nullable Node left, final @Nullable Node right) {
+		if (left == null)
+			return right;
+		if (right == null)
+			return left;
+		if (left.priority > right.priority) {
+			final Node merged = merge(shift(left.right, left.offset), right);
+			return left.with(left.offset, left.left, shift(merged, -left.offset));
+		}
+		final Node merged = merge(left, shift(right.left, right.offset));
+		return right.with(right.offset, shift(merged, -right.offset), right.right);
+	}
+
+	private final @Nullable Node root;
+
+	private TMPartitionTree(final @Nullable Node root) {
+		this.root = root;
+	}
+
+	boolean isEmpty() {
+		return root == null;
+	}
+
+	/**
+	 * @return the region starting at the given offset or null
+	 */
+	@Nullable
+	TMPartitionRegion get(final int offset) {
+		Node node = root;
+		int parentStart = 0;
+		while (node != null) {
+			final int start = parentStart + node.offset;
+			if (start == offset)
+				return node.toRegion(start);
+			parentStart = start;
+			node = start < offset ? node.right : node.left;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the region with the greatest start offset less than or equal to the given offset or null
+	 */
+	@Nullable
+	TMPartitionRegion floor(final int offset) {
+		Node node = root;
+		int parentStart = 0;
+		Node candidate = null;
+		int candidateStart = 0;
+		while (node != null) {
+			final int start = parentStart + node.offset;
+			if (start == offset)
+				return node.toRegion(start);
+			parentStart = start;
+			if (start < offset) {
+				candidate = node;
+				candidateStart = start;
+				node = node.right;
+			} else {
+				node = node.left;
+			}
+		}
+		return candidate == null ? null : candidate.toRegion(candidateStart);
+	}
+
+	/**
+	 * @return the region with the least start offset greater than or equal to the given offset or null
+	 */
+	@Nullable
+	TMPartitionRegion ceiling(final int offset) {
+		Node node = root;
+		int parentStart = 0;
+		Node candidate = null;
+		int candidateStart = 0;
+		while (node != null) {
+			final int start = parentStart + node.offset;
+			if (start == offset)
+				return node.toRegion(start);
+			parentStart = start;
+			if (start > offset) {
+				candidate = node;
+				candidateStart = start;
+				node = node.left;
+			} else {
+				node = node.right;
+			}
+		}
+		return candidate == null ? null : candidate.toRegion(candidateStart);
+	}
+
+	/**
+	 * @return the regions starting in [fromOffset, toOffset) ordered by offset
+	 */
+	List<TMPartitionRegion> subList(final int fromOffset, final int toOffset) {
+		final var result = new ArrayList<TMPartitionRegion>();
+		if (fromOffset < toOffset) {
+			collect(root, 0, fromOffset, toOffset, result);
+		}
+		return result;
+	}
+
+	private static void collect(final @Nullable Node node, final int parentStart, final int fromOffset, final int toOffset,
+			final List<TMPartitionRegion> result) {
+		if (node == null)
+			return;
+		final int start = parentStart + node.offset;
+		if (start > fromOffset) {
+			collect(node.left, start, fromOffset, toOffset, result);
+		}
+		if (start >= fromOffset && start < toOffset) {
+			result.add(node.toRegion(start));
+		}
+		if (start < toOffset - 1) {
+			collect(node.right, start, fromOffset, toOffset, result);
+		}
+	}
+
+	/**
+	 * @return a tree with the given region added, replacing a region with the same start offset
+	 */
+	TMPartitionTree put(final TMPartitionRegion region) {
+		final int start = region.offset();
+		final var parts = split(root, 0, start);
+		final var tail = split(parts[1], 0, start + 1)[1];
+		final var node = new Node(start, region.length(), region.type(), region.grammarScope(),
+				ThreadLocalRandom.current().nextInt(), null, null);
+		return new TMPartitionTree(merge(merge(parts[0], node), tail));
+	}
+
+	/**
+	 * @return a tree without the region starting at the given offset
+	 */
+	TMPartitionTree remove(final int offset) {
+		return removeRange(offset, offset + 1);
+	}
+
+	/**
+	 * @return a tree without the regions starting in [fromOffset, toOffset), or this tree if there are none
+	 */
+	TMPartitionTree removeRange(final int fromOffset, final int toOffset) {
+		if (root == null || toOffset <= fromOffset)
+			return this;
+		final var parts = split(root, 0, fromOffset);
+		final var rest = split(parts[1], 0, toOffset);
+		if (rest[0] == null)
+			return this;
+		return new TMPartitionTree(merge(parts[0], rest[1]));
+	}
+
+	/**
+	 * Moves all regions starting at or after the given offset by <code>delta</code>. The caller must ensure the moved
+	 * regions still start after all other regions.
+	 *
+	 * @return the shifted tree, or this tree if no region was moved
+	 */
+	TMPartitionTree shiftFrom(final int fromOffset, final int delta) {
+		if (root == null || delta == 0)
+			return this;
+		final var parts = split(root, 0, fromOffset);
+		if (parts[1] == null)
+			return this;
+		return new TMPartitionTree(merge(parts[0], shift(parts[1], delta)));
+	}
+}
@@ -15,12 +15,8 @@
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.TreeMap;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.jface.text.BadLocationException;
@@ -147,24 +143,28 @@ public static String scopeToPartitionType(final String scope) {
 	 * <li>Keys grow from left to right; regions do not overlap.
 	 * <li>Offsets/lengths use document offsets.
 	 * <li>Between indexed regions there can be gaps; these are treated as base type.
+	 * <p>
+	 * The index is immutable. Writers build a new index and publish it once complete, so readers work on a consistent
+	 * snapshot without locking.
 	 */
-	private final TreeMap<Integer, TMPartitionRegion> partitions = new TreeMap<>();
+	private volatile TMPartitionTree partitions = TMPartitionTree.EMPTY;
 
 	/**
-	 * Discovered partition types for this document. Semantics:
+	 * Discovered partition types for this document, immutable and replaced on change. Semantics:
 	 * <li>Always contains {@code basePartitionType} after connect/init.
 	 * <li>More types are added when we see embedded languages; cleared on disconnect/init.
 	 */
-	private final Set<String> legalTypes = new HashSet<>();
+	private volatile Set<String> legalTypes = Set.of();
 
 	/**
-	 * Read/write lock that protects the mutable partition state:
-	 * <li>{@link #partitions}: read with the read lock, write with the write lock
-	 * <li>{@link #legalTypes}: read with the read lock, write with the write lock
-	 * <li>{@link #basePartitionType}: writes happen under the write lock together with the above structures to keep them consistent;
-	 * reads may occur without a lock because the field is {@code volatile}
+	 * Serializes writers of the mutable partition state:
+	 * <li>{@link #partitions}
+	 * <li>{@link #legalTypes}
+	 * <li>{@link #basePartitionType}: writes happen together with the above structures to keep them consistent
+	 * <p>
+	 * Readers do not lock since all fields are {@code volatile} and reference immutable values.
 	 */
-	private final ReadWriteLock partitionsLock = new ReentrantReadWriteLock();
+	private final Object partitionsWriteLock = new Object();
 
 	private final ModelTokensChangedEvent.Listener modelListener = this::onTokensChanged;
 
@@ -240,136 +240,130 @@ private static void addSeg(final List<TMPartitionRegion> out, final int start, f
 	public ITMPartitionRegion[] computePartitioning(final int offset, final int length) {
 		ensureActivated();
 
-		partitionsLock.readLock().lock();
-		try {
-			final var doc = document;
-			if (doc == null)
-				return new ITMPartitionRegion[] { new TMPartitionRegion(0, 0, basePartitionType, (IGrammar) null) };
-			final var grammar = this.grammar;
-
-			// Fast path for empty ranges to keep intent obvious
-			if (length <= 0) {
-				final int start = Math.clamp(offset, 0, doc.getLength());
-				return new ITMPartitionRegion[] { new TMPartitionRegion(start, 0, basePartitionType, grammar) };
-			}
-
-			final int docLen = doc.getLength();
-			final int start = Math.clamp(offset, 0, docLen);
-			final int end = Math.clamp(offset + length, start, docLen);
-
-			if (partitions.isEmpty())
-				// no known partitions -> everything is base
-				return new ITMPartitionRegion[] { new TMPartitionRegion(start, Math.max(0, end - start), basePartitionType, grammar) };
-
-			final var list = new ArrayList<TMPartitionRegion>();
-
-			int cursor = start;
-			// Handle partition that starts before 'start' but overlaps it
-			final Map.Entry<Integer, TMPartitionRegion> floor = partitions.floorEntry(start);
-			if (floor != null) {
-				final TMPartitionRegion r = floor.getValue();
-				final int rStart = r.getOffset();
-				final int rEnd = rStart + r.getLength();
-				if (rStart < start && rEnd > start) {
-					final int to = Math.min(end, rEnd);
-					if (to > cursor) {
-						list.add(new TMPartitionRegion(cursor, to - cursor, r));
-						cursor = to;
-					}
+		final var doc = document;
+		if (doc == null)
+			return new ITMPartitionRegion[] { new TMPartitionRegion(0, 0, basePartitionType, (IGrammar) null) };
+		final var grammar = this.grammar;
+		final var partitions = this.partitions;
+
+		// Fast path for empty ranges to keep intent obvious
+		if (length <= 0) {
+			final int start = Math.clamp(offset, 0, doc.getLength());
+			return new ITMPartitionRegion[] { new TMPartitionRegion(start, 0, basePartitionType, grammar) };
+		}
+
+		final int docLen = doc.getLength();
+		final int start = Math.clamp(offset, 0, docLen);
+		final int end = Math.clamp(offset + length, start, docLen);
+
+		if (partitions.isEmpty())
+			// no known partitions -> everything is base
+			return new ITMPartitionRegion[] { new TMPartitionRegion(start, Math.max(0, end - start), basePartitionType, grammar) };
+
+		final var list = new ArrayList<TMPartitionRegion>();
+
+		int cursor = start;
+		// Handle partition that starts before 'start' but overlaps it
+		final TMPartitionRegion floor = partitions.floor(start);
+		if (floor != null) {
+			final int rStart = floor.getOffset();
+			final int rEnd = rStart + floor.getLength();
+			if (rStart < start && rEnd > start) {
+				final int to = Math.min(end, rEnd);
+				if (to > cursor) {
+					list.add(new TMPartitionRegion(cursor, to - cursor, floor));
+					cursor = to;
 				}
 			}
+		}
 
-			// Walk only entries that can overlap [start, end)
-			for (final var e : partitions.subMap(start, true, Math.max(start, end - 1), true).entrySet()) {
-				if (cursor >= end) {
-					break;
-				}
-				final int rStart = e.getKey();
-				final TMPartitionRegion r = e.getValue();
-				final int rEnd = rStart + r.getLength();
-
-				if (rStart > cursor) {
-					final int gapEnd = Math.min(end, rStart);
-					if (gapEnd > cursor) {
-						list.add(new TMPartitionRegion(cursor, gapEnd - cursor, basePartitionType, grammar));
-						cursor = gapEnd;
-					}
-				}
-
-				if (rEnd > cursor) {
-					final int to = Math.min(end, rEnd);
-					list.add(new TMPartitionRegion(cursor, to - cursor, r));
-					cursor = to;
+		// Walk only entries that can overlap [start, end)
+		for (final TMPartitionRegion r : partitions.subList(start, Math.max(start, end - 1) + 1)) {
+			if (cursor >= end) {
+				break;
+			}
+			final int rStart = r.getOffset();
+			final int rEnd = rStart + r.getLength();
+
+			if (rStart > cursor) {
+				final int gapEnd = Math.min(end, rStart);
+				if (gapEnd > cursor) {
+					list.add(new TMPartitionRegion(cursor, gapEnd - cursor, basePartitionType, grammar));
+					cursor = gapEnd;
 				}
 			}
 
-			// fill trailing base gap
-			if (cursor < end) {
-				list.add(new TMPartitionRegion(cursor, end - cursor, basePartitionType, grammar));
+			if (rEnd > cursor) {
+				final int to = Math.min(end, rEnd);
+				list.add(new TMPartitionRegion(cursor, to - cursor, r));
+				cursor = to;
 			}
+		}
 
-			/*
-			 * Post-process for read consistency:
-			 * ---------------------------------
-			 * At this point {@code partitions} already reflects the latest incremental recompute ranges. In most cases recomputeRange()
-			 * has already absorbed whitespace-only base lines that occur inside an embedded run (via skipWhitespaceBaseLineInEmbeddedRun).
-			 * However, when the TM model reports ranges that do not fully cover the surrounding embedded region (for example a range that
-			 * starts exactly on the blank line), {@code currentType} may be base when that line is visited and a tiny base partition can
-			 * slip through.
-			 *
-			 * To make callers of computePartitioning() robust against such timing and range-boundary effects, we perform a cheap, local
-			 * clean-up here: whenever we see a whitespace-only base segment that is sandwiched between two segments of the same non-base
-			 * type, we merge all three into a single embedded region. This is exactly the shape produced by fenced code blocks in Markdown
-			 * where a blank line separates two embedded lines (e.g. JS, XML, ...).
-			 *
-			 * This logic intentionally does NOT merge arbitrary base content: it only triggers when:
-			 * - the middle segment is base AND consists solely of whitespace, and
-			 * - the left and right neighbours both have the same non-base partition type.
-			 * Regular HTML between CSS/JS blocks and base text outside embedded regions therefore remain untouched.
-			 */
-			final int listSize = list.size();
-			if (listSize > 2) {
-				final var adjusted = new ArrayList<TMPartitionRegion>(listSize);
-				int i = 0;
-				while (i < listSize) {
-					if (i > 0 && i < listSize - 1) {
-						final TMPartitionRegion prev = list.get(i - 1);
-						final TMPartitionRegion cur = list.get(i);
-						final TMPartitionRegion next = list.get(i + 1);
-						if (basePartitionType.equals(cur.getType())
-								&& prev.getType().equals(next.getType())
-								&& !prev.getType().equals(basePartitionType)) {
-							try {
-								final String slice = doc.get(cur.getOffset(), cur.getLength());
-								if (slice.isBlank()) {
-									// merge prev + cur + next into a single embedded region
-									if (!adjusted.isEmpty()) {
-										adjusted.remove(adjusted.size() - 1);
-									}
-									final int newOffset = prev.getOffset();
-									final int newLen = next.getOffset() + next.getLength() - newOffset;
-									adjusted.add(new TMPartitionRegion(newOffset, newLen, prev.getType(), prev.getGrammarScope()));
-									i += 2; // skip cur and next
-									continue;
+		// fill trailing base gap
+		if (cursor < end) {
+			list.add(new TMPartitionRegion(cursor, end - cursor, basePartitionType, grammar));
+		}
+
+		/*
+		 * Post-process for read consistency:
+		 * ---------------------------------
+		 * At this point {@code partitions} already reflects the latest incremental recompute ranges. In most cases recomputeRange()
+		 * has already absorbed whitespace-only base lines that occur inside an embedded run (via skipWhitespaceBaseLineInEmbeddedRun).
+		 * However, when the TM model reports ranges that do not fully cover the surrounding embedded region (for example a range that
+		 * starts exactly on the blank line), {@code currentType} may be base when that line is visited and a tiny base partition can
+		 * slip through.
+		 *
+		 * To make callers of computePartitioning() robust against such timing and range-boundary effects, we perform a cheap, local
+		 * clean-up here: whenever we see a whitespace-only base segment that is sandwiched between two segments of the same non-base
+		 * type, we merge all three into a single embedded region. This is exactly the shape produced by fenced code blocks in Markdown
+		 * where a blank line separates two embedded lines (e.g. JS, XML, ...).
+		 *
+		 * This logic intentionally does NOT merge arbitrary base content: it only triggers when:
+		 * - the middle segment is base AND consists solely of whitespace, and
+		 * - the left and right neighbours both have the same non-base partition type.
+		 * Regular HTML between CSS/JS blocks and base text outside embedded regions therefore remain untouched.
+		 */
+		final int listSize = list.size();
+		if (listSize > 2) {
+			final var adjusted = new ArrayList<TMPartitionRegion>(listSize);
+			int i = 0;
+			while (i < listSize) {
+				if (i > 0 && i < listSize - 1) {
+					final TMPartitionRegion prev = list.get(i - 1);
+					final TMPartitionRegion cur = list.get(i);
+					final TMPartitionRegion next = list.get(i + 1);
+					if (basePartitionType.equals(cur.getType())
+							&& prev.getType().equals(next.getType())
+							&& !prev.getType().equals(basePartitionType)) {
+						try {
+							final String slice = doc.get(cur.getOffset(), cur.getLength());
+							if (slice.isBlank()) {
+								// merge prev + cur + next into a single embedded region
+								if (!adjusted.isEmpty()) {
+									adjusted.remove(adjusted.size() - 1);
 								}
-							} catch (final BadLocationException ex) {
-								// If we cannot read the slice, fall through and keep the original regions.
+								final int newOffset = prev.getOffset();
+								final int newLen = next.getOffset() + next.getLength() - newOffset;
+								adjusted.add(new TMPartitionRegion(newOffset, newLen, prev.getType(), prev.getGrammarScope()));
+								i += 2; // skip cur and next
+								continue;
 							}
+						} catch (final BadLocationException ex) {
+							// If we cannot read the slice, fall through and keep the original regions.
 						}
 					}
-					adjusted.add(list.get(i));
-					i++;
 				}
-				list.clear();
-				list.addAll(adjusted);
+				adjusted.add(list.get(i));
+				i++;
 			}
-
-			if (list.isEmpty())
-				return new ITMPartitionRegion[] { new TMPartitionRegion(start, Math.max(0, end - start), basePartitionType, grammar) };
-			return list.toArray(ITMPartitionRegion[]::new);
-		} finally {
-			partitionsLock.readLock().unlock();
+			list.clear();
+			list.addAll(adjusted);
 		}
+
+		if (list.isEmpty())
+			return new ITMPartitionRegion[] { new TMPartitionRegion(start, Math.max(0, end - start), basePartitionType, grammar) };
+		return list.toArray(ITMPartitionRegion[]::new);
 	}
 
 	@Override
@@ -378,13 +372,9 @@ public void connect(final IDocument doc) {
 		activated = false;
 
 		// start with no indexed partitions; callers get base type until activation
-		partitionsLock.writeLock().lock();
-		try {
-			partitions.clear();
-			legalTypes.clear();
-			legalTypes.add(basePartitionType);
-		} finally {
-			partitionsLock.writeLock().unlock();
+		synchronized (partitionsWriteLock) {
+			partitions = TMPartitionTree.EMPTY;
+			legalTypes = Set.of(basePartitionType);
 		}
 	}
 
@@ -399,13 +389,10 @@ public void disconnect() {
 		activated = false;
 		grammar = null;
 
-		partitionsLock.writeLock().lock();
-		try {
-			partitions.clear();
-			legalTypes.clear();
+		synchronized (partitionsWriteLock) {
+			partitions = TMPartitionTree.EMPTY;
+			legalTypes = Set.of();
 			basePartitionType = TMPartitions.BASE_PARTITION_TYPE;
-		} finally {
-			partitionsLock.writeLock().unlock();
 		}
 	}
 
@@ -466,51 +453,40 @@ public String getContentType(final int offset) {
 	@Override
 	public String[] getLegalContentTypes() {
 		ensureActivated();
-
-		partitionsLock.readLock().lock();
-		try {
-			return legalTypes.toArray(String[]::new);
-		} finally {
-			partitionsLock.readLock().unlock();
-		}
+		return legalTypes.toArray(String[]::new);
 	}
 
 	@Override
 	public ITMPartitionRegion getPartition(final int offset) {
 		ensureActivated();
 
-		partitionsLock.readLock().lock();
-		try {
-			final var doc = document;
-			if (doc == null)
-				return new TMPartitionRegion(0, 0, basePartitionType, grammar);
-			final int docLen = doc.getLength();
-			if (docLen == 0)
-				return new TMPartitionRegion(0, 0, basePartitionType, grammar);
-
-			if (partitions.isEmpty())
-				return new TMPartitionRegion(0, docLen, basePartitionType, grammar);
-
-			// clamp offset to [0, docLen-1] to handle EOF and negatives
-			final int clamped = Math.clamp(offset, 0, docLen - 1);
-
-			final Map.Entry<Integer, TMPartitionRegion> floor = partitions.floorEntry(clamped);
-			if (floor != null) {
-				final TMPartitionRegion region = floor.getValue();
-				final int regionEnd = region.getOffset() + region.getLength();
-				if (clamped >= region.getOffset() && clamped < regionEnd)
-					return region;
-			}
-
-			// no covering partition found: we are in a base gap.
-			// build a base region spanning from the end of the previous region (or 0) to the next region start (or doc end)
-			final int baseStart = floor != null ? Math.max(0, floor.getValue().getOffset() + floor.getValue().getLength()) : 0;
-			final Map.Entry<Integer, TMPartitionRegion> next = partitions.ceilingEntry(clamped);
-			final int baseEnd = next != null ? next.getKey() : docLen;
-			return new TMPartitionRegion(baseStart, Math.max(0, baseEnd - baseStart), basePartitionType, grammar);
-		} finally {
-			partitionsLock.readLock().unlock();
-		}
+		final var doc = document;
+		if (doc == null)
+			return new TMPartitionRegion(0, 0, basePartitionType, grammar);
+		final int docLen = doc.getLength();
+		if (docLen == 0)
+			return new TMPartitionRegion(0, 0, basePartitionType, grammar);
+
+		final var partitions = this.partitions;
+		if (partitions.isEmpty())
+			return new TMPartitionRegion(0, docLen, basePartitionType, grammar);
+
+		// clamp offset to [0, docLen-1] to handle EOF and negatives
+		final int clamped = Math.clamp(offset, 0, docLen - 1);
+
+		final TMPartitionRegion floor = partitions.floor(clamped);
+		if (floor != null) {
+			final int regionEnd = floor.getOffset() + floor.getLength();
+			if (clamped >= floor.getOffset() && clamped < regionEnd)
+				return floor;
+		}
+
+		// no covering partition found: we are in a base gap.
+		// build a base region spanning from the end of the previous region (or 0) to the next region start (or doc end)
+		final int baseStart = floor != null ? Math.max(0, floor.getOffset() + floor.getLength()) : 0;
+		final TMPartitionRegion next = partitions.ceiling(clamped);
+		final int baseEnd = next != null ? next.getOffset() : docLen;
+		return new TMPartitionRegion(baseStart, Math.max(0, baseEnd - baseStart), basePartitionType, grammar);
 	}
 
 	private void initializeModelAndBase() {
@@ -530,22 +506,14 @@ private void initializeModelAndBase() {
 		final var grammar = this.grammar;
 		if (grammar != null) {
 			model.setGrammar(grammar);
-			partitionsLock.writeLock().lock();
-			try {
+			synchronized (partitionsWriteLock) {
 				basePartitionType = scopeToPartitionType(grammar.getScopeName());
-				legalTypes.clear();
-				legalTypes.add(basePartitionType);
-			} finally {
-				partitionsLock.writeLock().unlock();
+				legalTypes = Set.of(basePartitionType);
 			}
 		} else {
-			partitionsLock.writeLock().lock();
-			try {
+			synchronized (partitionsWriteLock) {
 				basePartitionType = TMPartitions.BASE_PARTITION_TYPE;
-				legalTypes.clear();
-				legalTypes.add(basePartitionType);
-			} finally {
-				partitionsLock.writeLock().unlock();
+				legalTypes = Set.of(basePartitionType);
 			}
 		}
 
@@ -553,7 +521,7 @@ private void initializeModelAndBase() {
 	}
 
 	/**
-	 * Add {@code newSegs} into the current partition map.
+	 * Add {@code newSegs} into the given partition index.
 	 * <p>
 	 * Strategy:
 	 * <ol>
@@ -567,44 +535,44 @@ private void initializeModelAndBase() {
 	 * <li>{@code newSegs} are sorted by offset and do not overlap.
 	 * <li>Offsets use document positions and lie within [startOffset, endOffset].
 	 * </ol>
+	 *
+	 * @return the updated partition index
 	 */
-	private void integratePartitions(final int startOffset, final int endOffset, final List<TMPartitionRegion> newSegs) {
-		// capture right-crossing region BEFORE mutating the map so we can rebuild its right remainder later
+	private static TMPartitionTree integratePartitions(final TMPartitionTree currentPartitions, final int startOffset,
+			final int endOffset, final List<TMPartitionRegion> newSegs) {
+		var partitions = currentPartitions;
+
+		// capture right-crossing region BEFORE mutating the index so we can rebuild its right remainder later
 		TMPartitionRegion rightCrossing = null;
 		int rightCrossingEnd = -1;
-		final Map.Entry<Integer, TMPartitionRegion> rightCand = partitions.floorEntry(endOffset);
+		final TMPartitionRegion rightCand = partitions.floor(endOffset);
 		if (rightCand != null) {
-			final TMPartitionRegion region = rightCand.getValue();
-			final int regionEnd = region.getOffset() + region.getLength();
-			if (region.getOffset() < endOffset && regionEnd > endOffset) {
-				rightCrossing = region;
+			final int regionEnd = rightCand.getOffset() + rightCand.getLength();
+			if (rightCand.getOffset() < endOffset && regionEnd > endOffset) {
+				rightCrossing = rightCand;
 				rightCrossingEnd = regionEnd;
 			}
 		}
 
 		// prepare left remainder if any
-		final Map.Entry<Integer, TMPartitionRegion> left = partitions.floorEntry(startOffset);
+		final TMPartitionRegion left = partitions.floor(startOffset);
 		if (left != null) {
-			final TMPartitionRegion region = left.getValue();
-			final int regionEnd = region.getOffset() + region.getLength();
+			final int regionEnd = left.getOffset() + left.getLength();
 			if (regionEnd > startOffset) {
 				// overlap -> replace with left remainder
-				partitions.remove(left.getKey());
-				if (region.getOffset() < startOffset) {
-					partitions.put(region.getOffset(), new TMPartitionRegion(region.getOffset(), startOffset - region.getOffset(), region));
+				partitions = partitions.remove(left.getOffset());
+				if (left.getOffset() < startOffset) {
+					partitions = partitions.put(new TMPartitionRegion(left.getOffset(), startOffset - left.getOffset(), left));
 				}
 			}
 		}
 
-		// drop all entries starting in [startOffset, endOffset) using a bounded view
-		final var bounded = partitions.subMap(startOffset, true, endOffset, false);
-		if (!bounded.isEmpty()) {
-			bounded.clear();
-		}
+		// drop all entries starting in [startOffset, endOffset)
+		partitions = partitions.removeRange(startOffset, endOffset);
 
 		// recreate right remainder if a region originally crossed endOffset
 		if (rightCrossing != null) {
-			partitions.put(endOffset, new TMPartitionRegion(endOffset, rightCrossingEnd - endOffset, rightCrossing));
+			partitions = partitions.put(new TMPartitionRegion(endOffset, rightCrossingEnd - endOffset, rightCrossing));
 		}
 
 		// insert new segments; merge with neighbours of the same type when they touch (both sides)
@@ -615,14 +583,13 @@ private void integratePartitions(final int startOffset, final int endOffset, fin
 			final String grammarScope = seg.getGrammarScope();
 
 			// merge with previous neighbour if it touches and has same type
-			final Map.Entry<Integer, TMPartitionRegion> prev = partitions.floorEntry(newStart);
+			final TMPartitionRegion prev = partitions.floor(newStart);
 			if (prev != null) {
-				final TMPartitionRegion pr = prev.getValue();
-				final int pEnd = pr.getOffset() + pr.getLength();
-				if (pEnd == newStart && pr.getType().equals(type)) {
-					newStart = pr.getOffset();
-					newLen += pr.getLength();
-					partitions.remove(prev.getKey());
+				final int pEnd = prev.getOffset() + prev.getLength();
+				if (pEnd == newStart && prev.getType().equals(type)) {
+					newStart = prev.getOffset();
+					newLen += prev.getLength();
+					partitions = partitions.remove(prev.getOffset());
 				}
 			}
 
@@ -632,14 +599,15 @@ private void integratePartitions(final int startOffset, final int endOffset, fin
 				final TMPartitionRegion nr = partitions.get(expectedNextStart);
 				if (nr != null && nr.getType().equals(type)) {
 					newLen += nr.getLength();
-					partitions.remove(expectedNextStart);
+					partitions = partitions.remove(expectedNextStart);
 					continue;
 				}
 				break;
 			}
 
-			partitions.put(newStart, new TMPartitionRegion(newStart, newLen, type, grammarScope));
+			partitions = partitions.put(new TMPartitionRegion(newStart, newLen, type, grammarScope));
 		}
+		return partitions;
 	}
 
 	/**
@@ -711,10 +679,11 @@ private void onTokensChanged(final ModelTokensChangedEvent event) {
 	 * <ol>
 	 * <li>Normalize inputs and compute {@code delta = newEndOffset - oldEndOffset}.</li>
 	 * <li>Capture any partition that crosses {@code oldEndOffset} so its right remainder can be restored at {@code newEndOffset}.</li>
-	 * <li>Collect all partitions starting at or after {@code oldEndOffset} to shift them by {@code delta} later.</li>
 	 * <li>Remove all partitions whose start lies within {@code [startOffset, oldEndOffset)}.</li>
 	 * <li>If a partition crosses {@code startOffset}, shrink it to end at {@code startOffset}.</li>
-	 * <li>Shift all collected right-side partitions by {@code delta} so they retain their logical position after the edit.</li>
+	 * <li>Shift all partitions starting at or after {@code oldEndOffset} by {@code delta} so they retain their logical position
+	 * after the edit. Since the partition index stores relative offsets this is O(log n) regardless of the number of shifted
+	 * partitions.</li>
 	 * <li>Recreate the captured right remainder at {@code newEndOffset} (keeping its original type and length).</li>
 	 * <li>Insert a single base partition covering {@code [startOffset, newEndOffset)}.</li>
 	 * </ol>
@@ -735,9 +704,9 @@ private void onTokensChanged(final ModelTokensChangedEvent event) {
 	 * @return true if the partition map was modified; false otherwise
 	 */
 	private boolean pruneAndFillBase(final int startOffset, final int oldEndOffset, final int newEndOffset) {
-		partitionsLock.writeLock().lock();
-		try {
+		synchronized (partitionsWriteLock) {
 			final var grammar = this.grammar;
+			var partitions = this.partitions;
 			boolean changed = false;
 			final int boundedStart = Math.clamp(startOffset, 0, oldEndOffset);
 			final int boundedOldEnd = Math.max(boundedStart, oldEndOffset);
@@ -747,77 +716,64 @@ private boolean pruneAndFillBase(final int startOffset, final int oldEndOffset,
 			if (partitions.isEmpty()) {
 				// Only add a base region when there is an actual span to bridge
 				if (boundedNewEnd > boundedStart) {
-					partitions.put(boundedStart,
+					this.partitions = partitions.put(
 							new TMPartitionRegion(boundedStart, boundedNewEnd - boundedStart, basePartitionType, grammar));
 					return true;
 				}
 				return false;
 			}
 
-			// capture right-crossing region BEFORE mutating the map so we can rebuild its right remainder later
+			// capture right-crossing region BEFORE mutating the index so we can rebuild its right remainder later
 			TMPartitionRegion rightCrossing = null;
 			int rightCrossingEnd = -1;
-			final Map.Entry<Integer, TMPartitionRegion> rightCand = partitions.floorEntry(boundedOldEnd);
+			final TMPartitionRegion rightCand = partitions.floor(boundedOldEnd);
 			if (rightCand != null) {
-				final TMPartitionRegion region = rightCand.getValue();
-				final int regionEnd = region.getOffset() + region.getLength();
-				if (region.getOffset() < boundedOldEnd && regionEnd > boundedOldEnd) {
-					rightCrossing = region;
+				final int regionEnd = rightCand.getOffset() + rightCand.getLength();
+				if (rightCand.getOffset() < boundedOldEnd && regionEnd > boundedOldEnd) {
+					rightCrossing = rightCand;
 					rightCrossingEnd = regionEnd;
 				}
 			}
 
-			// remove entries starting within [boundedStart, boundedOldEnd) using a bounded view
-			final var toDrop = partitions.subMap(boundedStart, true, boundedOldEnd, false);
-			if (!toDrop.isEmpty()) {
-				toDrop.clear();
+			// remove entries starting within [boundedStart, boundedOldEnd)
+			final var pruned = partitions.removeRange(boundedStart, boundedOldEnd);
+			if (pruned != partitions) {
+				partitions = pruned;
 				changed = true;
 			}
 
 			// adjust possible left partition that overlaps startOffset
-			final Map.Entry<Integer, TMPartitionRegion> left = partitions.floorEntry(boundedStart);
+			final TMPartitionRegion left = partitions.floor(boundedStart);
 			if (left != null) {
-				final TMPartitionRegion region = left.getValue();
-				final int regionEnd = region.getOffset() + region.getLength();
+				final int regionEnd = left.getOffset() + left.getLength();
 				if (regionEnd > boundedStart) {
-					partitions.put(region.getOffset(),
-							new TMPartitionRegion(region.getOffset(), boundedStart - region.getOffset(), region));
+					partitions = partitions.put(new TMPartitionRegion(left.getOffset(), boundedStart - left.getOffset(), left));
 					changed = true;
 				}
 			}
 
 			// shift tail entries (>= oldEnd) by delta so they keep their position
 			if (delta != 0) {
-				final var tailView = partitions.tailMap(boundedOldEnd, true);
-				if (!tailView.isEmpty()) {
-					final var shifted = new TreeMap<Integer, TMPartitionRegion>();
-					for (final var e : tailView.entrySet()) {
-						final int oldKey = e.getKey();
-						final TMPartitionRegion region = e.getValue();
-						final int newStart = oldKey + delta;
-						shifted.put(newStart, new TMPartitionRegion(newStart, region.getLength(), region));
-					}
-					// remove all tail entries in one shot and insert shifted ones
-					tailView.clear();
-					partitions.putAll(shifted);
+				final var shifted = partitions.shiftFrom(boundedOldEnd, delta);
+				if (shifted != partitions) {
+					partitions = shifted;
 					changed = true;
 				}
 			}
 
 			// recreate right remainder if a region originally crossed oldEnd
 			if (rightCrossing != null) {
-				partitions.put(boundedNewEnd, new TMPartitionRegion(boundedNewEnd, rightCrossingEnd - boundedOldEnd, rightCrossing));
+				partitions = partitions.put(new TMPartitionRegion(boundedNewEnd, rightCrossingEnd - boundedOldEnd, rightCrossing));
 				changed = true;
 			}
 
 			// add a base region spanning [boundedStart, boundedNewEnd)
 			if (boundedNewEnd > boundedStart) {
-				partitions.put(boundedStart, new TMPartitionRegion(boundedStart, boundedNewEnd - boundedStart, basePartitionType, grammar));
+				partitions = partitions.put(new TMPartitionRegion(boundedStart, boundedNewEnd - boundedStart, basePartitionType, grammar));
 				changed = true;
 			}
+			this.partitions = partitions;
 			return changed;
-		} finally {
-			partitionsLock.writeLock().unlock();
 		}
 	}
 
@@ -985,12 +941,12 @@ private void recomputeRange(final int startOffset, final int endOffset) throws B
 		for (final TMPartitionRegion r : merged) {
 			newTypes.add(r.getType());
 		}
-		partitionsLock.writeLock().lock();
-		try {
-			legalTypes.addAll(newTypes);
-			integratePartitions(startOffset, endOffset, merged);
-		} finally {
-			partitionsLock.writeLock().unlock();
+		synchronized (partitionsWriteLock) {
+			if (!legalTypes.containsAll(newTypes)) {
+				newTypes.addAll(legalTypes);
+				legalTypes = Set.copyOf(newTypes);
+			}
+			partitions = integratePartitions(partitions, startOffset, endOffset, merged);
 		}
 	}
 
@@ -12,7 +12,6 @@
  */
 package org.eclipse.tm4e.ui.internal.themes;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -29,7 +28,7 @@
 
 public abstract class AbstractTokenProvider implements ITokenProvider {
 
-	private final Map<IStyle, IToken> getJFaceTextTokenReturnValueCache = new HashMap<>();
+	private final Map<IStyle, IToken> getJFaceTextTokenReturnValueCache = new ConcurrentHashMap<>();
 	private final Map<String /* TextMate Token Type */, IToken> getTokenReturnValueCache = new ConcurrentHashMap<>();
 
 	@Override
@@ -40,7 +40,7 @@ public class TMThemeTokenProvider extends AbstractTokenProvider {
 
 	private final Theme theme;
 	private final List<String> colors;
-	private final ConcurrentMap<String, IToken> tokenCacheByScopeStack = new ConcurrentHashMap<>();
+	private final ConcurrentMap<List<String>, IToken> tokenCacheByScopeStack = new ConcurrentHashMap<>();
 
 	public TMThemeTokenProvider(final IThemeSource.ContentType contentType, final InputStream in) throws Exception {
 		final var rawTheme = RawThemeReader
@@ -54,23 +54,18 @@ public IToken getToken(final TMToken token) {
 		if (token.scopes.isEmpty())
 			return DEFAULT_TOKEN;
 
-		final String[] scopeNames = new String[token.scopes.size()];
-		final var keyBuilder = new StringBuilder(token.scopes.size() * 24);
-		for (int i = 0, size = token.scopes.size(); i < size; i++) {
-			final var scope = ScopeNames.withoutContributor(token.scopes.get(i));
-			scopeNames[i] = scope;
-			if (i > 0) {
-				keyBuilder.append('\n');
-			}
-			keyBuilder.append(scope);
-		}
-		final var cacheKey = keyBuilder.toString();
-		final var cachedToken = tokenCacheByScopeStack.get(cacheKey);
+		// the scope lists of tokens are immutable and shared between tokens with the same scope stack, thus
+		// they are used as cache key directly instead of building a key string on each lookup
+		final var cachedToken = tokenCacheByScopeStack.get(token.scopes);
 		if (cachedToken != null)
 			return cachedToken;
 
+		final String[] scopeNames = new String[token.scopes.size()];
+		for (int i = 0; i < scopeNames.length; i++) {
+			scopeNames[i] = ScopeNames.withoutContributor(token.scopes.get(i));
+		}
 		final IToken computedToken = getTokenUncached(scopeNames);
-		final var existingToken = tokenCacheByScopeStack.putIfAbsent(cacheKey, computedToken);
+		final var existingToken = tokenCacheByScopeStack.putIfAbsent(List.copyOf(token.scopes), computedToken);
 		return existingToken == null ? computedToken : existingToken;
 	}
 
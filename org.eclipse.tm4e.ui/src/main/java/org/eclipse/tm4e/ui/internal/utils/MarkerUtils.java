@@ -16,20 +16,28 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Queue;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.tm4e.core.internal.utils.GapList;
 import org.eclipse.tm4e.core.model.ITMModel;
 import org.eclipse.tm4e.core.model.ModelTokensChangedEvent;
+import org.eclipse.tm4e.core.model.Range;
 import org.eclipse.tm4e.core.model.TMToken;
 import org.eclipse.tm4e.ui.TMUIPlugin;
+import org.eclipse.tm4e.ui.internal.model.TMModelManager;
 import org.eclipse.tm4e.ui.internal.preferences.PreferenceHelper;
 import org.eclipse.tm4e.ui.model.ITMDocumentModel;
 
@@ -56,17 +64,326 @@ private static final class MarkerConfigs {
 
 	public static synchronized void reloadMarkerConfigs() {
 		MARKER_CONFIGS = new MarkerConfigs();
+
+		// resync the markers of all documents on their next update, which also removes markers of no longer configured tags
+		synchronized (DOCUMENT_MARKERS) {
+			DOCUMENT_MARKERS.forEach((doc, markers) -> doc.removeDocumentListener(markers));
+			DOCUMENT_MARKERS.clear();
+		}
 	}
 
 	/**
-	 * Updates all TM4E text markers of the corresponding document starting from
-	 * <code>event.ranges.get(0).fromLineNumber</code> until the end of the document.
+	 * A task tag found in a comment token.
+	 *
+	 * @param level the severity of problem markers or the priority of task markers
+	 * @param column the column of the tag within its line or -1 if unknown
+	 */
+	private record TagHit(String markerType, String message, int level, int column) {
+
+		/**
+		 * @return true if a marker created for the other hit can be kept for this hit, i.e. if the hits only differ in
+		 *         their position
+		 */
+		boolean isSameMarker(final TagHit other) {
+			return level == other.level && markerType.equals(other.markerType) && message.equals(other.message);
+		}
+	}
+
+	private static final class TagMarker {
+		final TagHit hit;
+		final IMarker marker;
+
+		/** the line number attribute of {@link #marker} */
+		int lineNumber;
+
+		TagMarker(final TagHit hit, final IMarker marker, final int lineNumber) {
+			this.hit = hit;
+			this.marker = marker;
+			this.lineNumber = lineNumber;
+		}
+	}
+
+	/**
+	 * The TM4E text markers of a document indexed by line.
+	 * <p>
+	 * On token changes only the changed lines are rescanned for task tags and diffed against the markers indexed for
+	 * these lines. Lines inserted or removed by document edits are tracked so that markers of other lines are only
+	 * touched if their line number changed.
+	 */
+	private static final class DocumentMarkers implements IDocumentListener {
+
+		/**
+		 * Line changes of the document not yet applied to {@link #markersByLine}: start line index, number of removed
+		 * lines, number of added lines. An entry with a negative start line index requests a full resync.
+		 */
+		private final Queue<int[]> pendingLineChanges = new ConcurrentLinkedQueue<>();
+
+		private int startLineOfChange = -1;
+		private int endLineOfRemovedText = -1;
+
+		/** guarded by itself, serializes marker updates */
+		private final List<@Nullable List<TagMarker>> markersByLine = new GapList<>();
+		private boolean isSynced;
+
+		@Override
+		public void documentAboutToBeChanged(final DocumentEvent event) {
+			final IDocument doc = event.getDocument();
+			try {
+				startLineOfChange = doc.getLineOfOffset(event.getOffset());
+				endLineOfRemovedText = doc.getLineOfOffset(event.getOffset() + event.getLength());
+			} catch (final BadLocationException ex) {
+				startLineOfChange = -1;
+			}
+		}
+
+		@Override
+		public void documentChanged(final DocumentEvent event) {
+			if (startLineOfChange == -1) {
+				pendingLineChanges.add(new int[] { -1, 0, 0 });
+				return;
+			}
+			try {
+				final int endLineOfAddedText = event.getDocument().getLineOfOffset(event.getOffset() + event.getText().length());
+				final int removedLines = endLineOfRemovedText - startLineOfChange + 1;
+				final int addedLines = endLineOfAddedText - startLineOfChange + 1;
+				if (removedLines != addedLines) {
+					pendingLineChanges.add(new int[] { startLineOfChange, removedLines, addedLines });
+				}
+			} catch (final BadLocationException ex) {
+				pendingLineChanges.add(new int[] { -1, 0, 0 });
+			}
+		}
+
+		/**
+		 * Must be called within a workspace operation so that all marker changes are reported in a single resource
+		 * delta.
+		 *
+		 * @param ranges the changed lines, 1-based
+		 */
+		void update(final IResource res, final ITMDocumentModel docModel, final List<Range> ranges) throws CoreException {
+			final IDocument doc = docModel.getDocument();
+			final var markerConfigs = MARKER_CONFIGS;
+			synchronized (markersByLine) {
+				final var removedMarkers = new ArrayList<TagMarker>();
+				final int firstShiftedLineIndex = applyPendingLineChanges(removedMarkers);
+				if (!isSynced) {
+					sync(res, doc);
+					for (int lineIndex = 0; lineIndex < markersByLine.size(); lineIndex++) {
+						updateLine(res, docModel, lineIndex, markerConfigs);
+					}
+					isSynced = true;
+					return;
+				}
+
+				for (final TagMarker removed : removedMarkers) {
+					removed.marker.delete();
+				}
+
+				final int numberOfLines = markersByLine.size();
+				for (final Range range : ranges) {
+					final int toLineIndex = Math.min(range.toLineNumber, numberOfLines);
+					for (int lineIndex = Math.max(0, range.fromLineNumber - 1); lineIndex < toLineIndex; lineIndex++) {
+						updateLine(res, docModel, lineIndex, markerConfigs);
+					}
+				}
+
+				if (firstShiftedLineIndex != -1) {
+					updateShiftedLineNumbers(doc, firstShiftedLineIndex);
+				}
+			}
+		}
+
+		/**
+		 * @param removedMarkers receives the markers of removed lines
+		 *
+		 * @return the index of the first line whose line number changed or -1
+		 */
+		private int applyPendingLineChanges(final List<TagMarker> removedMarkers) {
+			int firstShiftedLineIndex = -1;
+			int[] change;
+			while ((change = pendingLineChanges.poll()) != null) {
+				final int startLineIndex = change[0];
+				if (startLineIndex < 0 || startLineIndex + change[1] > markersByLine.size()) {
+					isSynced = false;
+					continue;
+				}
+				// the first lines of the changed range are rescanned once retokenized, only the surplus lines are removed/added
+				final int keptLines = Math.min(change[1], change[2]);
+				final var surplusLines = markersByLine.subList(startLineIndex + keptLines, startLineIndex + change[1]);
+				for (final var markersOfLine : surplusLines) {
+					if (markersOfLine != null) {
+						removedMarkers.addAll(markersOfLine);
+					}
+				}
+				surplusLines.clear();
+				surplusLines.addAll(Collections.nCopies(change[2] - keptLines, null));
+				final int shiftStart = startLineIndex + keptLines;
+				firstShiftedLineIndex = firstShiftedLineIndex == -1 ? shiftStart : Math.min(firstShiftedLineIndex, shiftStart);
+			}
+			return firstShiftedLineIndex;
+		}
+
+		/**
+		 * Indexes the existing markers of the resource by their line number.
+		 */
+		private void sync(final IResource res, final IDocument doc) throws CoreException {
+			pendingLineChanges.clear();
+			final int numberOfLines = doc.getNumberOfLines();
+			markersByLine.clear();
+			markersByLine.addAll(Collections.nCopies(numberOfLines, null));
+
+			for (final IMarker marker : res.findMarkers(TEXTMARKER_TYPE, true, 0)) {
+				final var lineNumberObj = getLineNumber(marker);
+				if (lineNumberObj == null || lineNumberObj < 1 || lineNumberObj > numberOfLines) {
+					marker.delete(); // this marker is missing line information or is for a non-existing line
+					continue;
+				}
+				final int lineNumber = lineNumberObj;
+				final String markerType = marker.getType();
+				final var attrs = marker.getAttributes(new String[] { IMarker.MESSAGE,
+						PROBLEMMARKER_TYPE.equals(markerType) ? IMarker.SEVERITY : IMarker.PRIORITY, IMarker.CHAR_START });
+				final var hit = new TagHit(markerType, attrs[0] instanceof final String message ? message : "",
+						attrs[1] instanceof final Integer level ? level : -1,
+						attrs[2] instanceof final Integer charStart ? getColumn(doc, lineNumber - 1, charStart) : -1);
+				addMarker(lineNumber - 1, new TagMarker(hit, marker, lineNumber));
+			}
+		}
+
+		/**
+		 * @return the column of the given offset within the given line or -1 if the offset is not within the line
+		 */
+		private static int getColumn(final IDocument doc, final int lineIndex, final int offset) {
+			try {
+				final int column = offset - doc.getLineOffset(lineIndex);
+				return column >= 0 && column < doc.getLineLength(lineIndex) ? column : -1;
+			} catch (final BadLocationException ex) {
+				return -1;
+			}
+		}
+
+		private void addMarker(final int lineIndex, final TagMarker tagMarker) {
+			var markersOfLine = markersByLine.get(lineIndex);
+			if (markersOfLine == null) {
+				markersOfLine = new ArrayList<>(1);
+				markersByLine.set(lineIndex, markersOfLine);
+			}
+			markersOfLine.add(tagMarker);
+		}
+
+		/**
+		 * Rescans the given line for task tags and creates, keeps or deletes the markers of the line accordingly.
+		 */
+		private void updateLine(final IResource res, final ITMDocumentModel docModel, final int lineIndex,
+				final MarkerConfigs markerConfigs) throws CoreException {
+			final var tokens = docModel.getLineTokens(lineIndex);
+			if (tokens == null)
+				return; // line is not tokenized yet, keep its markers until it is
+
+			final IDocument doc = docModel.getDocument();
+			final List<TagHit> hits = findTagHits(doc, lineIndex, tokens, markerConfigs);
+			final var outdatedMarkers = markersByLine.get(lineIndex);
+			if (hits.isEmpty() && outdatedMarkers == null)
+				return;
+
+			final int lineNumber = lineIndex + 1;
+			final var markersOfLine = new ArrayList<TagMarker>(hits.size());
+			for (final TagHit hit : hits) {
+				final TagMarker existing = outdatedMarkers == null ? null : removeMatchingMarker(outdatedMarkers, hit);
+				if (existing != null) {
+					if (existing.lineNumber != lineNumber) {
+						setPosition(doc, existing.marker, lineIndex, hit);
+					}
+					markersOfLine.add(new TagMarker(hit, existing.marker, lineNumber));
+					continue;
+				}
+
+				final var attrs = new HashMap<String, Object>();
+				attrs.put(IMarker.LINE_NUMBER, lineNumber);
+				attrs.put(IMarker.MESSAGE, hit.message);
+				attrs.put(PROBLEMMARKER_TYPE.equals(hit.markerType) ? IMarker.SEVERITY : IMarker.PRIORITY, hit.level);
+				attrs.put(IMarker.USER_EDITABLE, Boolean.FALSE);
+				attrs.put(IMarker.SOURCE_ID, "TM4E");
+				try {
+					final int markerTextStartOffset = doc.getLineOffset(lineIndex) + hit.column;
+					attrs.put(IMarker.CHAR_START, markerTextStartOffset);
+					attrs.put(IMarker.CHAR_END, markerTextStartOffset + hit.message.length());
+				} catch (final BadLocationException ex) {
+					TMUIPlugin.logTrace(ex);
+				}
+				markersOfLine.add(new TagMarker(hit, res.createMarker(hit.markerType, attrs), lineNumber));
+			}
+
+			// remove any obsolete markers
+			if (outdatedMarkers != null) {
+				for (final TagMarker outdated : outdatedMarkers) {
+					outdated.marker.delete();
+				}
+			}
+			markersByLine.set(lineIndex, markersOfLine.isEmpty() ? null : markersOfLine);
+		}
+
+		/**
+		 * Updates the line number and position of the markers of lines moved by inserted or removed lines.
+		 */
+		private void updateShiftedLineNumbers(final IDocument doc, final int firstShiftedLineIndex) throws CoreException {
+			final int numberOfLines = markersByLine.size();
+			for (int lineIndex = firstShiftedLineIndex; lineIndex < numberOfLines; lineIndex++) {
+				final var markersOfLine = markersByLine.get(lineIndex);
+				if (markersOfLine == null)
+					continue;
+				final int lineNumber = lineIndex + 1;
+				for (final TagMarker tagMarker : markersOfLine) {
+					if (tagMarker.lineNumber != lineNumber && tagMarker.marker.exists()) {
+						tagMarker.lineNumber = lineNumber;
+						setPosition(doc, tagMarker.marker, lineIndex, tagMarker.hit);
+					}
+				}
+			}
+		}
+
+		private static void setPosition(final IDocument doc, final IMarker marker, final int lineIndex, final TagHit hit)
+				throws CoreException {
+			if (hit.column < 0) {
+				// the position within the line is unknown, e.g. of a marker adopted from a previous session
+				marker.setAttribute(IMarker.LINE_NUMBER, lineIndex + 1);
+				return;
+			}
+			try {
+				final int markerTextStartOffset = doc.getLineOffset(lineIndex) + hit.column;
+				marker.setAttributes(
+						new String[] { IMarker.LINE_NUMBER, IMarker.CHAR_START, IMarker.CHAR_END },
+						new Object[] { lineIndex + 1, markerTextStartOffset, markerTextStartOffset + hit.message.length() });
+			} catch (final BadLocationException ex) {
+				marker.setAttribute(IMarker.LINE_NUMBER, lineIndex + 1);
+			}
+		}
+	}
+
+	/** the marker index per document, the index does not reference the document to not prevent its garbage collection */
+	private static final Map<IDocument, DocumentMarkers> DOCUMENT_MARKERS = new WeakHashMap<>();
+
+	/**
+	 * Stops tracking the line changes of the given document, e.g. because its TextMate model was disconnected. The
+	 * markers of the document are kept and adopted again once the document is reconnected.
+	 */
+	public static void disconnect(final IDocument doc) {
+		synchronized (DOCUMENT_MARKERS) {
+			final var markers = DOCUMENT_MARKERS.remove(doc);
+			if (markers != null) {
+				doc.removeDocumentListener(markers);
+			}
+		}
+	}
+
+	/**
+	 * Updates the TM4E text markers of the lines of the corresponding document that are covered by
+	 * <code>event.ranges</code>.
 	 */
 	public static void updateTextMarkers(final ModelTokensChangedEvent event) {
 		final ITMModel model = event.model;
-		if (model instanceof final ITMDocumentModel docModel) {
+		if (model instanceof final ITMDocumentModel docModel && !event.ranges.isEmpty()) {
 			try {
-				updateTextMarkers(docModel, event.ranges.get(0).fromLineNumber);
+				updateTextMarkers(docModel, event.ranges);
 			} catch (final Exception ex) {
 				TMUIPlugin.logError(ex);
 			}
@@ -74,117 +391,85 @@ public static void updateTextMarkers(final ModelTokensChangedEvent event) {
 	}
 
 	/**
-	 * Updates all TM4E text markers of the {@link ITMDocumentModel}'s document starting from the given line number until
-	 * the end of the document.
+	 * Updates the TM4E text markers of the given lines of the {@link ITMDocumentModel}'s document. All marker changes are
+	 * applied in a single workspace operation.
 	 *
-	 * @param startLineNumber 1-based
+	 * @param ranges the changed lines, 1-based
 	 */
-	private static void updateTextMarkers(final ITMDocumentModel docModel, final int startLineNumber) throws CoreException {
-
+	private static void updateTextMarkers(final ITMDocumentModel docModel, final List<Range> ranges) throws CoreException {
 		final IDocument doc = docModel.getDocument();
 
 		final IResource res = ResourceUtils.findResource(doc);
 		if (res == null)
 			return;
 
-		final int numberOfLines = doc.getNumberOfLines();
+		final DocumentMarkers documentMarkers;
+		synchronized (DOCUMENT_MARKERS) {
+			var markers = DOCUMENT_MARKERS.get(doc);
+			if (markers == null) {
+				if (!TMModelManager.INSTANCE.isConnected(doc))
+					return; // late event of a disconnected model, do not start tracking the document again
 
-		// collect affected markers
-		final var markersByLineNumber = new HashMap<Integer, List<IMarker>>();
-		for (final IMarker marker : res.findMarkers(TEXTMARKER_TYPE, true, 0)) {
-			final var lineNumberObj = getLineNumber(marker);
-			if (lineNumberObj == null) {
-				marker.delete(); // this marker is missing line information, should never happen
-				continue;
-			}
-
-			final int lineNumber = lineNumberObj;
-			if (lineNumber < startLineNumber) {
-				continue; // this marker needs no update
-			}
-			if (lineNumber > numberOfLines) {
-				marker.delete(); // this marker is for a non-existing line
-				continue;
+				markers = new DocumentMarkers();
+				doc.addDocumentListener(markers);
+				DOCUMENT_MARKERS.put(doc, markers);
 			}
-			final var markersOfLine = markersByLineNumber.computeIfAbsent(lineNumberObj, k -> new ArrayList<>(1));
-			markersOfLine.add(marker);
+			documentMarkers = markers;
 		}
 
-		final var markerConfigs = MARKER_CONFIGS;
+		final IWorkspace workspace = res.getWorkspace();
+		workspace.run(monitor -> documentMarkers.update(res, docModel, ranges),
+				workspace.getRuleFactory().markerRule(res), IWorkspace.AVOID_UPDATE, null);
+	}
+
+	/**
+	 * @return the task tags found in the comment tokens of the given line
+	 */
+	private static List<TagHit> findTagHits(final IDocument doc, final int lineIndex, final List<TMToken> tokens,
+			final MarkerConfigs markerConfigs) {
 		final var markerConfigByTag = markerConfigs.markerConfigByTag;
 		final var tagSelectorPattern = markerConfigs.tagSelectorPattern;
+		final int tokensCount = tokens.size();
+		List<TagHit> hits = Collections.emptyList();
 
-		// iterate over all lines
-		for (int lineNumber = startLineNumber; lineNumber <= numberOfLines; lineNumber++) {
-			final var lineNumberObj = Integer.valueOf(lineNumber);
-			final int lineIndex = lineNumber - 1;
-			final var tokens = docModel.getLineTokens(lineIndex);
-			if (tokens == null)
-				continue;
-			final int tokensCount = tokens.size();
-			final var outdatedMarkers = markersByLineNumber.getOrDefault(lineNumberObj, Collections.emptyList());
+		// iterate over all tokens of the line
+		int tokenIndex = -1;
+		for (final TMToken token : tokens) {
+			tokenIndex++;
 
-			// iterate over all tokens of the current line
-			int tokenIndex = -1;
-			for (final TMToken token : tokens) {
-				tokenIndex++;
+			if (!token.type.contains("comment") || token.type.contains("definition"))
+				continue;
 
-				if (!token.type.contains("comment") || token.type.contains("definition"))
+			final @Nullable TMToken nextToken = tokenIndex + 1 < tokensCount ? tokens.get(tokenIndex + 1) : null;
+			try {
+				final int lineOffset = doc.getLineOffset(lineIndex);
+				final var commentText = doc.get(
+						lineOffset + token.startIndex,
+						(nextToken == null ? doc.getLineLength(lineIndex) : nextToken.startIndex) - token.startIndex);
+				if (commentText.length() < 3)
 					continue;
 
-				final @Nullable TMToken nextToken = tokenIndex + 1 < tokensCount ? tokens.get(tokenIndex + 1) : null;
-				try {
-					final int lineOffset = doc.getLineOffset(lineIndex);
-					final var commentText = doc.get(
-							lineOffset + token.startIndex,
-							(nextToken == null ? doc.getLineLength(lineIndex) : nextToken.startIndex) - token.startIndex);
-					if (commentText.length() < 3)
-						continue;
-
-					final var matcher = tagSelectorPattern.matcher(commentText);
-					if (!matcher.find())
-						continue;
-
-					final var markerConfig = castNonNull(markerConfigByTag.get(matcher.group(1)));
-					final var markerText = commentText.substring(matcher.start()).trim();
-
-					final var attrs = new HashMap<String, Object>();
-					attrs.put(IMarker.LINE_NUMBER, lineNumberObj);
-					attrs.put(IMarker.MESSAGE, markerText);
-					switch (markerConfig.type) {
-						case PROBLEM:
-							attrs.put(IMarker.SEVERITY, markerConfig.asProblemMarkerConfig().severity.value);
-							break;
-						case TASK:
-							attrs.put(IMarker.PRIORITY, markerConfig.asTaskMarkerConfig().priority.value);
-							break;
-					}
-					attrs.put(IMarker.USER_EDITABLE, Boolean.FALSE);
-					attrs.put(IMarker.SOURCE_ID, "TM4E");
-
-					// only create a new marker if no matching marker already exists
-					final String markerTypeId = switch (markerConfig.type) {
-						case PROBLEM -> PROBLEMMARKER_TYPE;
-						case TASK -> TASKMARKER_TYPE;
-					};
-					if (!removeMatchingMarker(outdatedMarkers, markerTypeId, attrs)) {
-						final int markerTextStartOffset = lineOffset + token.startIndex + matcher.start();
-						attrs.put(IMarker.CHAR_START, markerTextStartOffset);
-						attrs.put(IMarker.CHAR_END, markerTextStartOffset + markerText.length());
-						res.createMarker(markerTypeId, attrs);
-					}
-				} catch (final BadLocationException ex) {
-					TMUIPlugin.logTrace(ex);
-				}
-			}
+				final var matcher = tagSelectorPattern.matcher(commentText);
+				if (!matcher.find())
+					continue;
 
-			// remove any obsolete markers
-			if (!outdatedMarkers.isEmpty()) {
-				for (final var marker : outdatedMarkers) {
-					marker.delete();
+				final var markerConfig = castNonNull(markerConfigByTag.get(matcher.group(1)));
+				final var markerText = commentText.substring(matcher.start()).trim();
+				final var hit = switch (markerConfig.type) {
+					case PROBLEM -> new TagHit(PROBLEMMARKER_TYPE, markerText,
+							markerConfig.asProblemMarkerConfig().severity.value, token.startIndex + matcher.start());
+					case TASK -> new TagHit(TASKMARKER_TYPE, markerText,
+							markerConfig.asTaskMarkerConfig().priority.value, token.startIndex + matcher.start());
+				};
+				if (hits.isEmpty()) {
+					hits = new ArrayList<>(1);
 				}
+				hits.add(hit);
+			} catch (final BadLocationException ex) {
+				TMUIPlugin.logTrace(ex);
 			}
 		}
+		return hits;
 	}
 
 	private static @Nullable Integer getLineNumber(final IMarker marker) {
@@ -200,38 +485,19 @@ private static void updateTextMarkers(final ITMDocumentModel docModel, final int
 	}
 
 	/**
-	 * Removes a matching marker from the given list.
+	 * Removes a marker from the given list that can be kept for the given tag hit.
 	 *
-	 * @return true if a matching marker was found and removed.
+	 * @return the removed marker or null if none matched
 	 */
-	private static boolean removeMatchingMarker(final List<IMarker> markers, final String type, final Map<String, ?> attributes) {
-		if (markers.isEmpty())
-			return false;
-
+	private static @Nullable TagMarker removeMatchingMarker(final List<TagMarker> markers, final TagHit hit) {
 		for (final var it = markers.iterator(); it.hasNext();) {
-			final IMarker marker = it.next();
-			try {
-				if (!marker.getType().equals(type))
-					continue;
-
-				boolean hasMatchingAttrs = true;
-				for (final var attr : attributes.entrySet()) {
-					if (!Objects.equals(marker.getAttribute(attr.getKey()), attr.getValue())) {
-						hasMatchingAttrs = false;
-						break;
-					}
-				}
-
-				if (hasMatchingAttrs) {
-					it.remove();
-					return true;
-				}
-			} catch (final CoreException ex) {
-				if (marker.exists())
-					TMUIPlugin.logError(ex);
+			final TagMarker tagMarker = it.next();
+			if (tagMarker.hit.isSameMarker(hit) && tagMarker.marker.exists()) {
+				it.remove();
+				return tagMarker;
 			}
 		}
-		return false;
+		return null;
 	}
 
 	/**
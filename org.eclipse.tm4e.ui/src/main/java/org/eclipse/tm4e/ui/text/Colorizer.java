@@ -13,13 +13,18 @@
  */
 package org.eclipse.tm4e.ui.text;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.CursorLinePainter;
+import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
 import org.eclipse.jface.text.IPainter;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextViewer;
@@ -34,6 +39,7 @@
 import org.eclipse.swt.custom.StyleRange;
 import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.widgets.Control;
 import org.eclipse.tm4e.core.model.ModelTokensChangedEvent;
 import org.eclipse.tm4e.core.model.Range;
 import org.eclipse.tm4e.core.model.TMToken;
@@ -46,6 +52,23 @@
 class Colorizer {
 	private static final TextAttribute DEFAULT_TEXT_ATTRIBUTE = new TextAttribute(null);
 
+	/**
+	 * number of lines above and below the visible lines that are colorized eagerly, so that scrolling by a few pages does
+	 * not reveal lines that still need to be colorized
+	 */
+	private static final int EAGER_LINES_MARGIN = 100;
+
+	/**
+	 * The style ranges of lines computed off the UI thread.
+	 *
+	 * @param presentation null if the style ranges could not be computed, e.g. because the document was modified
+	 *            concurrently
+	 * @param modificationStamp the modification stamp of the document the style ranges were computed for
+	 */
+	private record PendingPresentation(ITMDocumentModel docModel, int fromLineIndex, int toLineIndex,
+			@Nullable TextPresentation presentation, long modificationStamp) {
+	}
+
 	private final ITokenProvider theme;
 	private final ITextViewer viewer;
 
@@ -54,6 +77,17 @@ class Colorizer {
 	private boolean isViewerStyleColorsInitialized;
 	private boolean isViewerHighlightColorInitialized;
 
+	/** the document line indexes visible in the viewer or -1 if not known yet, in which case all lines are colorized eagerly */
+	private volatile int visibleFromLineIndex = -1;
+	private volatile int visibleToLineIndex = -1;
+
+	/** guarded by itself */
+	private final List<PendingPresentation> pendingPresentations = new ArrayList<>();
+	private final AtomicBoolean isFlushScheduled = new AtomicBoolean();
+
+	/** lines not colorized yet because they were not near the visible lines, guarded by itself */
+	private final BitSet deferredLines = new BitSet();
+
 	Colorizer(final ITextViewer viewer, final ITokenProvider theme, final Set<ITMPresentationReconcilerListener> listeners) {
 		this.viewer = viewer;
 		this.theme = theme;
@@ -61,116 +95,292 @@ class Colorizer {
 		applyThemeToViewer();
 	}
 
-	void colorize(final ModelTokensChangedEvent event) {
+	/**
+	 * Computes the style ranges of the changed lines near the visible lines on the calling thread and schedules them to
+	 * be applied on the UI thread. Presentations computed until the UI thread gets to apply them are applied together.
+	 * The colorization of other lines is deferred until they are scrolled into view.
+	 * <p>
+	 * May be called from any thread.
+	 */
+	void onModelTokensChanged(final ModelTokensChangedEvent event) {
+		if (!(event.model instanceof final ITMDocumentModel docModel))
+			return;
+
+		final IDocument doc = docModel.getDocument();
+		final long modificationStamp = getModificationStamp(doc);
+		final int lastLineIndex = doc.getNumberOfLines() - 1;
+		final int eagerFromLineIndex = getEagerFromLineIndex();
+		final int eagerToLineIndex = getEagerToLineIndex(lastLineIndex);
+
+		final var presentations = new ArrayList<PendingPresentation>(event.ranges.size());
+		for (final Range range : event.ranges) {
+			final int fromLineIndex = range.fromLineNumber - 1;
+			final int toLineIndex = Math.min(range.toLineNumber - 1, lastLineIndex);
+			if (fromLineIndex > toLineIndex)
+				continue;
+
+			deferLines(fromLineIndex, Math.min(toLineIndex, eagerFromLineIndex - 1));
+			deferLines(Math.max(fromLineIndex, eagerToLineIndex + 1), toLineIndex);
+
+			final int eagerFrom = Math.max(fromLineIndex, eagerFromLineIndex);
+			final int eagerTo = Math.min(toLineIndex, eagerToLineIndex);
+			if (eagerFrom <= eagerTo) {
+				presentations.add(new PendingPresentation(docModel, eagerFrom, eagerTo,
+						computePresentation(docModel, eagerFrom, eagerTo), modificationStamp));
+			}
+		}
+
+		if (presentations.isEmpty())
+			return;
+		synchronized (pendingPresentations) {
+			pendingPresentations.addAll(presentations);
+		}
+		if (isFlushScheduled.compareAndSet(false, true)) {
+			final Control control = viewer.getTextWidget();
+			if (control == null || control.isDisposed()) {
+				isFlushScheduled.set(false);
+				return;
+			}
+			control.getDisplay().asyncExec(this::applyPendingPresentations);
+		}
+	}
+
+	private @Nullable TextPresentation computePresentation(final ITMDocumentModel docModel, final int fromLineIndex,
+			final int toLineIndex) {
+		try {
+			final var region = toRegion(docModel.getDocument(), fromLineIndex, toLineIndex);
+			final var presentation = new TextPresentation(region, 1_000);
+			computeStyleRanges(presentation, region, docModel);
+			return presentation;
+		} catch (final BadLocationException | RuntimeException ex) {
+			// the document was modified concurrently, the presentation is computed again on the UI thread
+			return null;
+		}
+	}
+
+	/**
+	 * Applies the presentations computed off the UI thread. Presentations that are outdated because the document was
+	 * modified in the meantime are recomputed.
+	 */
+	private void applyPendingPresentations() {
+		isFlushScheduled.set(false);
+		final List<PendingPresentation> presentations;
+		synchronized (pendingPresentations) {
+			presentations = new ArrayList<>(pendingPresentations);
+			pendingPresentations.clear();
+		}
+
 		final IDocument doc = viewer.getDocument();
-		if (doc == null)
+		final StyledText widget = viewer.getTextWidget();
+		if (doc == null || widget == null || widget.isDisposed())
 			return;
 
-		if (event.model instanceof final ITMDocumentModel docModel) {
-			if (docModel.getDocument() != doc)
+		applyThemeToViewerIfNeeded();
+		final long modificationStamp = getModificationStamp(doc);
+		for (final PendingPresentation pending : presentations) {
+			if (pending.docModel.getDocument() != doc)
+				continue;
+
+			final var presentation = pending.presentation;
+			if (presentation != null && pending.modificationStamp == modificationStamp
+					&& modificationStamp != IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP) {
+				applyPresentation(presentation);
+				continue;
+			}
+
+			final int lastLineIndex = doc.getNumberOfLines() - 1;
+			if (pending.fromLineIndex > lastLineIndex)
+				continue;
+			try {
+				colorize(toRegion(doc, pending.fromLineIndex, Math.min(pending.toLineIndex, lastLineIndex)), pending.docModel);
+			} catch (final BadLocationException ex) {
+				// This is an expected state, only log when tracing is enabled.
+				if (TMUIPlugin.isLogTraceEnabled()) {
+					TMUIPlugin.logError(ex);
+				}
+			}
+		}
+	}
+
+	private void applyPresentation(final TextPresentation presentation) {
+		Exception error = null;
+		try {
+			viewer.changeTextPresentation(presentation, false);
+		} catch (final IllegalArgumentException ex) {
+			error = ex;
+			// the presentation does not fit the current document state, only log when tracing is enabled
+			if (TMUIPlugin.isLogTraceEnabled()) {
+				TMUIPlugin.logError(ex);
+			}
+		} finally {
+			final var err = error;
+			listeners.forEach(l -> l.onColorized(presentation, err));
+		}
+	}
+
+	/**
+	 * Updates the lines visible in the viewer and colorizes deferred lines that came close to the visible lines.
+	 * <p>
+	 * Must be called from the UI thread.
+	 */
+	void setVisibleLines(final int fromLineIndex, final int toLineIndex, final ITMDocumentModel docModel) {
+		visibleFromLineIndex = fromLineIndex;
+		visibleToLineIndex = toLineIndex;
+		colorizeDeferredLines(docModel);
+	}
+
+	/**
+	 * Colorizes the given region: lines near the visible lines immediately, other lines once scrolled into view.
+	 * <p>
+	 * Must be called from the UI thread.
+	 */
+	void colorizeLazily(final IRegion region, final ITMDocumentModel docModel) throws BadLocationException {
+		final IDocument doc = docModel.getDocument();
+		final int fromLineIndex = doc.getLineOfOffset(region.getOffset());
+		final int toLineIndex = doc.getLineOfOffset(region.getOffset() + region.getLength());
+		final int eagerFromLineIndex = getEagerFromLineIndex();
+		final int eagerToLineIndex = getEagerToLineIndex(doc.getNumberOfLines() - 1);
+		deferLines(fromLineIndex, Math.min(toLineIndex, eagerFromLineIndex - 1));
+		deferLines(Math.max(fromLineIndex, eagerToLineIndex + 1), toLineIndex);
+
+		final int eagerFrom = Math.max(fromLineIndex, eagerFromLineIndex);
+		final int eagerTo = Math.min(toLineIndex, eagerToLineIndex);
+		if (eagerFrom == fromLineIndex && eagerTo == toLineIndex) {
+			colorize(region, docModel);
+		} else if (eagerFrom <= eagerTo) {
+			colorize(toRegion(doc, eagerFrom, eagerTo), docModel);
+		}
+	}
+
+	/**
+	 * Moves the deferred lines below the changed lines by the number of inserted or removed lines. The changed lines
+	 * stay deferred if one of them was deferred. All other lines keep their colors, since the text widget moves their
+	 * styles along with the text, and the lines whose tokens change are reported by the model anyway.
+	 * <p>
+	 * Must be called from the UI thread.
+	 *
+	 * @param replacedText the text replaced by the change or null if not known, in which case all deferred lines from
+	 *            the changed line onward are marked as deferred again
+	 */
+	void onDocumentChanged(final DocumentEvent event, final @Nullable String replacedText) {
+		synchronized (deferredLines) {
+			if (deferredLines.isEmpty())
 				return;
-			for (final Range range : event.ranges) {
-				try {
-					final int length = doc.getLineOffset(range.toLineNumber - 1) + doc.getLineLength(range.toLineNumber - 1)
-							- doc.getLineOffset(range.fromLineNumber - 1);
-					final var region = new Region(doc.getLineOffset(range.fromLineNumber - 1), length);
-					colorize(region, docModel);
-				} catch (final BadLocationException ex) {
-					// This is an expected state, only log when tracing is enabled.
-					if (TMUIPlugin.isLogTraceEnabled()) {
-						TMUIPlugin.logError(ex);
-					}
+			final IDocument doc = event.getDocument();
+			final int changedLineIndex;
+			try {
+				changedLineIndex = doc.getLineOfOffset(event.getOffset());
+			} catch (final BadLocationException ex) {
+				deferredLines.set(0, doc.getNumberOfLines());
+				return;
+			}
+			final int deferredLinesEnd = deferredLines.length();
+			if (changedLineIndex >= deferredLinesEnd)
+				return;
+
+			final String text = event.getText();
+			if (replacedText == null || text == null) {
+				deferredLines.set(changedLineIndex, Math.max(doc.getNumberOfLines(), deferredLinesEnd));
+				return;
+			}
+
+			// line indexes before the change
+			final int lastReplacedLineIndex = changedLineIndex + doc.computeNumberOfLines(replacedText);
+			final int nextDeferredLineIndex = deferredLines.nextSetBit(changedLineIndex);
+			final boolean isChangeDeferred = nextDeferredLineIndex != -1 && nextDeferredLineIndex <= lastReplacedLineIndex;
+			final BitSet linesBelow = deferredLines.get(Math.min(lastReplacedLineIndex + 1, deferredLinesEnd), deferredLinesEnd);
+
+			// line indexes after the change
+			final int lastInsertedLineIndex = changedLineIndex + doc.computeNumberOfLines(text);
+			deferredLines.clear(changedLineIndex, deferredLinesEnd);
+			if (isChangeDeferred) {
+				deferredLines.set(changedLineIndex, lastInsertedLineIndex + 1);
+			}
+			for (int i = linesBelow.nextSetBit(0); i != -1; i = linesBelow.nextSetBit(i + 1)) {
+				deferredLines.set(lastInsertedLineIndex + 1 + i);
+			}
+		}
+	}
+
+	private void colorizeDeferredLines(final ITMDocumentModel docModel) {
+		final IDocument doc = docModel.getDocument();
+		final int lastLineIndex = doc.getNumberOfLines() - 1;
+		final int eagerFromLineIndex = getEagerFromLineIndex();
+		final int eagerToLineIndex = getEagerToLineIndex(lastLineIndex);
+		final var lineRanges = new ArrayList<int[]>();
+		synchronized (deferredLines) {
+			int fromLineIndex = deferredLines.nextSetBit(eagerFromLineIndex);
+			while (fromLineIndex != -1 && fromLineIndex <= eagerToLineIndex) {
+				final int toLineIndex = Math.min(deferredLines.nextClearBit(fromLineIndex) - 1, eagerToLineIndex);
+				deferredLines.clear(fromLineIndex, toLineIndex + 1);
+				if (fromLineIndex <= lastLineIndex) {
+					lineRanges.add(new int[] { fromLineIndex, Math.min(toLineIndex, lastLineIndex) });
 				}
+				fromLineIndex = deferredLines.nextSetBit(toLineIndex + 1);
+			}
+		}
+
+		for (final int[] lineRange : lineRanges) {
+			try {
+				colorize(toRegion(doc, lineRange[0], lineRange[1]), docModel);
+			} catch (final BadLocationException ex) {
+				TMUIPlugin.logError(ex);
+			}
+		}
+	}
+
+	private void deferLines(final int fromLineIndex, final int toLineIndex) {
+		if (fromLineIndex <= toLineIndex) {
+			synchronized (deferredLines) {
+				deferredLines.set(fromLineIndex, toLineIndex + 1);
 			}
 		}
 	}
 
+	private int getEagerFromLineIndex() {
+		final int fromLineIndex = visibleFromLineIndex;
+		if (fromLineIndex < 0)
+			return 0;
+		return Math.max(0, fromLineIndex - Math.max(EAGER_LINES_MARGIN, visibleToLineIndex - fromLineIndex));
+	}
+
+	private int getEagerToLineIndex(final int lastLineIndex) {
+		final int fromLineIndex = visibleFromLineIndex;
+		final int toLineIndex = visibleToLineIndex;
+		if (fromLineIndex < 0 || toLineIndex < 0)
+			return lastLineIndex;
+		return Math.min(lastLineIndex, toLineIndex + Math.max(EAGER_LINES_MARGIN, toLineIndex - fromLineIndex));
+	}
+
+	private static long getModificationStamp(final IDocument doc) {
+		return doc instanceof final IDocumentExtension4 docExt4
+				? docExt4.getModificationStamp()
+				: IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+	}
+
+	/**
+	 * @return the region covering the given lines including their line delimiters
+	 */
+	private static IRegion toRegion(final IDocument doc, final int fromLineIndex, final int toLineIndex)
+			throws BadLocationException {
+		final int offset = doc.getLineOffset(fromLineIndex);
+		return new Region(offset, doc.getLineOffset(toLineIndex) + doc.getLineLength(toLineIndex) - offset);
+	}
+
 	void colorize(final IRegion damageRegion, final ITMDocumentModel tmModel) throws BadLocationException {
 		applyThemeToViewerIfNeeded();
 
-		final IDocument doc = tmModel.getDocument();
-		final int fromLineIndex = doc.getLineOfOffset(damageRegion.getOffset());
-		final int toLineIndex = doc.getLineOfOffset(damageRegion.getOffset() + damageRegion.getLength());
-
 		// Refresh the UI Presentation
 		if (TMUIPlugin.isLogTraceEnabled()) {
-			TMUIPlugin.logTrace("Colorize lines from " + (fromLineIndex + 1) + " to " + (toLineIndex + 1));
+			final IDocument doc = tmModel.getDocument();
+			TMUIPlugin.logTrace("Colorize lines from " + (doc.getLineOfOffset(damageRegion.getOffset()) + 1) + " to "
+					+ (doc.getLineOfOffset(damageRegion.getOffset() + damageRegion.getLength()) + 1));
 		}
 		final var presentation = new TextPresentation(damageRegion, 1_000);
 		Exception error = null;
 
-		final var theme = this.theme;
-
 		try {
-			int lastStart = presentation.getExtent().getOffset();
-			int length = 0;
-			boolean firstToken = true;
-			IToken lastToken = Token.UNDEFINED;
-			TextAttribute lastAttribute = getTokenTextAttribute(lastToken);
-
-			List<TMToken> tokens = null;
-			for (int lineIndex = fromLineIndex; lineIndex <= toLineIndex; lineIndex++) {
-				tokens = tmModel.getLineTokens(lineIndex);
-				if (tokens == null) {
-					if (TMUIPlugin.isLogTraceEnabled()) {
-						TMUIPlugin.logTrace("TextMate tokens not yet available for line " + lineIndex);
-					}
-					continue;
-				}
-				final int startLineOffset = doc.getLineOffset(lineIndex);
-				final int lineLength = doc.getLineLength(lineIndex);
-				int nextTokenIndex = 0;
-				for (final TMToken currentToken : tokens) {
-					nextTokenIndex++;
-					final @Nullable TMToken nextToken = nextTokenIndex < tokens.size()
-							? tokens.get(nextTokenIndex)
-							: null;
-					int tokenStartIndex = currentToken.startIndex;
-
-					// check if the current token is before the damaged region
-					if (isTokenBeforeRegion(currentToken, startLineOffset, damageRegion)) {
-						if (nextToken != null) {
-							if (isTokenBeforeRegion(nextToken, startLineOffset, damageRegion)) {
-								continue; // ignore it
-							}
-							tokenStartIndex = damageRegion.getOffset() - startLineOffset;
-						} else {
-							tokenStartIndex = damageRegion.getOffset() - startLineOffset;
-							final IToken token = theme == null ? ITokenProvider.DEFAULT_TOKEN : theme.getToken(currentToken);
-							lastAttribute = getTokenTextAttribute(token);
-							length += getTokenLength(tokenStartIndex, nextToken, lineLength);
-							firstToken = false;
-							// ignore it
-							continue;
-						}
-					}
-
-					// check if the current token is after the damaged region
-					else if (isTokenAfterRegion(currentToken, startLineOffset, damageRegion)) {
-						// after damaged region -> stop the colorization process
-						break;
-					}
-
-					final IToken token = theme == null ? ITokenProvider.DEFAULT_TOKEN : theme.getToken(currentToken);
-					final TextAttribute attribute = getTokenTextAttribute(token);
-					if (lastAttribute.equals(attribute)) {
-						length += getTokenLength(tokenStartIndex, nextToken, lineLength);
-						firstToken = false;
-					} else {
-						if (!firstToken) {
-							addStyleRange(presentation, lastStart, length, lastAttribute);
-						}
-						firstToken = false;
-						lastToken = token;
-						lastAttribute = attribute;
-						lastStart = tokenStartIndex + startLineOffset;
-						length = getTokenLength(tokenStartIndex, nextToken, lineLength);
-					}
-				}
-			}
-			// adjust the length
-			length = Math.min(length, damageRegion.getOffset() + damageRegion.getLength() - lastStart);
-			addStyleRange(presentation, lastStart, length, lastAttribute);
+			computeStyleRanges(presentation, damageRegion, tmModel);
 			viewer.changeTextPresentation(presentation, false);
 		} catch (final IllegalArgumentException | BadLocationException ex) {
 			error = ex;
@@ -189,6 +399,88 @@ else if (isTokenAfterRegion(currentToken, startLineOffset, damageRegion)) {
 		}
 	}
 
+	/**
+	 * Adds the style ranges of the tokens of the given region to the given presentation. Does not access the viewer and
+	 * thus can be called from any thread.
+	 */
+	private void computeStyleRanges(final TextPresentation presentation, final IRegion damageRegion,
+			final ITMDocumentModel tmModel) throws BadLocationException {
+		final IDocument doc = tmModel.getDocument();
+		final int fromLineIndex = doc.getLineOfOffset(damageRegion.getOffset());
+		final int toLineIndex = doc.getLineOfOffset(damageRegion.getOffset() + damageRegion.getLength());
+		final var theme = this.theme;
+
+		int lastStart = presentation.getExtent().getOffset();
+		int length = 0;
+		boolean firstToken = true;
+		IToken lastToken = Token.UNDEFINED;
+		TextAttribute lastAttribute = getTokenTextAttribute(lastToken);
+
+		List<TMToken> tokens = null;
+		for (int lineIndex = fromLineIndex; lineIndex <= toLineIndex; lineIndex++) {
+			tokens = tmModel.getLineTokens(lineIndex);
+			if (tokens == null) {
+				if (TMUIPlugin.isLogTraceEnabled()) {
+					TMUIPlugin.logTrace("TextMate tokens not yet available for line " + lineIndex);
+				}
+				continue;
+			}
+			final int startLineOffset = doc.getLineOffset(lineIndex);
+			final int lineLength = doc.getLineLength(lineIndex);
+			int nextTokenIndex = 0;
+			for (final TMToken currentToken : tokens) {
+				nextTokenIndex++;
+				final @Nullable TMToken nextToken = nextTokenIndex < tokens.size()
+						? tokens.get(nextTokenIndex)
+						: null;
+				int tokenStartIndex = currentToken.startIndex;
+
+				// check if the current token is before the damaged region
+				if (isTokenBeforeRegion(currentToken, startLineOffset, damageRegion)) {
+					if (nextToken != null) {
+						if (isTokenBeforeRegion(nextToken, startLineOffset, damageRegion)) {
+							continue; // ignore it
+						}
+						tokenStartIndex = damageRegion.getOffset() - startLineOffset;
+					} else {
+						tokenStartIndex = damageRegion.getOffset() - startLineOffset;
+						final IToken token = theme == null ? ITokenProvider.DEFAULT_TOKEN : theme.getToken(currentToken);
+						lastAttribute = getTokenTextAttribute(token);
+						length += getTokenLength(tokenStartIndex, nextToken, lineLength);
+						firstToken = false;
+						// ignore it
+						continue;
+					}
+				}
+
+				// check if the current token is after the damaged region
+				else if (isTokenAfterRegion(currentToken, startLineOffset, damageRegion)) {
+					// after damaged region -> stop the colorization process
+					break;
+				}
+
+				final IToken token = theme == null ? ITokenProvider.DEFAULT_TOKEN : theme.getToken(currentToken);
+				final TextAttribute attribute = getTokenTextAttribute(token);
+				if (lastAttribute.equals(attribute)) {
+					length += getTokenLength(tokenStartIndex, nextToken, lineLength);
+					firstToken = false;
+				} else {
+					if (!firstToken) {
+						addStyleRange(presentation, lastStart, length, lastAttribute);
+					}
+					firstToken = false;
+					lastToken = token;
+					lastAttribute = attribute;
+					lastStart = tokenStartIndex + startLineOffset;
+					length = getTokenLength(tokenStartIndex, nextToken, lineLength);
+				}
+			}
+		}
+		// adjust the length
+		length = Math.min(length, damageRegion.getOffset() + damageRegion.getLength() - lastStart);
+		addStyleRange(presentation, lastStart, length, lastAttribute);
+	}
+
 	/**
 	 * Adds style information to the given text presentation.
 	 *
@@ -286,8 +578,4 @@ private int getTokenLength(final int tokenStartIndex, final @Nullable TMToken ne
 	private TextAttribute getTokenTextAttribute(final IToken token) {
 		return token.getData() instanceof final TextAttribute textAttr ? textAttr : DEFAULT_TEXT_ATTRIBUTE;
 	}
-
-	ITextViewer getTextViewer() {
-		return viewer;
-	}
 }
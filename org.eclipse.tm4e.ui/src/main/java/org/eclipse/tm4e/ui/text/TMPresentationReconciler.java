@@ -21,11 +21,13 @@
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ForkJoinPool;
 
 import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextInputListener;
@@ -33,6 +35,7 @@
 import org.eclipse.jface.text.ITextOperationTarget;
 import org.eclipse.jface.text.ITextViewer;
 import org.eclipse.jface.text.ITextViewerExtension5;
+import org.eclipse.jface.text.IViewportListener;
 import org.eclipse.jface.text.Region;
 import org.eclipse.jface.text.TextEvent;
 import org.eclipse.jface.text.TextPresentation;
@@ -43,7 +46,8 @@
 import org.eclipse.jface.text.source.SourceViewer;
 import org.eclipse.swt.custom.StyleRange;
 import org.eclipse.swt.custom.StyledText;
-import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.events.FocusEvent;
+import org.eclipse.swt.events.FocusListener;
 import org.eclipse.tm4e.core.TMException;
 import org.eclipse.tm4e.core.grammar.IGrammar;
 import org.eclipse.tm4e.core.model.ModelTokensChangedEvent;
@@ -106,10 +110,7 @@ public class TMPresentationReconciler implements IPresentationReconciler {
 	private final ModelTokensChangedEvent.Listener modelsTokensChangedListener = (final ModelTokensChangedEvent event) -> {
 		final var colorizer = TMPresentationReconciler.this.colorizer;
 		if (colorizer != null) {
-			final Control control = colorizer.getTextViewer().getTextWidget();
-			if (control != null && !control.isDisposed()) {
-				control.getDisplay().asyncExec(() -> colorizer.colorize(event));
-			}
+			colorizer.onModelTokensChanged(event);
 		}
 		MarkerUtils.updateTextMarkers(event);
 	};
@@ -155,7 +156,7 @@ public TMPresentationReconciler() {
 		}
 	}
 
-	private final class TextViewerListener implements ITextInputListener, ITextListener {
+	private final class TextViewerListener implements ITextInputListener, ITextListener, IViewportListener, FocusListener {
 		private static final Region EMPTY_REGION = new Region(0, 0);
 
 		@Override
@@ -166,6 +167,11 @@ public void inputDocumentAboutToBeChanged(final @Nullable IDocument oldDoc, fina
 			final var viewer = TMPresentationReconciler.this.viewer;
 			if (viewer != null) {
 				viewer.removeTextListener(viewerListener);
+				viewer.removeViewportListener(viewerListener);
+				final StyledText widget = viewer.getTextWidget();
+				if (widget != null && !widget.isDisposed()) {
+					widget.removeFocusListener(viewerListener);
+				}
 			}
 			TMModelManager.INSTANCE.disconnect(oldDoc);
 			listeners.forEach(ITMPresentationReconcilerListener::onUninstalled);
@@ -215,23 +221,49 @@ public void inputDocumentChanged(final @Nullable IDocument oldDoc, final @Nullab
 
 			final var colorizer = TMPresentationReconciler.this.colorizer = new Colorizer(viewer, theme, listeners);
 			final var isModelReused = TMModelManager.INSTANCE.isConnected(newDoc);
+			if (!isModelReused) {
+				warmUp(newDocGrammar);
+			}
 
 			// connect a TextMate model to the new document
 			final var docModel = TMModelManager.INSTANCE.connect(newDoc);
 			docModel.setGrammar(newDocGrammar);
+			updateVisibleRange(viewer, docModel);
+			viewer.addViewportListener(viewerListener);
+			final StyledText widget = viewer.getTextWidget();
+			docModel.setFocused(widget.isFocusControl());
+			widget.addFocusListener(viewerListener);
 			docModel.addModelTokensChangedListener(modelsTokensChangedListener);
 
 			// For new models the colorizer will be invoked after tokenization. For reused
 			// models (e.g. when splitting an editor) this must be done explicitly.
 			if (isModelReused) {
 				try {
-					colorizer.colorize(new Region(0, newDoc.getLength()), docModel);
+					colorizer.colorizeLazily(new Region(0, newDoc.getLength()), docModel);
 				} catch (final BadLocationException ex) {
 					TMUIPlugin.logError(ex);
 				}
 			}
 		}
 
+		/**
+		 * Compiles the regular expressions of the given grammar in the background, so that the tokenizer needs to
+		 * compile fewer of them on demand. The warm-up runs concurrently to the first tokenization of the document,
+		 * which waits for the regular expressions currently compiled by the warm-up instead of compiling them again.
+		 */
+		private void warmUp(final IGrammar grammar) {
+			ForkJoinPool.commonPool().execute(() -> {
+				try {
+					final var duration = grammar.warmUp(ForkJoinPool.commonPool());
+					if (TMUIPlugin.isLogTraceEnabled()) {
+						TMUIPlugin.logTrace("Warmed up grammar " + grammar.getScopeName() + " in " + duration.toMillis() + "ms");
+					}
+				} catch (final RuntimeException ex) {
+					TMUIPlugin.logError(ex);
+				}
+			});
+		}
+
 		@Override
 		public void textChanged(final TextEvent event) {
 			if (!event.getViewerRedrawState())
@@ -241,8 +273,14 @@ public void textChanged(final TextEvent event) {
 			if (viewer == null)
 				return;
 
-			// case 1) changed text: propagate previous style (which will be overridden later asynchronously by TMModel.TokenizerThread)
-			if (event.getDocumentEvent() != null) {
+			// case 1) changed text: propagate previous style (which will be overridden later asynchronously by TMModel.TokenizerTask)
+			final DocumentEvent docEvent = event.getDocumentEvent();
+			if (docEvent != null) {
+				final var colorizer = TMPresentationReconciler.this.colorizer;
+				if (colorizer != null) {
+					colorizer.onDocumentChanged(docEvent, event.getReplacedText());
+				}
+
 				final int diff = event.getText().length() - event.getLength();
 				if (diff == 0 || event.getOffset() <= 0)
 					return;
@@ -273,8 +311,8 @@ public void textChanged(final TextEvent event) {
 				// case where there is grammar & theme -> update text presentation with the grammar tokens
 
 				// It's possible that there are two or more SourceViewers opened for the same document,
-				// so when one of them is closed the existing TMModel is also "closed" and its TokenizerThread
-				// is interrupted and terminated.
+				// so when one of them is closed the existing TMModel is also "closed" and its TokenizerTask
+				// is cancelled.
 				// In this case, in order to let the others Source Viewers to continue working a new
 				// TMModel object is to be created for the document, so it should be initialized
 				// with the existing grammar as well as new ModelTokensChangedListener is to be added.
@@ -283,7 +321,7 @@ public void textChanged(final TextEvent event) {
 				docModel.addModelTokensChangedListener(modelsTokensChangedListener);
 
 				try {
-					colorizer.colorize(region, docModel);
+					colorizer.colorizeLazily(region, docModel);
 				} catch (final BadLocationException ex) {
 					TMUIPlugin.logError(ex);
 				}
@@ -296,6 +334,67 @@ public void textChanged(final TextEvent event) {
 			}
 		}
 
+		@Override
+		public void viewportChanged(final int verticalOffset) {
+			final var viewer = TMPresentationReconciler.this.viewer;
+			if (viewer == null)
+				return;
+
+			final IDocument doc = viewer.getDocument();
+			if (doc == null)
+				return;
+
+			final var docModel = TMModelManager.INSTANCE.getConnectedModel(doc);
+			if (docModel != null) {
+				updateVisibleRange(viewer, docModel);
+			}
+		}
+
+		@Override
+		public void focusGained(final FocusEvent event) {
+			setModelFocused(true);
+		}
+
+		@Override
+		public void focusLost(final FocusEvent event) {
+			setModelFocused(false);
+		}
+
+		/**
+		 * Informs the model whether the viewer is focused, so that it is tokenized before the models of other editors.
+		 */
+		private void setModelFocused(final boolean focused) {
+			final var viewer = TMPresentationReconciler.this.viewer;
+			if (viewer == null)
+				return;
+
+			final IDocument doc = viewer.getDocument();
+			if (doc == null)
+				return;
+
+			final var docModel = TMModelManager.INSTANCE.getConnectedModel(doc);
+			if (docModel != null) {
+				docModel.setFocused(focused);
+			}
+		}
+
+		/**
+		 * Informs the model and the colorizer about the lines visible in the viewer, so that they are tokenized and
+		 * colorized with priority.
+		 */
+		private void updateVisibleRange(final ITextViewer viewer, final ITMDocumentModel docModel) {
+			// both indexes are document line indexes, i.e. folded regions are already taken into account
+			final int startLineIndex = viewer.getTopIndex();
+			final int endLineIndex = viewer.getBottomIndex();
+			if (startLineIndex >= 0 && endLineIndex >= startLineIndex) {
+				docModel.setVisibleRange(startLineIndex, endLineIndex);
+				final var colorizer = TMPresentationReconciler.this.colorizer;
+				if (colorizer != null) {
+					colorizer.setVisibleLines(startLineIndex, endLineIndex, docModel);
+				}
+			}
+		}
+
 		IRegion computeRegionToRedraw(final TextEvent event, final IDocument doc) {
 			// Fast path: check for redraw state change first
 			if (event.getOffset() == 0 && event.getLength() == 0 && event.getText() == null) {
@@ -382,8 +481,9 @@ public void setTheme(final ITokenProvider newTheme) {
 				return;
 
 			final var docModel = TMModelManager.INSTANCE.connect(doc);
+			viewerListener.updateVisibleRange(viewer, docModel);
 			try {
-				colorizer.colorize(new Region(0, doc.getLength()), docModel);
+				colorizer.colorizeLazily(new Region(0, doc.getLength()), docModel);
 			} catch (final BadLocationException ex) {
 				TMUIPlugin.logError(ex);
 			}
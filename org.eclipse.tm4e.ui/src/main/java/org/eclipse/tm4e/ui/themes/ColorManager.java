@@ -11,8 +11,8 @@
  */
 package org.eclipse.tm4e.ui.themes;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.swt.graphics.Color;
@@ -34,7 +34,8 @@ private static Color rgbToColor(final RGB rgb) {
 		return new Color(UI.getDisplay(), rgb.red, rgb.green, rgb.blue);
 	}
 
-	private final Map<RGB, Color> fColorTable = new HashMap<>(10);
+	/** concurrent, since colors are also looked up when computing styles off the UI thread */
+	private final Map<RGB, Color> fColorTable = new ConcurrentHashMap<>(10);
 
 	private ColorManager() {
 	}
@@ -28,7 +28,7 @@ void testMultiLineChange() throws InterruptedException {
 		final var document = new Document();
 		final var tmModel = new TMDocumentModel(document);
 
-		// setting grammar and listener is required to start background TokenizerThread
+		// setting grammar and listener is required to start background TokenizerTask
 		tmModel.setGrammar(grammar);
 		tmModel.addModelTokensChangedListener(ev -> {
 		});